@@ -0,0 +1,57 @@
+package bench;
+
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit d'AllMiniLmL6V2EmbeddingModel.embedAll selon la taille des lots.
+ * <p>
+ * Chaque invocation embed les mêmes {@value #SEGMENTS} segments de rag.pdf, découpés en lots de
+ * {@code batchSize} : le score est en segments/s, comparable d'une taille de lot à l'autre.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EmbedBenchmark {
+
+    static final int SEGMENTS = 64;
+
+    @Param({"1", "8", "32", "64"})
+    public int batchSize;
+
+    private EmbeddingModel model;
+    private List<TextSegment> segments;
+
+    @Setup
+    public void setup() {
+        model = new AllMiniLmL6V2EmbeddingModel();
+        List<TextSegment> all = DocumentSplitters.recursive(300, 30).split(Resources.parse("rag.pdf"));
+        if (all.size() < SEGMENTS) throw new IllegalStateException("rag.pdf trop court : " + all.size() + " segments");
+        segments = List.copyOf(all.subList(0, SEGMENTS));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public void embedAll(Blackhole blackhole) {
+        for (int from = 0; from < SEGMENTS; from += batchSize) {
+            List<Embedding> embeddings = model.embedAll(segments.subList(from, Math.min(from + batchSize, SEGMENTS))).content();
+            blackhole.consume(embeddings);
+        }
+    }
+}
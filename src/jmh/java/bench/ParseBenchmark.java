@@ -0,0 +1,42 @@
+package bench;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentParser;
+import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing Tika des PDF embarqués, octets déjà en mémoire (on ne mesure pas le disque).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParseBenchmark {
+
+    @Param({"rag.pdf", "Support.pdf"})
+    public String pdf;
+
+    private byte[] bytes;
+    private DocumentParser parser;
+
+    @Setup
+    public void setup() {
+        bytes = Resources.bytes(pdf);
+        parser = new ApacheTikaDocumentParser();
+    }
+
+    @Benchmark
+    public Document parse() {
+        return parser.parse(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import assistant.Assistant;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import stub.StubChatModel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tour RAG complet de RagNaif (embedding de la question, recherche, prompt, mémoire) avec un LLM
+ * bouchon : mesure tout ce qui n'est pas l'appel réseau à Gemini.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RagTurnBenchmark {
+
+    private static final String[] QUESTIONS = {
+            "Qu'est-ce que le RAG ?",
+            "Quelles sont les phases d'un système RAG ?",
+            "À quoi sert un modèle d'embeddings ?",
+            "Quelle différence entre RAG et fine-tuning ?"
+    };
+
+    private Assistant assistant;
+    private int next;
+
+    @Setup
+    public void setup() {
+        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        List<TextSegment> segments = DocumentSplitters.recursive(300, 30).split(Resources.parse("rag.pdf"));
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        store.addAll(embeddingModel.embedAll(segments).content(), segments);
+
+        assistant = AiServices.builder(Assistant.class)
+                .chatModel(new StubChatModel())
+                .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
+                .contentRetriever(EmbeddingStoreContentRetriever.builder()
+                        .embeddingModel(embeddingModel)
+                        .embeddingStore(store)
+                        .maxResults(2)
+                        .minScore(0.5)
+                        .build())
+                .build();
+    }
+
+    @Benchmark
+    public String chat() {
+        return assistant.chat(QUESTIONS[next++ % QUESTIONS.length]);
+    }
+}
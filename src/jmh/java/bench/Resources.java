@@ -0,0 +1,32 @@
+package bench;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * Accès aux PDF embarqués (src/main/resources) depuis les benchmarks.
+ */
+final class Resources {
+
+    private Resources() {
+    }
+
+    static byte[] bytes(String name) {
+        try (InputStream in = Objects.requireNonNull(
+                Resources.class.getClassLoader().getResourceAsStream(name), "Fichier introuvable : " + name)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Document parse(String name) {
+        return new ApacheTikaDocumentParser().parse(new ByteArrayInputStream(bytes(name)));
+    }
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import store.FlatVectorStore;
+import store.VectorKernels;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search (top-3, minScore 0.35) d'InMemoryEmbeddingStore et de FlatVectorStore sur un corpus
+ * synthétique de vecteurs aléatoires normalisés de dimension 384 (celle de MiniLM). Avec
+ * {@code -prof gc}, gc.alloc.rate.norm donne les octets alloués par requête.
+ * <p>
+ * À 1M de vecteurs le store occupe environ 2 Go : le fork reçoit un tas de 4 Go, et le module
+ * jdk.incubator.vector sans lequel FlatVectorStore retombe sur sa boucle scalaire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class SearchBenchmark {
+
+    private static final int DIMENSION = 384;
+    private static final int QUERIES = 64;
+    private static final int CHUNK = 10_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"InMemory", "Flat"})
+    public String store;
+
+    private EmbeddingStore<TextSegment> embeddingStore;
+    private Embedding[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        embeddingStore = switch (store) {
+            case "InMemory" -> new InMemoryEmbeddingStore<>();
+            case "Flat" -> {
+                if (!VectorKernels.SIMD) System.err.println("jdk.incubator.vector absent : FlatVectorStore mesuré en scalaire");
+                yield new FlatVectorStore();
+            }
+            default -> throw new IllegalArgumentException("Store inconnu : " + store);
+        };
+
+        // Par tranches, pour ne pas garder toute la liste d'Embedding à côté du store
+        Random random = new Random(42);
+        for (int added = 0; added < size; added += CHUNK) {
+            List<Embedding> embeddings = new ArrayList<>(CHUNK);
+            for (int i = added; i < Math.min(size, added + CHUNK); i++) embeddings.add(randomUnit(random));
+            embeddingStore.addAll(embeddings);
+        }
+
+        queries = new Embedding[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = randomUnit(random);
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> search() {
+        Embedding query = queries[next++ & (QUERIES - 1)];
+        return embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(3)
+                .minScore(0.35)
+                .build());
+    }
+
+    private static Embedding randomUnit(Random random) {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float inv = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSION; i++) vector[i] *= inv;
+        return Embedding.from(vector);
+    }
+}
@@ -0,0 +1,43 @@
+package bench;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Découpage DocumentSplitters.recursive(300, 30), tel qu'utilisé par l'IngestionPipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SplitBenchmark {
+
+    @Param({"rag.pdf", "Support.pdf"})
+    public String pdf;
+
+    private Document document;
+    private DocumentSplitter splitter;
+
+    @Setup
+    public void setup() {
+        document = Resources.parse(pdf);
+        splitter = DocumentSplitters.recursive(300, 30);
+    }
+
+    @Benchmark
+    public List<TextSegment> split() {
+        return splitter.split(document);
+    }
+}
@@ -0,0 +1,214 @@
+package assistant;
+
+import cache.SemanticCache;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.tool.BeforeToolExecution;
+import dev.langchain4j.service.tool.ToolExecution;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Décorateurs d'assistant qui répondent depuis le {@link SemanticCache} quand une question quasi
+ * identique a déjà été traitée, sans appeler le LLM.
+ * <p>
+ * L'échange servi depuis le cache est ajouté à la mémoire de la conversation, comme l'aurait fait
+ * AiServices : les questions suivantes le voient. Seules les réponses aux questions qui ouvrent une
+ * conversation entrent dans le cache ; plus loin, la réponse peut dépendre de l'historique et ne
+ * vaut pas pour une autre conversation.
+ */
+public final class CachingAssistant {
+
+    private CachingAssistant() {
+    }
+
+    /**
+     * @param memory mémoire passée à AiServices pour {@code delegate}
+     */
+    public static Assistant of(Assistant delegate, SemanticCache cache, ChatMemory memory) {
+        return question -> {
+            String cached = cache.lookup(question).orElse(null);
+            if (cached != null) return record(memory, question, cached);
+            boolean opening = isOpening(memory);
+            String answer = delegate.chat(question);
+            if (opening) cache.put(question, answer);
+            return answer;
+        };
+    }
+
+    /**
+     * Une réponse servie depuis le cache arrive en un seul fragment.
+     */
+    public static StreamingAssistant of(StreamingAssistant delegate, SemanticCache cache, ChatMemory memory) {
+        return question -> {
+            String cached = cache.lookup(question).orElse(null);
+            if (cached != null) return new CachedTokenStream(record(memory, question, cached));
+            boolean opening = isOpening(memory);
+            return new RecordingTokenStream(delegate.chat(question), answer -> {
+                if (opening) cache.put(question, answer);
+            });
+        };
+    }
+
+    /**
+     * @param memories provider passé à AiServices pour {@code delegate}
+     */
+    public static SessionAssistant of(SessionAssistant delegate, SemanticCache cache, ChatMemoryProvider memories) {
+        return (sessionId, question) -> {
+            ChatMemory memory = memories.get(sessionId);
+            String cached = cache.lookup(question).orElse(null);
+            if (cached != null) return record(memory, question, cached);
+            boolean opening = isOpening(memory);
+            String answer = delegate.chat(sessionId, question);
+            if (opening) cache.put(question, answer);
+            return answer;
+        };
+    }
+
+    private static boolean isOpening(ChatMemory memory) {
+        return memory.messages().stream().noneMatch(UserMessage.class::isInstance);
+    }
+
+    private static String record(ChatMemory memory, String question, String answer) {
+        memory.add(UserMessage.from(question));
+        memory.add(AiMessage.from(answer));
+        return answer;
+    }
+
+    // Réponse du cache rejouée en un fragment puis une réponse complète
+    private static final class CachedTokenStream implements TokenStream {
+
+        private final String answer;
+        private Consumer<String> partial = text -> {
+        };
+        private Consumer<ChatResponse> complete = response -> {
+        };
+
+        CachedTokenStream(String answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public TokenStream onPartialResponse(Consumer<String> handler) {
+            this.partial = handler;
+            return this;
+        }
+
+        @Override
+        public TokenStream onRetrieved(Consumer<List<Content>> handler) {
+            return this;
+        }
+
+        @Override
+        public TokenStream onToolExecuted(Consumer<ToolExecution> handler) {
+            return this;
+        }
+
+        @Override
+        public TokenStream onCompleteResponse(Consumer<ChatResponse> handler) {
+            this.complete = handler;
+            return this;
+        }
+
+        @Override
+        public TokenStream onError(Consumer<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public TokenStream ignoreErrors() {
+            return this;
+        }
+
+        @Override
+        public void start() {
+            partial.accept(answer);
+            complete.accept(ChatResponse.builder().aiMessage(AiMessage.from(answer)).build());
+        }
+    }
+
+    // Flux du délégué, dont la réponse complète est aussi transmise au cache
+    private static final class RecordingTokenStream implements TokenStream {
+
+        private final TokenStream delegate;
+        private final Consumer<String> onAnswer;
+        private Consumer<ChatResponse> complete = response -> {
+        };
+
+        RecordingTokenStream(TokenStream delegate, Consumer<String> onAnswer) {
+            this.delegate = delegate;
+            this.onAnswer = onAnswer;
+        }
+
+        @Override
+        public TokenStream onPartialResponse(Consumer<String> handler) {
+            delegate.onPartialResponse(handler);
+            return this;
+        }
+
+        @Override
+        public TokenStream onPartialThinking(Consumer<PartialThinking> handler) {
+            delegate.onPartialThinking(handler);
+            return this;
+        }
+
+        @Override
+        public TokenStream onRetrieved(Consumer<List<Content>> handler) {
+            delegate.onRetrieved(handler);
+            return this;
+        }
+
+        @Override
+        public TokenStream onIntermediateResponse(Consumer<ChatResponse> handler) {
+            delegate.onIntermediateResponse(handler);
+            return this;
+        }
+
+        @Override
+        public TokenStream beforeToolExecution(Consumer<BeforeToolExecution> handler) {
+            delegate.beforeToolExecution(handler);
+            return this;
+        }
+
+        @Override
+        public TokenStream onToolExecuted(Consumer<ToolExecution> handler) {
+            delegate.onToolExecuted(handler);
+            return this;
+        }
+
+        @Override
+        public TokenStream onCompleteResponse(Consumer<ChatResponse> handler) {
+            this.complete = handler;
+            return this;
+        }
+
+        @Override
+        public TokenStream onError(Consumer<Throwable> handler) {
+            delegate.onError(handler);
+            return this;
+        }
+
+        @Override
+        public TokenStream ignoreErrors() {
+            delegate.ignoreErrors();
+            return this;
+        }
+
+        @Override
+        public void start() {
+            delegate.onCompleteResponse(response -> {
+                if (response.aiMessage() != null && response.aiMessage().text() != null) {
+                    onAnswer.accept(response.aiMessage().text());
+                }
+                complete.accept(response);
+            }).start();
+        }
+    }
+}
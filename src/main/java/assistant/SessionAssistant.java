@@ -0,0 +1,11 @@
+package assistant;
+
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+
+/**
+ * Assistant multi-utilisateur : chaque session a sa propre mémoire de conversation.
+ */
+public interface SessionAssistant {
+    String chat(@MemoryId String sessionId, @UserMessage String userMessage);
+}
@@ -0,0 +1,106 @@
+package assistant;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.TokenStream;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Affiche une réponse en streaming au fil des tokens et mesure la latence perçue du tour :
+ * délai avant le premier token (TTFT) et débit de génération.
+ * <p>
+ * Le chronomètre part avant l'appel à l'assistant : AiServices fait l'augmentation (routage,
+ * embedding de la question, recherche PDF et web) dans {@code chat()}, avant même de rendre le
+ * {@link TokenStream}, et cette phase compte dans le TTFT comme dans la durée totale.
+ * <p>
+ * Le débit est calculé sur la phase de génération seule (après le premier token), à partir du
+ * nombre de tokens de sortie renvoyé par le modèle, ou à défaut du nombre de fragments reçus.
+ */
+public final class StreamingConsole {
+
+    public record Turn(String text, long firstTokenNanos, long totalNanos, int tokens) {
+
+        public double timeToFirstTokenMillis() {
+            return firstTokenNanos / 1e6;
+        }
+
+        public double tokensPerSecond() {
+            long generationNanos = totalNanos - firstTokenNanos;
+            return generationNanos <= 0 ? 0 : tokens / (generationNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "premier token %.0f ms, %d tokens en %.2f s (%.1f tokens/s)",
+                    timeToFirstTokenMillis(), tokens, totalNanos / 1e9, tokensPerSecond());
+        }
+    }
+
+    private StreamingConsole() {
+    }
+
+    /**
+     * Affiche la réponse sur la sortie standard puis la mesure du tour ; bloque jusqu'à la fin.
+     */
+    public static Turn print(Supplier<TokenStream> chat) {
+        return print(chat, System.out);
+    }
+
+    /**
+     * {@code chat} lance le tour, par exemple {@code () -> assistant.chat(question)}.
+     */
+    public static Turn print(Supplier<TokenStream> chat, PrintStream out) {
+        long start = System.nanoTime();
+        TokenStream stream = chat.get();
+        AtomicLong firstToken = new AtomicLong(-1);
+        AtomicInteger fragments = new AtomicInteger();
+        StringBuilder text = new StringBuilder();
+        CompletableFuture<ChatResponse> done = new CompletableFuture<>();
+
+        stream.onPartialResponse(partial -> {
+                    firstToken.compareAndSet(-1, System.nanoTime() - start);
+                    fragments.incrementAndGet();
+                    text.append(partial);
+                    out.print(partial);
+                    out.flush();
+                })
+                .onCompleteResponse(done::complete)
+                .onError(done::completeExceptionally)
+                .start();
+
+        ChatResponse response;
+        try {
+            response = done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Réponse interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erreur pendant le streaming", e.getCause());
+        }
+        long total = System.nanoTime() - start;
+
+        // Réponse sans fragment (ex. modèle non streamé) : tout arrive d'un bloc
+        if (firstToken.get() < 0) {
+            firstToken.set(total);
+            if (response.aiMessage() != null && response.aiMessage().text() != null) {
+                text.append(response.aiMessage().text());
+                out.print(response.aiMessage().text());
+            }
+        }
+
+        TokenUsage usage = response.tokenUsage();
+        int tokens = usage != null && usage.outputTokenCount() != null ? usage.outputTokenCount() : fragments.get();
+
+        Turn turn = new Turn(text.toString(), firstToken.get(), total, tokens);
+        out.println();
+        out.println("  [" + turn + "]");
+        return turn;
+    }
+}
@@ -0,0 +1,367 @@
+package cache;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchInformationResult;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+import embedding.CachingEmbeddingModel;
+import store.SegmentCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Décorateur de WebSearchEngine avec cache : une recherche déjà faite (mêmes termes normalisés,
+ * mêmes paramètres) n'est pas refaite tant que son résultat n'a pas expiré.
+ * <p>
+ * Cache LRU borné avec TTL. Les requêtes identiques concurrentes sont regroupées : un seul appel
+ * sortant, dont le résultat (ou l'erreur) est partagé par tous les appelants. Les erreurs ne sont
+ * pas mises en cache.
+ * <p>
+ * Avec {@link Builder#file}, le cache est rechargé au démarrage et réécrit en arrière-plan après
+ * chaque nouvelle entrée (fichier temporaire puis renommage atomique). Seuls les titres, URL,
+ * extraits, contenus et métadonnées texte des résultats sont persistés.
+ */
+public class CachingWebSearchEngine implements WebSearchEngine, AutoCloseable {
+
+    private static final int FILE_VERSION = 1;
+
+    private record Entry(WebSearchResults results, Instant expiresAt) {
+    }
+
+    public record Stats(long hits, long misses, long coalesced, long evictions, int size) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "cache web : %d hits, %d misses, %d regroupées, %d évictions, %d entrées",
+                    hits, misses, coalesced, evictions, size);
+        }
+    }
+
+    private final WebSearchEngine delegate;
+    private final Duration ttl;
+    private final Path file;
+    private final Clock clock;
+
+    // Ordre d'accès : la première entrée est la moins récemment utilisée
+    private final Map<String, Entry> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<WebSearchResults>> inFlight = new ConcurrentHashMap<>();
+
+    private final ExecutorService writer;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private CachingWebSearchEngine(Builder builder) {
+        this.delegate = Objects.requireNonNull(builder.delegate, "delegate");
+        this.ttl = builder.ttl;
+        this.file = builder.file;
+        this.clock = builder.clock;
+
+        int maxEntries = builder.maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+
+        if (file == null) {
+            this.writer = null;
+        } else {
+            load();
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "web-cache-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public WebSearchResults search(WebSearchRequest request) {
+        String key = key(request);
+        WebSearchResults cached = cached(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<WebSearchResults> call = new CompletableFuture<>();
+        CompletableFuture<WebSearchResults> pending = inFlight.putIfAbsent(key, call);
+        if (pending != null) {
+            coalesced.increment();
+            return await(pending);
+        }
+
+        try {
+            // Un appel terminé entre la lecture du cache et putIfAbsent y a déjà mis son résultat
+            cached = cached(key);
+            if (cached != null) {
+                hits.increment();
+                call.complete(cached);
+                return cached;
+            }
+
+            misses.increment();
+            WebSearchResults results = delegate.search(request);
+            synchronized (entries) {
+                entries.put(key, new Entry(results, clock.instant().plus(ttl)));
+            }
+            call.complete(results);
+            scheduleSave();
+            return results;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.sum(), misses.sum(), coalesced.sum(), evictions.sum(), entries.size());
+        }
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Arrête l'écriture en arrière-plan et enregistre le cache une dernière fois.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer == null) return;
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        save();
+    }
+
+    // Résultat encore valide, ou null ; une entrée expirée est retirée
+    private WebSearchResults cached(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAt().isAfter(clock.instant())) return entry.results();
+            entries.remove(key);
+            return null;
+        }
+    }
+
+    private static WebSearchResults await(CompletableFuture<WebSearchResults> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // Termes normalisés comme les questions du cache d'embeddings, puis tous les paramètres
+    private static String key(WebSearchRequest request) {
+        return String.join("\u0000", CachingEmbeddingModel.normalizedKey(request.searchTerms()),
+                String.valueOf(request.maxResults()), String.valueOf(request.language()),
+                String.valueOf(request.geoLocation()), String.valueOf(request.startPage()),
+                String.valueOf(request.startIndex()), String.valueOf(request.safeSearch()),
+                String.valueOf(request.additionalParams()));
+    }
+
+    // ---- Persistance ----
+
+    private void scheduleSave() {
+        if (writer == null || !dirty.compareAndSet(false, true)) return;
+        writer.execute(() -> {
+            try {
+                save();
+            } catch (IOException e) {
+                System.err.println("Cache web non enregistré dans " + file + " : " + e.getMessage());
+            }
+        });
+    }
+
+    private void save() throws IOException {
+        dirty.set(false);
+        Map<String, Entry> copy;
+        synchronized (entries) {
+            copy = new LinkedHashMap<>(entries);
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(copy.size());
+            for (Map.Entry<String, Entry> entry : copy.entrySet()) {
+                SegmentCodec.writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().expiresAt().toEpochMilli());
+                writeResults(out, entry.getValue().results());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() {
+        Instant now = clock.instant();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FILE_VERSION) throw new IOException("version " + version + " non supportée");
+            int count = in.readInt();
+            synchronized (entries) {
+                for (int i = 0; i < count; i++) {
+                    String key = SegmentCodec.readString(in);
+                    Instant expiresAt = Instant.ofEpochMilli(in.readLong());
+                    WebSearchResults results = readResults(in);
+                    if (expiresAt.isAfter(now)) entries.put(key, new Entry(results, expiresAt));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // premier démarrage
+        } catch (IOException | RuntimeException e) {
+            // Fichier illisible : on repart d'un cache vide, il sera réécrit
+            synchronized (entries) {
+                entries.clear();
+            }
+            System.err.println("Cache web ignoré (" + file + ") : " + e.getMessage());
+        }
+    }
+
+    private static void writeResults(DataOutput out, WebSearchResults results) throws IOException {
+        WebSearchInformationResult information = results.searchInformation();
+        out.writeLong(information == null || information.totalResults() == null ? -1 : information.totalResults());
+        out.writeInt(information == null || information.pageNumber() == null ? -1 : information.pageNumber());
+
+        List<WebSearchOrganicResult> organic = results.results() == null ? List.of() : results.results();
+        out.writeInt(organic.size());
+        for (WebSearchOrganicResult result : organic) {
+            SegmentCodec.writeString(out, result.title());
+            SegmentCodec.writeString(out, result.url().toString());
+            writeNullable(out, result.snippet());
+            writeNullable(out, result.content());
+            Map<String, String> metadata = result.metadata() == null ? Map.of() : result.metadata();
+            out.writeInt(metadata.size());
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                SegmentCodec.writeString(out, entry.getKey());
+                writeNullable(out, entry.getValue());
+            }
+        }
+    }
+
+    private static WebSearchResults readResults(DataInput in) throws IOException {
+        long totalResults = in.readLong();
+        int pageNumber = in.readInt();
+        WebSearchInformationResult information = new WebSearchInformationResult(
+                totalResults < 0 ? null : totalResults, pageNumber < 0 ? null : pageNumber, null);
+
+        int count = in.readInt();
+        List<WebSearchOrganicResult> organic = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = SegmentCodec.readString(in);
+            URI url = URI.create(SegmentCodec.readString(in));
+            String snippet = readNullable(in);
+            String content = readNullable(in);
+            int size = in.readInt();
+            Map<String, String> metadata = new LinkedHashMap<>();
+            for (int m = 0; m < size; m++) metadata.put(SegmentCodec.readString(in), readNullable(in));
+            organic.add(new WebSearchOrganicResult(title, url, snippet, content, metadata));
+        }
+        return new WebSearchResults(information, organic);
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) SegmentCodec.writeString(out, value);
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? SegmentCodec.readString(in) : null;
+    }
+
+    public static class Builder {
+
+        private WebSearchEngine delegate;
+        private Duration ttl = Duration.ofHours(1);
+        private int maxEntries = 1_000;
+        private Path file;
+        private Clock clock = Clock.systemUTC();
+
+        public Builder delegate(WebSearchEngine delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries doit être > 0");
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Fichier où le cache survit aux redémarrages (par défaut : en mémoire seulement).
+         */
+        public Builder file(Path file) {
+            this.file = file;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public CachingWebSearchEngine build() {
+            return new CachingWebSearchEngine(this);
+        }
+    }
+}
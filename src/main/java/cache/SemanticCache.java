@@ -0,0 +1,184 @@
+package cache;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import store.VectorKernels;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache sémantique de réponses : une question dont l'embedding est assez proche (cosinus) d'une
+ * question déjà posée récupère la réponse mémorisée.
+ * <p>
+ * Les entrées expirent après un TTL, et tout le cache est vidé dès que la version de l'index
+ * documentaire change (par exemple {@code store::generation}).
+ */
+public class SemanticCache {
+
+    private record Entry(float[] vector, String answer, Instant expiresAt) {
+    }
+
+    public record Stats(long hits, long misses, long invalidations, int size) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "cache sémantique : %d hits, %d misses, %d invalidations, %d entrées",
+                    hits, misses, invalidations, size);
+        }
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final double minSimilarity;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final LongSupplier indexVersion;
+    private final Clock clock;
+
+    // Ordre d'insertion : la première entrée est la plus ancienne
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long knownVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private SemanticCache(Builder builder) {
+        this.embeddingModel = Objects.requireNonNull(builder.embeddingModel, "embeddingModel");
+        this.minSimilarity = builder.minSimilarity;
+        this.ttl = builder.ttl;
+        this.maxEntries = builder.maxEntries;
+        this.indexVersion = builder.indexVersion;
+        this.clock = builder.clock;
+        this.knownVersion = indexVersion.getAsLong();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Optional<String> lookup(String question) {
+        float[] query = embed(question);
+        Instant now = clock.instant();
+
+        synchronized (entries) {
+            checkVersion();
+            Entry best = null;
+            float bestSimilarity = -1f;
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (!entry.expiresAt().isAfter(now)) {
+                    it.remove();
+                    continue;
+                }
+                float similarity = VectorKernels.dot(query, entry.vector(), 0, query.length);
+                if (similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = entry;
+                }
+            }
+            if (best != null && bestSimilarity >= minSimilarity) {
+                hits.increment();
+                return Optional.of(best.answer());
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String question, String answer) {
+        Entry entry = new Entry(embed(question), answer, clock.instant().plus(ttl));
+        synchronized (entries) {
+            checkVersion();
+            entries.remove(question);
+            entries.put(question, entry);
+            while (entries.size() > maxEntries) {
+                Iterator<String> oldest = entries.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+            invalidations.increment();
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.sum(), misses.sum(), invalidations.sum(), entries.size());
+        }
+    }
+
+    private void checkVersion() {
+        long version = indexVersion.getAsLong();
+        if (version != knownVersion) {
+            knownVersion = version;
+            entries.clear();
+            invalidations.increment();
+        }
+    }
+
+    private float[] embed(String question) {
+        return VectorKernels.normalized(embeddingModel.embed(question).content().vector());
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private double minSimilarity = 0.95;
+        private Duration ttl = Duration.ofHours(1);
+        private int maxEntries = 1_000;
+        private LongSupplier indexVersion = () -> 0L;
+        private Clock clock = Clock.systemUTC();
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Similarité cosinus minimale entre deux questions pour réutiliser la réponse.
+         */
+        public Builder minSimilarity(double minSimilarity) {
+            this.minSimilarity = minSimilarity;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries doit être > 0");
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder indexVersion(LongSupplier indexVersion) {
+            this.indexVersion = indexVersion;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public SemanticCache build() {
+            return new SemanticCache(this);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Décorateur d'EmbeddingModel avec cache LRU borné, indexé sur le texte normalisé de la requête.
+ * <p>
+ * MiniLM est un modèle « uncased » : la casse, les espaces superflus et la forme Unicode n'ont pas
+ * d'influence sur l'embedding, on peut donc les normaliser dans la clé.
+ * <p>
+ * Le cache ne sert que les questions ({@link #forQueries}), qui reviennent d'une conversation et
+ * d'un utilisateur à l'autre. L'ingestion garde le modèle brut : chaque segment n'est embeddé
+ * qu'une fois, il ne ferait que chasser les questions du cache.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "cache embeddings : %d hits, %d misses, %d évictions, %d entrées (%.1f %%)",
+                    hits, misses, evictions, size, hitRate() * 100);
+        }
+    }
+
+    private final EmbeddingModel delegate;
+    private final Map<String, Embedding> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries doit être > 0");
+        this.delegate = delegate;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Embedding> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Modèle pour les questions des retrievers et routeurs, devant le modèle de l'ingestion.
+     */
+    public static CachingEmbeddingModel forQueries(EmbeddingModel embeddingModel) {
+        return new CachingEmbeddingModel(embeddingModel, 1_000);
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return embed(TextSegment.from(text));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return Response.from(embedAll(List.of(textSegment)).content().get(0));
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        List<Embedding> result = new ArrayList<>(textSegments.size());
+        List<String> keys = new ArrayList<>(textSegments.size());
+
+        // Textes absents du cache, dédoublonnés, calculés en un seul appel au modèle
+        Map<String, TextSegment> missing = new LinkedHashMap<>();
+        synchronized (cache) {
+            for (TextSegment segment : textSegments) {
+                String key = normalizedKey(segment.text());
+                keys.add(key);
+                Embedding cached = cache.get(key);
+                result.add(cached);
+                if (cached != null) {
+                    hits.increment();
+                } else if (missing.putIfAbsent(key, segment) == null) {
+                    misses.increment();
+                } else {
+                    hits.increment();
+                }
+            }
+        }
+        if (missing.isEmpty()) return Response.from(result);
+
+        // Un seul texte manquant (une question) : embed(), qu'un délégué comme
+        // MicroBatchingEmbeddingModel peut regrouper avec les questions d'autres appelants
+        List<Embedding> computed = missing.size() == 1
+                ? List.of(delegate.embed(missing.values().iterator().next()).content())
+                : delegate.embedAll(new ArrayList<>(missing.values())).content();
+        Map<String, Embedding> byKey = new LinkedHashMap<>();
+        int i = 0;
+        for (String key : missing.keySet()) byKey.put(key, computed.get(i++));
+
+        synchronized (cache) {
+            cache.putAll(byKey);
+        }
+        for (int j = 0; j < result.size(); j++) {
+            if (result.get(j) == null) result.set(j, byKey.get(keys.get(j)));
+        }
+        return Response.from(result);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    public Stats stats() {
+        synchronized (cache) {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), cache.size());
+        }
+    }
+
+    /**
+     * Clé de cache : texte NFKC, espaces réduits, en minuscules.
+     */
+    public static String normalizedKey(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return normalized.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,91 @@
+package embedding;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Débit d'embedding (segments/s) sur les PDF embarqués : AllMiniLmL6V2EmbeddingModel tel qu'utilisé
+ * dans les main, puis {@link PooledOnnxEmbeddingModel} avec 1, 2, 4... sessions jusqu'au nombre de
+ * cœurs, et une seule session à N threads intra-op pour comparaison.
+ * <p>
+ * Usage : {@code EmbeddingThroughputReport [répertoire des PDF] [répétitions]}. La similarité
+ * cosinus minimale avec les vecteurs de référence vérifie que les résultats sont inchangés (à peine
+ * moins de 1 sur les URL : la référence ré-encode le texte reconstitué à partir des tokens).
+ */
+public class EmbeddingThroughputReport {
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "src/main/resources");
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        List<TextSegment> segments = new ArrayList<>();
+        for (Document document : FileSystemDocumentLoader.loadDocuments(directory, new ApacheTikaDocumentParser())) {
+            segments.addAll(DocumentSplitters.recursive(300, 30).split(document));
+        }
+        System.out.printf(Locale.ROOT, "%d segments, %d cœurs, %d répétitions%n", segments.size(), cores, repetitions);
+        System.out.printf(Locale.ROOT, "%-28s %12s %9s %12s%n", "modèle", "segments/s", "speedup", "cosinus min");
+
+        EmbeddingModel baseline = new AllMiniLmL6V2EmbeddingModel();
+        List<Embedding> reference = baseline.embedAll(segments).content();
+        double baselineRate = rate(baseline, segments, repetitions);
+        System.out.printf(Locale.ROOT, "%-28s %12.1f %8.2fx %12s%n", "AllMiniLmL6V2 (référence)", baselineRate, 1.0, "-");
+
+        Map<String, PooledOnnxEmbeddingModel.Builder> configurations = new LinkedHashMap<>();
+        for (int sessions = 1; sessions < cores; sessions *= 2) {
+            configurations.put("pool " + sessions + " x 1 thread", PooledOnnxEmbeddingModel.allMiniLmL6V2().sessions(sessions));
+        }
+        configurations.put("pool " + cores + " x 1 thread", PooledOnnxEmbeddingModel.allMiniLmL6V2().sessions(cores));
+        if (cores > 1) {
+            configurations.put("pool 1 x " + cores + " threads",
+                    PooledOnnxEmbeddingModel.allMiniLmL6V2().sessions(1).intraOpThreads(cores));
+        }
+
+        for (Map.Entry<String, PooledOnnxEmbeddingModel.Builder> configuration : configurations.entrySet()) {
+            try (PooledOnnxEmbeddingModel model = configuration.getValue().tokenizerThreads(Math.max(1, cores / 4)).build()) {
+                double similarity = minSimilarity(reference, model.embedAll(segments).content());
+                double modelRate = rate(model, segments, repetitions);
+                System.out.printf(Locale.ROOT, "%-28s %12.1f %8.2fx %12.6f%n",
+                        configuration.getKey(), modelRate, modelRate / baselineRate, similarity);
+            }
+        }
+    }
+
+    // Meilleur débit sur plusieurs passes, après la passe de chauffe faite par l'appelant
+    private static double rate(EmbeddingModel model, List<TextSegment> segments, int repetitions) {
+        double best = 0;
+        for (int i = 0; i < repetitions; i++) {
+            long start = System.nanoTime();
+            model.embedAll(segments);
+            best = Math.max(best, segments.size() / ((System.nanoTime() - start) / 1e9));
+        }
+        return best;
+    }
+
+    // Vecteurs normalisés : le produit scalaire est la similarité cosinus
+    private static double minSimilarity(List<Embedding> expected, List<Embedding> actual) {
+        double min = 1;
+        for (int i = 0; i < expected.size(); i++) {
+            float[] a = expected.get(i).vector();
+            float[] b = actual.get(i).vector();
+            double dot = 0;
+            for (int d = 0; d < a.length; d++) dot += a[d] * b[d];
+            min = Math.min(min, dot);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,218 @@
+package embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Regroupe les appels concurrents à {@code embed(texte)} en un seul {@code embedAll} : MiniLM
+ * (ONNX) amortit bien mieux un lot de 16 questions que 16 appels séparés.
+ * <p>
+ * Un thread de dispatch prend la première requête en attente puis complète le lot jusqu'à
+ * {@code maxBatchSize} requêtes ou {@code maxWait} écoulé ; chaque appelant reçoit son propre
+ * embedding (ou l'exception du lot). Les appels {@code embedAll} déjà groupés passent directement.
+ * <p>
+ * Un appelant n'attend jamais plus de {@code timeout} ; après {@link #close()}, les requêtes en
+ * file et les nouvelles requêtes échouent aussitôt.
+ */
+public class MicroBatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private record Pending(TextSegment segment, CompletableFuture<Embedding> result, long enqueuedNanos) {
+    }
+
+    public record Stats(long requests, long batches, double meanBatchSize, int maxBatchSize,
+                        LatencyHistogram queueWait) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "micro-batching : %d requêtes en %d lots (moy. %.1f, max %d), attente file %s",
+                    requests, batches, meanBatchSize, maxBatchSize, queueWait);
+        }
+    }
+
+    private final EmbeddingModel delegate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    private MicroBatchingEmbeddingModel(Builder builder) {
+        this.delegate = Objects.requireNonNull(builder.delegate, "delegate");
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.timeoutNanos = builder.timeout.toNanos();
+        this.dispatcher = new Thread(this::dispatch, "embedding-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return embed(TextSegment.from(text));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        if (closed) throw new IllegalStateException("MicroBatchingEmbeddingModel fermé");
+        CompletableFuture<Embedding> result = new CompletableFuture<>();
+        Pending pending = new Pending(textSegment, result, System.nanoTime());
+        queue.add(pending);
+        // close() a pu vider la file entre le test ci-dessus et l'ajout : plus personne ne la lirait
+        if (closed) failPending();
+        try {
+            return Response.from(result.get(timeoutNanos, TimeUnit.NANOSECONDS));
+        } catch (InterruptedException e) {
+            queue.remove(pending);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Embedding interrompu", e);
+        } catch (TimeoutException e) {
+            queue.remove(pending);
+            throw new IllegalStateException("Embedding non obtenu en " + Duration.ofNanos(timeoutNanos).toMillis() + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    public Stats stats() {
+        long batchCount = batches.sum();
+        long requestCount = requests.sum();
+        return new Stats(requestCount, batchCount, batchCount == 0 ? 0 : (double) requestCount / batchCount,
+                largestBatch.get(), queueWait);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        failPending();
+    }
+
+    private void failPending() {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("MicroBatchingEmbeddingModel fermé"));
+        }
+    }
+
+    private void dispatch() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Ce qui est déjà en file part sans attendre ; sinon on attend jusqu'à l'échéance
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) continue;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                batch.forEach(p -> p.result().completeExceptionally(new IllegalStateException("MicroBatchingEmbeddingModel fermé")));
+                return;
+            }
+            run(batch);
+            batch.clear();
+        }
+    }
+
+    private void run(List<Pending> batch) {
+        long now = System.nanoTime();
+        List<TextSegment> segments = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            queueWait.recordNanos(now - pending.enqueuedNanos());
+            segments.add(pending.segment());
+        }
+        requests.add(batch.size());
+        batches.increment();
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+
+        try {
+            List<Embedding> embeddings = delegate.embedAll(segments).content();
+            for (int i = 0; i < batch.size(); i++) batch.get(i).result().complete(embeddings.get(i));
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel delegate;
+        private int maxBatchSize = 32;
+        private Duration maxWait = Duration.ofMillis(2);
+        private Duration timeout = Duration.ofSeconds(30);
+
+        public Builder delegate(EmbeddingModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize doit être > 0");
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Attente maximale pour compléter un lot après la première requête ; c'est la latence
+         * ajoutée à une question isolée.
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * Attente maximale d'un appelant, file et calcul du lot compris.
+         */
+        public Builder timeout(Duration timeout) {
+            if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("timeout doit être > 0");
+            this.timeout = timeout;
+            return this;
+        }
+
+        public MicroBatchingEmbeddingModel build() {
+            return new MicroBatchingEmbeddingModel(this);
+        }
+    }
+}
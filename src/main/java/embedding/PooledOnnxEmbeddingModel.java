@@ -0,0 +1,420 @@
+package embedding;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Modèle d'embedding ONNX (encodeur BERT, mean pooling, vecteurs normalisés) servi par un pool de
+ * sessions, pour que {@code embedAll} occupe tous les cœurs.
+ * <p>
+ * {@code AllMiniLmL6V2EmbeddingModel} partage une seule session et fait une inférence par segment.
+ * Ici les segments sont triés par longueur puis regroupés en lots (peu de padding), chaque lot est
+ * tokenisé sur un pool dédié, en avance sur l'inférence, puis passé à la première session libre.
+ * Un {@code embedAll} d'un seul lot est traité directement dans le thread appelant.
+ * <p>
+ * Threads ONNX réglables par session : {@code intraOpThreads} (parallélisme dans un opérateur) et
+ * {@code interOpThreads} (opérateurs indépendants en parallèle). En général, plusieurs sessions à
+ * 1 thread passent mieux à l'échelle qu'une session à N threads pour des lots de petits segments.
+ * <p>
+ * Mêmes vecteurs que {@code AllMiniLmL6V2EmbeddingModel} (à l'arrondi près) avec
+ * {@link #allMiniLmL6V2()} : un index existant reste valable. Seule exception, les textes dont la
+ * tokenisation ne survit pas à un aller-retour (URL...) : le modèle de LangChain4j ré-encode le texte
+ * reconstitué à partir des tokens, celui-ci encode le texte d'origine. Un texte plus long que le modèle ne
+ * l'accepte est délégué au modèle de repli, qui le découpe.
+ */
+public class PooledOnnxEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final String MINILM_MODEL = "/all-minilm-l6-v2.onnx";
+    private static final String MINILM_TOKENIZER = "/all-minilm-l6-v2-tokenizer.json";
+
+    // Lot tokenisé : positions des segments dans la requête et tenseurs d'entrée
+    private record Batch(int[] positions, long[][] ids, long[][] mask, long[][] types, int tokens) {
+    }
+
+    // Vecteurs d'un lot, dans l'ordre de ses positions
+    private record Result(int[] positions, float[][] vectors, int tokens) {
+    }
+
+    private final OrtEnvironment environment;
+    private final BlockingQueue<OrtSession> sessions;
+    private final List<OrtSession> allSessions;
+    private final Set<String> inputs;
+    private final HuggingFaceTokenizer tokenizer;
+    private final int maxTokens;
+    private final int batchSize;
+    private final ExecutorService tokenizers;
+    private final ExecutorService inference;
+    private final Supplier<EmbeddingModel> fallbackFactory;
+    private volatile EmbeddingModel fallback;
+
+    private PooledOnnxEmbeddingModel(Builder builder) {
+        Objects.requireNonNull(builder.model, "model");
+        Objects.requireNonNull(builder.tokenizer, "tokenizer");
+        this.maxTokens = builder.maxTokens;
+        this.batchSize = builder.batchSize;
+        this.fallbackFactory = builder.fallback;
+
+        try {
+            byte[] model;
+            try (InputStream in = builder.model.get()) {
+                model = in.readAllBytes();
+            }
+            try (InputStream in = builder.tokenizer.get()) {
+                this.tokenizer = HuggingFaceTokenizer.newInstance(in, Map.of("padding", "false", "truncation", "false"));
+            }
+
+            this.environment = OrtEnvironment.getEnvironment();
+            this.allSessions = new ArrayList<>(builder.sessions);
+            try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+                options.setIntraOpNumThreads(builder.intraOpThreads);
+                options.setInterOpNumThreads(builder.interOpThreads);
+                options.setExecutionMode(builder.interOpThreads > 1
+                        ? OrtSession.SessionOptions.ExecutionMode.PARALLEL
+                        : OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+                options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+                for (int i = 0; i < builder.sessions; i++) allSessions.add(environment.createSession(model, options));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Modèle ONNX illisible", e);
+        } catch (OrtException e) {
+            throw new IllegalStateException("Session ONNX impossible à créer", e);
+        }
+        this.sessions = new ArrayBlockingQueue<>(allSessions.size(), false, allSessions);
+        this.inputs = allSessions.getFirst().getInputNames();
+        this.tokenizers = newPool("embedding-tokenizer", builder.tokenizerThreads);
+        this.inference = newPool("embedding-session", builder.sessions);
+    }
+
+    /**
+     * Modèle all-MiniLM-L6-v2 embarqué par {@code langchain4j-embeddings-all-minilm-l6-v2}.
+     */
+    public static Builder allMiniLmL6V2() {
+        return new Builder()
+                .model(() -> resource(MINILM_MODEL))
+                .tokenizer(() -> resource(MINILM_TOKENIZER))
+                .fallback(AllMiniLmL6V2EmbeddingModel::new);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        if (segments.isEmpty()) return Response.from(List.of());
+
+        // Tri par longueur : des lots homogènes, donc peu de padding
+        Integer[] order = new Integer[segments.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> segments.get(i).text().length()));
+
+        Embedding[] embeddings = new Embedding[segments.size()];
+        int tokens = 0;
+        if (segments.size() <= batchSize) {
+            tokens = store(embeddings, infer(tokenize(segments, order, 0, order.length), segments));
+        } else {
+            List<CompletableFuture<Integer>> batches = new ArrayList<>();
+            for (int from = 0; from < order.length; from += batchSize) {
+                int start = from;
+                int end = Math.min(from + batchSize, order.length);
+                batches.add(CompletableFuture
+                        .supplyAsync(() -> tokenize(segments, order, start, end), tokenizers)
+                        .thenApplyAsync(batch -> store(embeddings, infer(batch, segments)), inference));
+            }
+            try {
+                for (CompletableFuture<Integer> batch : batches) tokens += batch.join();
+            } catch (CompletionException e) {
+                batches.forEach(batch -> batch.cancel(true));
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+        return Response.from(Arrays.asList(embeddings), new TokenUsage(tokens));
+    }
+
+    @Override
+    public void close() throws OrtException {
+        tokenizers.shutdownNow();
+        inference.shutdownNow();
+        for (OrtSession session : allSessions) session.close();
+        tokenizer.close();
+    }
+
+    private Batch tokenize(List<TextSegment> segments, Integer[] order, int from, int to) {
+        List<Integer> positions = new ArrayList<>(to - from);
+        List<Encoding> encodings = new ArrayList<>(to - from);
+        int longest = 0;
+        for (int i = from; i < to; i++) {
+            Encoding encoding = tokenizer.encode(segments.get(order[i]).text(), true, false);
+            if (encoding.getIds().length > maxTokens) {
+                // Trop long pour une seule passe : traité à part (position négative)
+                positions.add(-order[i] - 1);
+                continue;
+            }
+            positions.add(order[i]);
+            encodings.add(encoding);
+            longest = Math.max(longest, encoding.getIds().length);
+        }
+
+        long[][] ids = new long[encodings.size()][longest];
+        long[][] mask = new long[encodings.size()][longest];
+        long[][] types = new long[encodings.size()][longest];
+        int tokens = 0;
+        for (int i = 0; i < encodings.size(); i++) {
+            Encoding encoding = encodings.get(i);
+            long[] encodingIds = encoding.getIds();
+            System.arraycopy(encodingIds, 0, ids[i], 0, encodingIds.length);
+            System.arraycopy(encoding.getAttentionMask(), 0, mask[i], 0, encodingIds.length);
+            System.arraycopy(encoding.getTypeIds(), 0, types[i], 0, encodingIds.length);
+            // Décompte sans [CLS] ni [SEP], comme AllMiniLmL6V2EmbeddingModel
+            tokens += encodingIds.length - 2;
+        }
+        return new Batch(positions.stream().mapToInt(Integer::intValue).toArray(), ids, mask, types, tokens);
+    }
+
+    private Result infer(Batch batch, List<TextSegment> segments) {
+        float[][] vectors = new float[batch.positions().length][];
+        int tokens = batch.tokens();
+
+        if (batch.ids().length > 0) {
+            float[][] pooled = run(batch);
+            int row = 0;
+            for (int i = 0; i < vectors.length; i++) {
+                if (batch.positions()[i] >= 0) vectors[i] = pooled[row++];
+            }
+        }
+        for (int i = 0; i < vectors.length; i++) {
+            if (batch.positions()[i] >= 0) continue;
+            Response<Embedding> response = fallback().embed(segments.get(-batch.positions()[i] - 1));
+            vectors[i] = response.content().vector();
+            if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+                tokens += response.tokenUsage().inputTokenCount();
+            }
+        }
+        return new Result(batch.positions(), vectors, tokens);
+    }
+
+    private float[][] run(Batch batch) {
+        OrtSession session;
+        try {
+            session = sessions.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attente d'une session ONNX interrompue", e);
+        }
+
+        Map<String, OnnxTensor> tensors = new HashMap<>();
+        try {
+            tensors.put("input_ids", OnnxTensor.createTensor(environment, batch.ids()));
+            tensors.put("attention_mask", OnnxTensor.createTensor(environment, batch.mask()));
+            if (inputs.contains("token_type_ids")) {
+                tensors.put("token_type_ids", OnnxTensor.createTensor(environment, batch.types()));
+            }
+            try (OrtSession.Result result = session.run(tensors)) {
+                OnnxTensor hidden = (OnnxTensor) result.get(0);
+                long[] shape = hidden.getInfo().getShape();
+                return meanPool(hidden.getFloatBuffer(), (int) shape[1], (int) shape[2], batch.mask());
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Inférence ONNX impossible", e);
+        } finally {
+            tensors.values().forEach(OnnxTensor::close);
+            sessions.add(session);
+        }
+    }
+
+    // Moyenne des états cachés des tokens réels (hors padding), puis normalisation L2. Lecture
+    // directe du tampon de sortie [lot, tokens, dimension], sans passer par float[][][]
+    private static float[][] meanPool(FloatBuffer hidden, int length, int dimension, long[][] mask) {
+        float[][] pooled = new float[mask.length][];
+        for (int b = 0; b < mask.length; b++) {
+            float[] sum = new float[dimension];
+            int count = 0;
+            for (int t = 0; t < length; t++) {
+                if (mask[b][t] == 0) continue;
+                int offset = (b * length + t) * dimension;
+                for (int d = 0; d < dimension; d++) sum[d] += hidden.get(offset + d);
+                count++;
+            }
+            double norm = 0;
+            for (int d = 0; d < dimension; d++) {
+                sum[d] /= count;
+                norm += sum[d] * sum[d];
+            }
+            float inverse = (float) (1 / Math.sqrt(norm));
+            for (int d = 0; d < dimension; d++) sum[d] *= inverse;
+            pooled[b] = sum;
+        }
+        return pooled;
+    }
+
+    private static int store(Embedding[] embeddings, Result result) {
+        for (int i = 0; i < result.positions().length; i++) {
+            int position = result.positions()[i];
+            embeddings[position >= 0 ? position : -position - 1] = Embedding.from(result.vectors()[i]);
+        }
+        return result.tokens();
+    }
+
+    private EmbeddingModel fallback() {
+        EmbeddingModel model = fallback;
+        if (model == null) {
+            synchronized (this) {
+                if (fallback == null) {
+                    if (fallbackFactory == null) {
+                        throw new IllegalArgumentException("Texte plus long que " + maxTokens + " tokens et aucun modèle de repli");
+                    }
+                    fallback = fallbackFactory.get();
+                }
+                model = fallback;
+            }
+        }
+        return model;
+    }
+
+    private static InputStream resource(String name) {
+        return Objects.requireNonNull(AllMiniLmL6V2EmbeddingModel.class.getResourceAsStream(name), name);
+    }
+
+    private static ExecutorService newPool(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static class Builder {
+
+        private Supplier<InputStream> model;
+        private Supplier<InputStream> tokenizer;
+        private Supplier<EmbeddingModel> fallback;
+        private int sessions;
+        private int intraOpThreads = 1;
+        private int interOpThreads = 1;
+        private int tokenizerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        private int batchSize = 1;
+        private int maxTokens = 512;
+
+        public Builder model(Path model) {
+            return model(() -> open(model));
+        }
+
+        public Builder model(Supplier<InputStream> model) {
+            this.model = model;
+            return this;
+        }
+
+        public Builder tokenizer(Path tokenizer) {
+            return tokenizer(() -> open(tokenizer));
+        }
+
+        public Builder tokenizer(Supplier<InputStream> tokenizer) {
+            this.tokenizer = tokenizer;
+            return this;
+        }
+
+        /**
+         * Modèle pour les textes trop longs, créé au premier besoin.
+         */
+        public Builder fallback(Supplier<EmbeddingModel> fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Nombre de sessions ONNX (et de lots inférés en parallèle) ; par défaut autant que de
+         * cœurs divisés par {@code intraOpThreads}.
+         */
+        public Builder sessions(int sessions) {
+            if (sessions <= 0) throw new IllegalArgumentException("sessions doit être > 0");
+            this.sessions = sessions;
+            return this;
+        }
+
+        public Builder intraOpThreads(int intraOpThreads) {
+            if (intraOpThreads <= 0) throw new IllegalArgumentException("intraOpThreads doit être > 0");
+            this.intraOpThreads = intraOpThreads;
+            return this;
+        }
+
+        public Builder interOpThreads(int interOpThreads) {
+            if (interOpThreads <= 0) throw new IllegalArgumentException("interOpThreads doit être > 0");
+            this.interOpThreads = interOpThreads;
+            return this;
+        }
+
+        public Builder tokenizerThreads(int tokenizerThreads) {
+            if (tokenizerThreads <= 0) throw new IllegalArgumentException("tokenizerThreads doit être > 0");
+            this.tokenizerThreads = tokenizerThreads;
+            return this;
+        }
+
+        /**
+         * Segments par inférence. Par défaut 1 : sur CPU, le padding d'un lot coûte plus que ce
+         * que le regroupement fait gagner (mesuré avec all-MiniLM-L6-v2 sur des segments de 300
+         * caractères) ; le parallélisme vient alors des sessions.
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("batchSize doit être > 0");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Longueur maximale d'entrée du modèle, tokens spéciaux compris (512 pour BERT).
+         */
+        public Builder maxTokens(int maxTokens) {
+            if (maxTokens <= 0) throw new IllegalArgumentException("maxTokens doit être > 0");
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        public PooledOnnxEmbeddingModel build() {
+            if (sessions == 0) sessions = Math.max(1, Runtime.getRuntime().availableProcessors() / intraOpThreads);
+            return new PooledOnnxEmbeddingModel(this);
+        }
+
+        private static InputStream open(Path file) {
+            try {
+                return Files.newInputStream(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package eval;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Question de référence sur un document : elle est résolue par un segment qui contient le
+ * passage attendu. Comparaison sans casse et sans différence d'espaces ni d'apostrophes, pour ne
+ * pas dépendre du découpage des lignes par le parser.
+ * <p>
+ * Ressource {@code eval/questions.tsv} : une question par ligne, fichier, question et passage
+ * séparés par des tabulations ; les lignes en {@code #} sont des commentaires.
+ */
+public record LabelledQuestion(String fileName, String question, String expected) {
+
+    public static final String DEFAULT_RESOURCE = "eval/questions.tsv";
+
+    /**
+     * Questions de la ressource {@link #DEFAULT_RESOURCE}.
+     */
+    public static List<LabelledQuestion> load() throws IOException {
+        try (InputStream in = LabelledQuestion.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) throw new IOException("Ressource introuvable : " + DEFAULT_RESOURCE);
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList(), DEFAULT_RESOURCE);
+        }
+    }
+
+    public static List<LabelledQuestion> load(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8), file.toString());
+    }
+
+    private static List<LabelledQuestion> parse(List<String> lines, String source) throws IOException {
+        List<LabelledQuestion> questions = new ArrayList<>();
+        for (String line : lines) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] fields = line.split("\t");
+            if (fields.length != 3) throw new IOException("Ligne invalide dans " + source + " : " + line);
+            questions.add(new LabelledQuestion(fields[0].strip(), fields[1].strip(), fields[2].strip()));
+        }
+        return questions;
+    }
+
+    /**
+     * Vrai si le texte contient le passage attendu.
+     */
+    public boolean answeredBy(String text) {
+        return normalize(text).contains(normalize(expected));
+    }
+
+    private static String normalize(String text) {
+        return text.replace('’', '\'').replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,55 @@
+package ingestion;
+
+import dev.langchain4j.data.document.DocumentParser;
+import dev.langchain4j.data.document.DocumentSplitter;
+
+import java.util.function.Supplier;
+
+/**
+ * Parser et splitter d'un builder d'ingestion ({@link IngestionPipeline.Builder},
+ * {@link IncrementalIndexer.Builder}).
+ * <p>
+ * {@code name} désigne la configuration tant qu'elle vient d'une {@link ChunkingStrategy} (ou du
+ * découpage par défaut) ; remplacer le parser ou le splitter à la main la rend anonyme, et les
+ * instantanés ne peuvent plus la reconnaître. {@code strategy} n'est renseignée que pour une
+ * stratégie choisie explicitement : elle entre alors dans l'empreinte des documents indexés.
+ */
+record ChunkingConfiguration(Supplier<DocumentParser> parserFactory, DocumentSplitter splitter, String name,
+                             ChunkingStrategy strategy) {
+
+    // Tika + DocumentSplitters.recursive(300, 30), empreinte des documents inchangée
+    static final ChunkingConfiguration DEFAULT = new ChunkingConfiguration(
+            ChunkingStrategy.DEFAULT.parserFactory(), ChunkingStrategy.DEFAULT.splitter(), ChunkingStrategy.DEFAULT.name(), null);
+
+    static ChunkingConfiguration of(ChunkingStrategy strategy) {
+        return new ChunkingConfiguration(strategy.parserFactory(), strategy.splitter(), strategy.name(), strategy);
+    }
+
+    ChunkingConfiguration withParserFactory(Supplier<DocumentParser> parserFactory) {
+        return new ChunkingConfiguration(parserFactory, splitter, null, null);
+    }
+
+    ChunkingConfiguration withSplitter(DocumentSplitter splitter) {
+        return new ChunkingConfiguration(parserFactory, splitter, null, null);
+    }
+
+    /**
+     * Empreinte sous laquelle un fichier est indexé.
+     */
+    String fingerprint(String fileHash) {
+        return strategy == null ? fileHash : strategy.fingerprint(fileHash);
+    }
+
+    /**
+     * Clé des instantanés d'un fichier pour cette configuration.
+     */
+    String snapshotKey(String fileHash) {
+        return DocumentSnapshots.key(fileHash, name);
+    }
+
+    void checkSnapshots(DocumentSnapshots snapshots) {
+        if (snapshots != null && name == null) {
+            throw new IllegalStateException("Instantanés : splitter sans nom de configuration, passer par chunking(...)");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import embedding.PooledOnnxEmbeddingModel;
+import eval.LabelledQuestion;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compare les stratégies de découpage sur les PDF embarqués (rag.pdf, Support.pdf) : nombre et
+ * taille des segments, taille de l'index (vecteurs float + texte), temps de découpage et
+ * d'embedding, temps de recherche et qualité de récupération sur les questions étiquetées
+ * ({@link LabelledQuestion}) : rappel@3 et MRR@10.
+ * <p>
+ * Usage : {@code ChunkingReport [répertoire des PDF] [fichier de questions]}, par défaut
+ * {@code src/main/resources} et {@code src/test/resources/eval/questions.tsv} (ressource de test,
+ * absente du classpath de {@code exec:java}). La colonne « contexte » donne la taille moyenne des
+ * 3 segments retrouvés : des segments plus longs contiennent plus souvent le passage attendu,
+ * mais coûtent plus cher dans le prompt.
+ */
+public class ChunkingReport {
+
+    private static final List<String> FILES = List.of("rag.pdf", "Support.pdf");
+    private static final String QUESTIONS = "src/test/resources/" + LabelledQuestion.DEFAULT_RESOURCE;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "src/main/resources");
+        List<LabelledQuestion> questions = LabelledQuestion.load(Paths.get(args.length > 1 ? args[1] : QUESTIONS));
+
+        try (PooledOnnxEmbeddingModel embeddingModel = PooledOnnxEmbeddingModel.allMiniLmL6V2().build()) {
+            List<Embedding> questionEmbeddings = embeddingModel.embedAll(
+                    questions.stream().map(question -> TextSegment.from(question.question())).toList()).content();
+
+            List<ChunkingStrategy> strategies = List.of(
+                    ChunkingStrategy.fixed(300, 30),
+                    ChunkingStrategy.fixed(800, 80),
+                    ChunkingStrategy.structure(200, 800),
+                    ChunkingStrategy.semantic(embeddingModel, 200, 800));
+
+            System.out.printf(Locale.ROOT, "%s, %d questions%n", String.join(" + ", FILES), questions.size());
+            System.out.printf(Locale.ROOT, "%-22s %9s %8s %9s %9s %9s %8s %9s %7s %9s%n", "stratégie", "segments",
+                    "moy car", "index ko", "split ms", "embed ms", "rech µs", "rappel@3", "MRR@10", "contexte");
+            for (ChunkingStrategy strategy : strategies) {
+                report(strategy, directory, embeddingModel, questions, questionEmbeddings);
+            }
+        }
+    }
+
+    private static void report(ChunkingStrategy strategy, Path directory, EmbeddingModel embeddingModel,
+                               List<LabelledQuestion> questions, List<Embedding> questionEmbeddings) {
+        long start = System.nanoTime();
+        List<TextSegment> segments = new ArrayList<>();
+        for (String file : FILES) {
+            Document document = FileSystemDocumentLoader.loadDocument(directory.resolve(file), strategy.parserFactory().get());
+            segments.addAll(strategy.splitter().split(document));
+        }
+        double splitMillis = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+        double embedMillis = (System.nanoTime() - start) / 1e6;
+
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        store.addAll(embeddings, segments);
+
+        long characters = 0;
+        long bytes = 0;
+        for (TextSegment segment : segments) {
+            characters += segment.text().length();
+            bytes += (long) embeddings.getFirst().dimension() * Float.BYTES + segment.text().getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        // Passe de chauffe : les temps de recherche ne comptent pas la compilation JIT
+        for (Embedding questionEmbedding : questionEmbeddings) {
+            store.search(EmbeddingSearchRequest.builder().queryEmbedding(questionEmbedding).maxResults(10).build());
+        }
+
+        int found = 0;
+        double reciprocalRanks = 0;
+        long contextCharacters = 0;
+        long searchNanos = 0;
+        for (int q = 0; q < questions.size(); q++) {
+            LabelledQuestion question = questions.get(q);
+            long searchStart = System.nanoTime();
+            List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(questionEmbeddings.get(q))
+                    .maxResults(10)
+                    .build()).matches();
+            searchNanos += System.nanoTime() - searchStart;
+
+            for (int rank = 0; rank < Math.min(3, matches.size()); rank++) {
+                contextCharacters += matches.get(rank).embedded().text().length();
+            }
+            // Rang du premier segment pertinent
+            for (int rank = 0; rank < matches.size(); rank++) {
+                TextSegment segment = matches.get(rank).embedded();
+                if (question.fileName().equals(segment.metadata().getString(Document.FILE_NAME))
+                        && question.answeredBy(segment.text())) {
+                    if (rank < 3) found++;
+                    reciprocalRanks += 1.0 / (rank + 1);
+                    break;
+                }
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%-22s %9d %8.0f %9.1f %9.0f %9.0f %8.1f %9.3f %7.3f %9.0f%n",
+                strategy.name(), segments.size(), (double) characters / segments.size(), bytes / 1024.0,
+                splitMillis, embedMillis, searchNanos / 1e3 / questions.size(),
+                (double) found / questions.size(), reciprocalRanks / questions.size(),
+                (double) contextCharacters / questions.size() / 3);
+    }
+}
@@ -0,0 +1,81 @@
+package ingestion;
+
+import dev.langchain4j.data.document.DocumentParser;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import store.ContentHash;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Stratégie de découpage : le parser (qui détermine la structure disponible) et le splitter vont
+ * ensemble. Se branche sur {@link IngestionPipeline.Builder#chunking} et
+ * {@link IncrementalIndexer.Builder#chunking}.
+ * <p>
+ * Le {@code name} décrit la configuration ; il entre dans l'empreinte des documents indexés, si
+ * bien qu'un changement de stratégie réindexe les documents au lieu de garder les anciens segments.
+ */
+public record ChunkingStrategy(String name, Supplier<DocumentParser> parserFactory, DocumentSplitter splitter) {
+
+    /**
+     * Découpage utilisé quand aucune stratégie n'est choisie : Tika + DocumentSplitters.recursive(300, 30).
+     */
+    public static final ChunkingStrategy DEFAULT = fixed(300, 30);
+
+    public ChunkingStrategy {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(parserFactory, "parserFactory");
+        Objects.requireNonNull(splitter, "splitter");
+    }
+
+    /**
+     * Découpage historique : segments de taille fixe en caractères, avec recouvrement.
+     */
+    public static ChunkingStrategy fixed(int maxSegmentSize, int maxOverlap) {
+        return new ChunkingStrategy("fixed(" + maxSegmentSize + "," + maxOverlap + ")",
+                ApacheTikaDocumentParser::new, DocumentSplitters.recursive(maxSegmentSize, maxOverlap));
+    }
+
+    /**
+     * Sections et paragraphes du document, voir {@link StructureAwareSplitter}.
+     */
+    public static ChunkingStrategy structure(int minSegmentSize, int maxSegmentSize) {
+        return new ChunkingStrategy("structure(" + minSegmentSize + "," + maxSegmentSize + ")",
+                StructuredTikaParser::new, new StructureAwareSplitter(minSegmentSize, maxSegmentSize));
+    }
+
+    /**
+     * Changements de sujet entre phrases voisines, voir {@link SemanticSplitter}.
+     */
+    public static ChunkingStrategy semantic(EmbeddingModel embeddingModel, int minSegmentSize, int maxSegmentSize) {
+        return new ChunkingStrategy("semantic(" + minSegmentSize + "," + maxSegmentSize + ")",
+                StructuredTikaParser::new, SemanticSplitter.builder()
+                .embeddingModel(embeddingModel)
+                .minSegmentSize(minSegmentSize)
+                .maxSegmentSize(maxSegmentSize)
+                .build());
+    }
+
+    /**
+     * Stratégie par nom ({@code fixed}, {@code structure} ou {@code semantic}) avec ses réglages
+     * par défaut, pour un choix par propriété système.
+     */
+    public static ChunkingStrategy named(String name, EmbeddingModel embeddingModel) {
+        return switch (name) {
+            case "fixed" -> fixed(300, 30);
+            case "structure" -> structure(200, 800);
+            case "semantic" -> semantic(embeddingModel, 200, 800);
+            default -> throw new IllegalArgumentException("Stratégie de découpage inconnue : " + name);
+        };
+    }
+
+    /**
+     * Empreinte d'un fichier combinée à la stratégie de découpage.
+     */
+    public String fingerprint(String fileHash) {
+        return ContentHash.of(fileHash + '|' + name);
+    }
+}
@@ -0,0 +1,212 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.apache.tika.parser.AutoDetectParser;
+import store.ContentHash;
+import store.SegmentCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Instantanés binaires des documents parsés et de leurs segments, pour ne repasser ni par Tika ni
+ * par le découpage quand un document doit être ré-embeddé (index supprimé, modèle changé, index
+ * temporaire d'une évaluation...). Indépendant de la persistance des vecteurs.
+ * <p>
+ * Un instantané est identifié par le nom du fichier et une clé ({@link #key}) qui combine
+ * l'empreinte du contenu, la configuration du découpage et la version du code qui parse et
+ * découpe : un fichier modifié, découpé autrement ou passé par un parser ou un découpeur modifié
+ * ne retrouve pas ses anciens segments. Un seul instantané est gardé par fichier.
+ * <p>
+ * La version du code couvre le bytecode des parsers et découpeurs de ce paquetage et les jars
+ * de LangChain4j et de Tika. Un changement ailleurs qui modifie les segments (classe d'un autre
+ * paquetage, classe interne ou lambda compilée à part, fichier de configuration) n'est pas vu :
+ * il faut alors supprimer le répertoire des instantanés.
+ * <p>
+ * Format (big-endian) : magique {@code RAGS}, version, taille du document puis document (texte
+ * et métadonnées, comme un segment), nombre de segments puis segments ({@link SegmentCodec}).
+ * La relecture se fait en mémoire mappée : les chaînes sont décodées directement depuis la
+ * projection du fichier, et le texte du document n'est pas décodé quand seuls les segments
+ * sont demandés.
+ */
+public final class DocumentSnapshots {
+
+    private static final String EXTENSION = ".snap";
+    private static final int MAGIC = 0x52414753;   // « RAGS »
+    private static final int VERSION = 1;
+    // Classes dont le code détermine les segments ; les autres versions viennent des jars
+    private static final List<Class<?>> SEGMENTATION_CODE = List.of(ChunkingStrategy.class,
+            StructuredTikaParser.class, StreamingTikaParser.class, TextBlocks.class,
+            StructureAwareSplitter.class, SemanticSplitter.class, StreamingSplitter.class, SegmentCodec.class);
+    private static final String CODE_VERSION = codeVersion();
+
+    private final Path directory;
+
+    private DocumentSnapshots(Path directory) {
+        this.directory = directory;
+    }
+
+    public static DocumentSnapshots open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new DocumentSnapshots(directory);
+    }
+
+    /**
+     * Clé d'un instantané : empreinte du fichier, nom de la configuration de découpage (celle de
+     * {@link ChunkingStrategy#fingerprint} pour une stratégie nommée) et version du code.
+     */
+    public static String key(String fileHash, String configuration) {
+        return ContentHash.of(fileHash + '|' + configuration + '|' + CODE_VERSION);
+    }
+
+    /**
+     * Segments enregistrés pour ce fichier et cette clé, ou {@code null} s'il n'y en a pas
+     * (ou si l'instantané est illisible ; il sera réécrit).
+     */
+    public List<TextSegment> segments(String fileName, String key) {
+        ByteBuffer in = map(fileName, key);
+        if (in == null) return null;
+        try {
+            int documentLength = in.getInt();
+            in.position(in.position() + documentLength);
+            int count = in.getInt();
+            List<TextSegment> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) segments.add(SegmentCodec.read(in));
+            return segments;
+        } catch (IOException | RuntimeException e) {
+            ignored(fileName, e);
+            return null;
+        }
+    }
+
+    /**
+     * Document parsé enregistré pour ce fichier et cette clé, ou {@code null}.
+     */
+    public Document document(String fileName, String key) {
+        ByteBuffer in = map(fileName, key);
+        if (in == null) return null;
+        try {
+            in.getInt();
+            TextSegment document = SegmentCodec.read(in);
+            return Document.from(document.text(), document.metadata());
+        } catch (IOException | RuntimeException e) {
+            ignored(fileName, e);
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre le document et ses segments, puis supprime les instantanés précédents du fichier.
+     */
+    public void save(String fileName, String key, Document document, List<TextSegment> segments) throws IOException {
+        Path file = file(fileName, key);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        // Document sérialisé à part pour écrire sa taille devant : la lecture des segments le saute
+        ByteArrayOutputStream documentBytes = new ByteArrayOutputStream();
+        SegmentCodec.write(new DataOutputStream(documentBytes), TextSegment.from(document.text(), document.metadata()));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(documentBytes.size());
+            documentBytes.writeTo(out);
+            out.writeInt(segments.size());
+            for (TextSegment segment : segments) SegmentCodec.write(out, segment);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        String prefix = fileName + '.';
+        // Pas de motif glob : le nom du fichier peut contenir des caractères spéciaux
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, path -> {
+            String name = path.getFileName().toString();
+            return name.startsWith(prefix) && name.endsWith(EXTENSION);
+        })) {
+            for (Path old : files) {
+                // « prefix + clé + extension » ; « rag.pdf.old.<clé> » appartient à un autre fichier
+                String name = old.getFileName().toString();
+                String oldKey = name.substring(prefix.length(), name.length() - EXTENSION.length());
+                if (!old.equals(file) && oldKey.indexOf('.') < 0) Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    /**
+     * {@link #save} sans faire échouer l'ingestion, pour qui l'instantané n'est qu'un raccourci :
+     * renvoie l'avertissement à reporter dans son bilan.
+     */
+    public Optional<String> trySave(String fileName, String key, Document document, List<TextSegment> segments) {
+        try {
+            save(fileName, key, document, segments);
+            return Optional.empty();
+        } catch (IOException e) {
+            return Optional.of("Instantané de " + fileName + " non enregistré : " + e.getMessage());
+        }
+    }
+
+    // Projection du fichier positionnée après l'en-tête, ou null si l'instantané n'existe pas
+    private ByteBuffer map(String fileName, String key) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file(fileName, key), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            ignored(fileName, e);
+            return null;
+        }
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("fichier non reconnu");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("version " + version + " non supportée");
+        } catch (IOException | BufferUnderflowException e) {
+            ignored(fileName, e);
+            return null;
+        }
+        return buffer;
+    }
+
+    // Empreinte du bytecode des classes de découpage et emplacement (version) des jars utilisés
+    private static String codeVersion() {
+        StringBuilder version = new StringBuilder();
+        for (Class<?> type : SEGMENTATION_CODE) {
+            try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+                version.append(in == null ? type.getName() : ContentHash.of(in.readAllBytes()));
+            } catch (IOException e) {
+                version.append(type.getName());
+            }
+            version.append('|');
+        }
+        for (Class<?> type : List.of(DocumentSplitters.class, ApacheTikaDocumentParser.class, AutoDetectParser.class)) {
+            CodeSource source = type.getProtectionDomain().getCodeSource();
+            version.append(source == null ? type.getName() : source.getLocation().getPath()).append('|');
+        }
+        return ContentHash.of(version.toString());
+    }
+
+    private Path file(String fileName, String key) {
+        return directory.resolve(fileName + '.' + key + EXTENSION);
+    }
+
+    private void ignored(String fileName, Exception e) {
+        System.err.println("Instantané de " + fileName + " ignoré (" + directory + ") : " + e);
+    }
+}
@@ -0,0 +1,371 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentParser;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import retrieval.Bm25Index;
+import store.ContentHash;
+import store.MappedEmbeddingStore;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Réindexation incrémentale d'un répertoire de documents surveillé par WatchService.
+ * <p>
+ * Un document modifié est re-parsé et re-découpé, puis comparé segment par segment à ce qui est
+ * indexé (empreinte du texte, métadonnée {@value #SEGMENT_HASH}) : seuls les segments nouveaux
+ * ou modifiés sont embeddés. Le store publie le résultat en une fois, les recherches en cours
+ * voient l'ancienne ou la nouvelle version du document, jamais un mélange.
+ * <p>
+ * Avec des {@link Builder#snapshots instantanés}, un document à réindexer dont le contenu et le
+ * découpage sont inchangés (index supprimé, par exemple) reprend ses segments sans Tika.
+ */
+public class IncrementalIndexer implements AutoCloseable {
+
+    public static final String SEGMENT_HASH = "segment_hash";
+
+    /**
+     * Bilan d'une mise à jour ; {@code warnings} : incidents qui ne l'ont pas empêchée (instantané
+     * non enregistré...).
+     */
+    public record Update(String fileName, int embedded, int reused, int removed, long millis, List<String> warnings) {
+
+        @Override
+        public String toString() {
+            String update = String.format(Locale.ROOT, "%s : %d segments embeddés, %d réutilisés, %d supprimés (%d ms)",
+                    fileName, embedded, reused, removed, millis);
+            return warnings.isEmpty() ? update : update + " ; " + String.join(" ; ", warnings);
+        }
+    }
+
+    private final Path directory;
+    private final MappedEmbeddingStore store;
+    private final EmbeddingModel embeddingModel;
+    private final ChunkingConfiguration chunking;
+    private final DocumentParser parser;
+    private final String glob;
+    private final Duration debounce;
+    private final int batchSize;
+    private final Consumer<Update> listener;
+    private final Bm25Index lexicalIndex;
+    private final DocumentSnapshots snapshots;
+
+    private WatchService watcher;
+    private Thread thread;
+
+    private IncrementalIndexer(Builder builder) {
+        this.directory = Objects.requireNonNull(builder.directory, "directory");
+        this.store = Objects.requireNonNull(builder.store, "store");
+        this.embeddingModel = Objects.requireNonNull(builder.embeddingModel, "embeddingModel");
+        this.chunking = builder.chunking;
+        this.parser = chunking.parserFactory().get();
+        this.glob = builder.glob;
+        this.debounce = builder.debounce;
+        this.batchSize = builder.batchSize;
+        this.listener = builder.listener;
+        this.lexicalIndex = builder.lexicalIndex;
+        this.snapshots = builder.snapshots;
+        chunking.checkSnapshots(snapshots);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Synchronise l'index avec le répertoire puis surveille ses modifications en arrière-plan.
+     */
+    public synchronized IncrementalIndexer start() throws IOException {
+        if (thread != null) throw new IllegalStateException("Indexeur déjà démarré");
+        syncAll();
+        watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        thread = new Thread(this::watch, "incremental-indexer");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Indexe les documents nouveaux ou modifiés et retire ceux qui ont disparu du répertoire.
+     * L'index BM25 n'est reconstruit qu'une fois, à la fin.
+     */
+    public synchronized void syncAll() throws IOException {
+        Bm25Index.Batch lexical = lexicalIndex == null ? null : lexicalIndex.batch();
+        try {
+            Set<String> present = new TreeSet<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+                for (Path file : files) {
+                    if (!Files.isRegularFile(file)) continue;
+                    present.add(file.getFileName().toString());
+                    sync(file.getFileName().toString(), lexical);
+                }
+            }
+            for (String fileName : store.indexedDocuments()) {
+                if (!present.contains(fileName)) sync(fileName, lexical);
+            }
+        } finally {
+            // Les documents déjà synchronisés restent cohérents avec le store malgré une erreur
+            if (lexical != null) lexical.publish();
+        }
+    }
+
+    /**
+     * Met un document à jour dans l'index (ou l'en retire s'il n'existe plus).
+     */
+    public synchronized Update sync(String fileName) throws IOException {
+        Bm25Index.Batch lexical = lexicalIndex == null ? null : lexicalIndex.batch();
+        try {
+            return sync(fileName, lexical);
+        } finally {
+            if (lexical != null) lexical.publish();
+        }
+    }
+
+    private Update sync(String fileName, Bm25Index.Batch lexical) throws IOException {
+        long start = System.nanoTime();
+        Path file = directory.resolve(fileName);
+
+        if (!Files.isRegularFile(file)) {
+            int removed = store.documentSegments(fileName).size();
+            if (removed == 0 && !store.indexedDocuments().contains(fileName)) return null;
+            store.removeDocument(fileName);
+            if (lexical != null) lexical.removeDocument(fileName);
+            return notify(new Update(fileName, 0, 0, removed, millisSince(start), List.of()));
+        }
+
+        String fileHash = ContentHash.of(file);
+        String hash = chunking.fingerprint(fileHash);
+        if (store.isIndexed(fileName, hash)) {
+            if (lexical != null && !lexicalIndex.contains(fileName)) {
+                lexical.replaceDocument(fileName, store.documentSegments(fileName).values());
+            }
+            return null;
+        }
+
+        List<String> warnings = new ArrayList<>();
+        String snapshotKey = snapshots == null ? null : chunking.snapshotKey(fileHash);
+        List<TextSegment> segments = snapshotKey == null ? null : snapshots.segments(fileName, snapshotKey);
+        if (segments == null) {
+            Document document = FileSystemDocumentLoader.loadDocument(file, parser);
+            segments = chunking.splitter().split(document);
+            if (snapshotKey != null) snapshots.trySave(fileName, snapshotKey, document, segments).ifPresent(warnings::add);
+        }
+
+        // Identifiants existants par empreinte de texte (un même texte peut apparaître plusieurs fois)
+        Map<String, Deque<String>> existing = new HashMap<>();
+        Map<String, TextSegment> indexed = store.documentSegments(fileName);
+        for (Map.Entry<String, TextSegment> entry : indexed.entrySet()) {
+            String segmentHash = entry.getValue().metadata().getString(SEGMENT_HASH);
+            if (segmentHash != null) existing.computeIfAbsent(segmentHash, h -> new ArrayDeque<>()).add(entry.getKey());
+        }
+
+        List<String> ids = new ArrayList<>(segments.size());
+        List<Embedding> embeddings = new ArrayList<>(segments.size());
+        List<TextSegment> toEmbed = new ArrayList<>();
+        List<Integer> toEmbedPositions = new ArrayList<>();
+        for (TextSegment segment : segments) {
+            String segmentHash = ContentHash.of(segment.text());
+            segment.metadata().put(SEGMENT_HASH, segmentHash);
+
+            Deque<String> candidates = existing.get(segmentHash);
+            String reused = candidates == null ? null : candidates.poll();
+            if (reused != null) {
+                ids.add(reused);
+                embeddings.add(null);
+            } else {
+                toEmbedPositions.add(ids.size());
+                toEmbed.add(segment);
+                ids.add(UUID.randomUUID().toString());
+                embeddings.add(null);
+            }
+        }
+
+        for (int from = 0; from < toEmbed.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, toEmbed.size());
+            List<Embedding> batch = embeddingModel.embedAll(toEmbed.subList(from, to)).content();
+            for (int i = from; i < to; i++) embeddings.set(toEmbedPositions.get(i), batch.get(i - from));
+        }
+
+        store.updateDocument(fileName, hash, ids, embeddings, segments);
+        if (lexical != null) lexical.replaceDocument(fileName, segments);
+        int reused = segments.size() - toEmbed.size();
+        return notify(new Update(fileName, toEmbed.size(), reused, indexed.size() - reused, millisSince(start),
+                List.copyOf(warnings)));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) watcher.close();
+        if (thread != null) thread.interrupt();
+    }
+
+    private void watch() {
+        var matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        Set<String> pending = new TreeSet<>();
+        try {
+            while (true) {
+                // Attente bloquante tant que rien n'est en cours, puis regroupement des événements
+                // jusqu'à un silence de « debounce » (un éditeur écrit souvent en plusieurs fois)
+                WatchKey key = pending.isEmpty()
+                        ? watcher.take()
+                        : watcher.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    for (String fileName : pending) {
+                        try {
+                            sync(fileName);
+                        } catch (IOException | RuntimeException e) {
+                            System.err.println("Réindexation impossible de " + fileName + " : " + e.getMessage());
+                        }
+                    }
+                    pending.clear();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+                            files.forEach(f -> pending.add(f.getFileName().toString()));
+                        }
+                        pending.addAll(store.indexedDocuments());
+                    } else if (event.context() instanceof Path name && matcher.matches(name)) {
+                        pending.add(name.toString());
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // arrêt demandé par close()
+        } catch (IOException e) {
+            System.err.println("Surveillance de " + directory + " interrompue : " + e.getMessage());
+        }
+    }
+
+    private Update notify(Update update) {
+        listener.accept(update);
+        return update;
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public static class Builder {
+
+        private Path directory;
+        private MappedEmbeddingStore store;
+        private EmbeddingModel embeddingModel;
+        private ChunkingConfiguration chunking = ChunkingConfiguration.DEFAULT;
+        private String glob = "*.pdf";
+        private Duration debounce = Duration.ofMillis(500);
+        private int batchSize = 32;
+        private Consumer<Update> listener = update -> System.out.println("[index] " + update);
+        private Bm25Index lexicalIndex;
+        private DocumentSnapshots snapshots;
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder store(MappedEmbeddingStore store) {
+            this.store = store;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder parser(DocumentParser parser) {
+            this.chunking = chunking.withParserFactory(() -> parser);
+            return this;
+        }
+
+        public Builder splitter(DocumentSplitter splitter) {
+            this.chunking = chunking.withSplitter(splitter);
+            return this;
+        }
+
+        /**
+         * Parser et splitter d'une stratégie de découpage ; un document indexé avec une autre
+         * stratégie est réindexé.
+         */
+        public Builder chunking(ChunkingStrategy chunking) {
+            this.chunking = ChunkingConfiguration.of(chunking);
+            return this;
+        }
+
+        /**
+         * Segments enregistrés après découpage et relus tant que le fichier et la configuration
+         * de découpage ne changent pas ; demande le découpage par défaut ou une stratégie nommée.
+         */
+        public Builder snapshots(DocumentSnapshots snapshots) {
+            this.snapshots = snapshots;
+            return this;
+        }
+
+        /**
+         * Fichiers surveillés, motif glob relatif au répertoire (par défaut {@code *.pdf}).
+         */
+        public Builder glob(String glob) {
+            this.glob = glob;
+            return this;
+        }
+
+        public Builder debounce(Duration debounce) {
+            this.debounce = debounce;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("batchSize doit être > 0");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder listener(Consumer<Update> listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Index BM25 tenu à jour en même temps que le store.
+         */
+        public Builder lexicalIndex(Bm25Index lexicalIndex) {
+            this.lexicalIndex = lexicalIndex;
+            return this;
+        }
+
+        public IncrementalIndexer build() {
+            return new IncrementalIndexer(this);
+        }
+    }
+}
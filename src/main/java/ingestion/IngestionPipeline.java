@@ -0,0 +1,553 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentParser;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import retrieval.Bm25Index;
+import store.ContentHash;
+import store.MappedEmbeddingStore;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pipeline d'ingestion partagé : parse (Tika) → split → embed → store.
+ * <p>
+ * Chaque étape possède sa file bornée et son propre nombre de threads, ce qui permet d'avoir
+ * plusieurs documents et plusieurs lots de segments en cours de traitement en même temps.
+ * <p>
+ * En mode {@link Builder#streaming streaming}, le texte n'est jamais matérialisé : le handler SAX
+ * de Tika alimente un découpage incrémental et chaque lot de segments part vers l'embedding dès
+ * qu'il est plein. Les files bornées freinent le parse quand l'embedding ne suit pas, la mémoire
+ * de travail reste de l'ordre de quelques lots quelle que soit la taille du document.
+ * <p>
+ * Avec des {@link Builder#snapshots instantanés}, un document déjà parsé et découpé avec la même
+ * configuration reprend ses segments depuis le disque : seul l'embedding est refait.
+ */
+public class IngestionPipeline {
+
+    private final ChunkingConfiguration chunking;
+    private final EmbeddingModel embeddingModel;
+    private final int parseThreads;
+    private final int splitThreads;
+    private final int embedThreads;
+    private final int storeThreads;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int streamingSegmentSize;
+    private final int streamingOverlap;
+    private final Map<EmbeddingStore<TextSegment>, Bm25Index> lexicalIndexes;
+    private final Function<Path, Map<String, ?>> documentMetadata;
+    private final DocumentSnapshots snapshots;
+
+    private IngestionPipeline(Builder builder) {
+        this.chunking = builder.chunking;
+        this.embeddingModel = Objects.requireNonNull(builder.embeddingModel, "embeddingModel");
+        this.parseThreads = builder.parseThreads;
+        this.splitThreads = builder.splitThreads;
+        this.embedThreads = builder.embedThreads;
+        this.storeThreads = builder.storeThreads;
+        this.queueCapacity = builder.queueCapacity;
+        this.batchSize = builder.batchSize;
+        this.streamingSegmentSize = builder.streamingSegmentSize;
+        this.streamingOverlap = builder.streamingOverlap;
+        this.lexicalIndexes = new IdentityHashMap<>(builder.lexicalIndexes);
+        this.documentMetadata = builder.documentMetadata;
+        this.snapshots = builder.snapshots;
+        if (snapshots != null && streamingSegmentSize > 0) {
+            throw new IllegalStateException("Les instantanés ne s'appliquent pas au mode streaming");
+        }
+        chunking.checkSnapshots(snapshots);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public IngestionReport ingest(EmbeddingStore<TextSegment> store, Path... files) throws Exception {
+        Map<Path, EmbeddingStore<TextSegment>> targets = new LinkedHashMap<>();
+        for (Path file : files) targets.put(file, store);
+        return ingest(targets);
+    }
+
+    /**
+     * Ingère chaque fichier dans le store associé ; bloque jusqu'à la fin de toutes les étapes.
+     */
+    public IngestionReport ingest(Map<Path, ? extends EmbeddingStore<TextSegment>> targets) throws Exception {
+        return new Run().execute(targets);
+    }
+
+    // ---- Éléments circulant entre les étapes ----
+
+    private record Source(Path path, EmbeddingStore<TextSegment> store) {
+    }
+
+    private static final class Job {
+        final Source source;
+        final String fileName;
+        final String hash;
+        Document document;
+        // Métadonnées propres au fichier, ajoutées après le découpage (hors instantané)
+        Map<String, Object> metadata;
+        String snapshotKey;
+        List<TextSegment> restored;
+        List<Batch> batches;
+        final AtomicInteger remaining = new AtomicInteger();
+        // Mode streaming : vecteurs écrits lot par lot, segments gardés seulement pour l'index BM25
+        MappedEmbeddingStore.DocumentWriter writer;
+        List<TextSegment> lexicalSegments;
+
+        Job(Source source, String fileName, String hash) {
+            this.source = source;
+            this.fileName = fileName;
+            this.hash = hash;
+        }
+    }
+
+    private static final class Batch {
+        final Job job;
+        final List<TextSegment> segments;
+        List<Embedding> embeddings;
+
+        Batch(Job job, List<TextSegment> segments) {
+            this.job = job;
+            this.segments = segments;
+        }
+    }
+
+    // ---- Une exécution du pipeline ----
+
+    private final class Run {
+
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final LongAdder segments = new LongAdder();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger restored = new AtomicInteger();
+        private final AtomicInteger indexed = new AtomicInteger();
+        private final Queue<String> warnings = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<DocumentParser> parsers = ThreadLocal.withInitial(chunking.parserFactory());
+        private final ThreadLocal<StreamingTikaParser> streamingParsers = ThreadLocal.withInitial(StreamingTikaParser::new);
+        private final Set<Job> openWriters = ConcurrentHashMap.newKeySet();
+        // Index BM25 reconstruits une seule fois par exécution, et non à chaque document
+        private final Map<EmbeddingStore<TextSegment>, Bm25Index.Batch> lexicalBatches = new IdentityHashMap<>();
+
+        private final Stage<Source> parse = new Stage<>("parse", parseThreads);
+        private final Stage<Job> split = new Stage<>("split", splitThreads);
+        private final Stage<Batch> embed = new Stage<>("embed", embedThreads);
+        private final Stage<Batch> store = new Stage<>("store", storeThreads);
+
+        Run() {
+            lexicalIndexes.forEach((target, lexicalIndex) -> lexicalBatches.put(target, lexicalIndex.batch()));
+        }
+
+        IngestionReport execute(Map<Path, ? extends EmbeddingStore<TextSegment>> targets) throws Exception {
+            store.start(this::store, null);
+            embed.start(this::embed, store);
+            split.start(this::split, embed);
+            parse.start(this::parse, split);
+
+            for (Map.Entry<Path, ? extends EmbeddingStore<TextSegment>> target : targets.entrySet()) {
+                parse.put(new Source(target.getKey(), target.getValue()));
+            }
+            parse.close();
+            store.await();
+
+            // Documents interrompus par une erreur : leurs écritures partielles sont abandonnées
+            openWriters.forEach(job -> job.writer.close());
+            // Y compris après une erreur : les documents déjà écrits dans le store sont aussi cherchables par BM25
+            lexicalBatches.values().forEach(Bm25Index.Batch::publish);
+            Exception error = failure.get();
+            if (error != null) throw error;
+
+            return new IngestionReport(indexed.get(), skipped.get(), restored.get(), segments.sum(),
+                    List.of(parse.report(), split.report(), embed.report(), store.report()), List.copyOf(warnings));
+        }
+
+        private void parse(Source source) throws Exception {
+            Path path = source.path();
+            String fileName = path.getFileName().toString();
+            String fileHash = ContentHash.of(path);
+            String hash = streamingSegmentSize == 0 ? chunking.fingerprint(fileHash) : fileHash;
+
+            if (source.store() instanceof MappedEmbeddingStore mapped && mapped.isIndexed(fileName, hash)) {
+                skipped.incrementAndGet();   // déjà indexé, rien à refaire
+                Bm25Index.Batch lexical = lexicalBatches.get(source.store());
+                if (lexical != null) lexical.replaceDocument(fileName, mapped.documentSegments(fileName).values());
+                return;
+            }
+            Job job = new Job(source, fileName, hash);
+            if (streamingSegmentSize > 0) {
+                stream(job);
+                return;
+            }
+            job.metadata = new HashMap<>(documentMetadata.apply(path));
+            Path directory = path.toAbsolutePath().getParent();
+            if (directory != null) job.metadata.put(Document.ABSOLUTE_DIRECTORY_PATH, directory.toString());
+            if (snapshots != null) {
+                job.snapshotKey = chunking.snapshotKey(fileHash);
+                job.restored = snapshots.segments(fileName, job.snapshotKey);
+                if (job.restored != null) {
+                    restored.incrementAndGet();   // ni Tika ni découpage
+                    split.put(job);
+                    return;
+                }
+            }
+            job.document = FileSystemDocumentLoader.loadDocument(path, parsers.get());
+            split.put(job);
+        }
+
+        // Parse + découpage en un seul passage ; le lot en cours est le seul à ne pas être en file
+        private void stream(Job job) throws Exception {
+            Path path = job.source.path();
+            if (job.source.store() instanceof MappedEmbeddingStore mapped) {
+                job.writer = mapped.writeDocument(job.fileName, job.hash);
+                openWriters.add(job);
+            }
+            if (lexicalIndexes.containsKey(job.source.store()) && job.writer == null) {
+                job.lexicalSegments = Collections.synchronizedList(new ArrayList<>());
+            }
+            // Le parse en cours compte comme un lot : le document ne peut pas être écrit avant sa fin
+            job.remaining.set(1);
+
+            Metadata metadata = Metadata.from(Document.FILE_NAME, job.fileName);
+            Path directory = path.toAbsolutePath().getParent();
+            if (directory != null) metadata.put(Document.ABSOLUTE_DIRECTORY_PATH, directory.toString());
+            metadata.putAll(new HashMap<>(documentMetadata.apply(path)));
+
+            List<TextSegment> current = new ArrayList<>(batchSize);
+            StreamingSplitter splitter = new StreamingSplitter(streamingSegmentSize, streamingOverlap, metadata, segment -> {
+                segment.metadata().put(IncrementalIndexer.SEGMENT_HASH, ContentHash.of(segment.text()));
+                current.add(segment);
+                if (current.size() == batchSize) {
+                    submit(job, List.copyOf(current));
+                    current.clear();
+                }
+            });
+            try (InputStream in = Files.newInputStream(path)) {
+                streamingParsers.get().parse(in, splitter);
+            }
+            if (!current.isEmpty()) submit(job, List.copyOf(current));
+            if (job.remaining.decrementAndGet() == 0) write(job);
+        }
+
+        private void submit(Job job, List<TextSegment> batch) {
+            // Une erreur ailleurs dans le pipeline interrompt le parse au lieu de le laisser finir pour rien
+            if (failure.get() != null) throw new IllegalStateException("Ingestion interrompue", failure.get());
+            segments.add(batch.size());
+            if (job.lexicalSegments != null) job.lexicalSegments.addAll(batch);
+            job.remaining.incrementAndGet();
+            try {
+                embed.put(new Batch(job, batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ingestion interrompue", e);
+            }
+        }
+
+        private void split(Job job) throws Exception {
+            List<TextSegment> all = job.restored;
+            if (all == null) {
+                all = chunking.splitter().split(job.document);
+                // Empreinte par segment : permet à l'IncrementalIndexer de réutiliser ces embeddings
+                for (TextSegment segment : all) {
+                    segment.metadata().put(IncrementalIndexer.SEGMENT_HASH, ContentHash.of(segment.text()));
+                }
+                if (job.snapshotKey != null) {
+                    snapshots.trySave(job.fileName, job.snapshotKey, job.document, all).ifPresent(warnings::add);
+                }
+            }
+            job.document = null;
+            job.restored = null;
+            for (TextSegment segment : all) segment.metadata().putAll(job.metadata);
+            segments.add(all.size());
+
+            List<Batch> batches = new ArrayList<>();
+            for (int from = 0; from < all.size(); from += batchSize) {
+                batches.add(new Batch(job, all.subList(from, Math.min(from + batchSize, all.size()))));
+            }
+            job.batches = batches;
+            job.remaining.set(batches.size());
+
+            if (batches.isEmpty()) {
+                write(job);
+                return;
+            }
+            for (Batch batch : batches) embed.put(batch);
+        }
+
+        private void embed(Batch batch) throws Exception {
+            batch.embeddings = embeddingModel.embedAll(batch.segments).content();
+            store.put(batch);
+        }
+
+        private void store(Batch batch) {
+            Job job = batch.job;
+            if (job.writer != null) {
+                job.writer.add(batch.embeddings, batch.segments);
+            } else if (!(job.source.store() instanceof MappedEmbeddingStore)) {
+                job.source.store().addAll(batch.embeddings, batch.segments);
+            }
+            if (job.remaining.decrementAndGet() == 0) write(job);
+        }
+
+        // Un store persistant remplace le document d'un seul coup, une fois tous ses lots calculés
+        private void write(Job job) {
+            Bm25Index.Batch lexical = lexicalBatches.get(job.source.store());
+            if (job.writer != null) {
+                job.writer.commit();
+                openWriters.remove(job);
+                if (lexical != null) {
+                    MappedEmbeddingStore mapped = (MappedEmbeddingStore) job.source.store();
+                    lexical.replaceDocument(job.fileName, mapped.documentSegments(job.fileName).values());
+                }
+            } else if (job.lexicalSegments != null) {
+                lexical.replaceDocument(job.fileName, job.lexicalSegments);
+            } else if (job.source.store() instanceof MappedEmbeddingStore || lexical != null) {
+                List<TextSegment> segments = new ArrayList<>();
+                List<Embedding> embeddings = new ArrayList<>();
+                for (Batch batch : job.batches) {
+                    segments.addAll(batch.segments);
+                    embeddings.addAll(batch.embeddings);
+                }
+                if (job.source.store() instanceof MappedEmbeddingStore mapped) {
+                    mapped.replaceDocument(job.fileName, job.hash, embeddings, segments);
+                }
+                if (lexical != null) lexical.replaceDocument(job.fileName, segments);
+            }
+            indexed.incrementAndGet();
+        }
+
+        private interface Handler<T> {
+            void handle(T item) throws Exception;
+        }
+
+        private final class Stage<T> {
+
+            private final Object end = new Object();
+            private final String name;
+            private final int threads;
+            private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+            private final AtomicInteger running;
+            private final CountDownLatch done;
+            private final LongAdder items = new LongAdder();
+            private final LongAdder busyNanos = new LongAdder();
+
+            Stage(String name, int threads) {
+                this.name = name;
+                this.threads = threads;
+                this.running = new AtomicInteger(threads);
+                this.done = new CountDownLatch(threads);
+            }
+
+            void start(Handler<T> handler, Stage<?> next) {
+                for (int i = 0; i < threads; i++) {
+                    Thread.ofPlatform().daemon().name("ingest-" + name + "-" + i).start(() -> work(handler, next));
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            private void work(Handler<T> handler, Stage<?> next) {
+                try {
+                    while (true) {
+                        Object item = queue.take();
+                        if (item == end) break;
+                        // Après une erreur on continue de vider la file pour ne pas bloquer l'amont
+                        if (failure.get() != null) continue;
+
+                        long start = System.nanoTime();
+                        try {
+                            handler.handle((T) item);
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                        }
+                        items.increment();
+                        busyNanos.add(System.nanoTime() - start);
+                    }
+                } catch (InterruptedException e) {
+                    failure.compareAndSet(null, e);
+                    Thread.currentThread().interrupt();
+                } finally {
+                    // Le dernier thread de l'étape ferme l'étape suivante
+                    if (running.decrementAndGet() == 0 && next != null) {
+                        try {
+                            next.close();
+                        } catch (InterruptedException e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                    done.countDown();
+                }
+            }
+
+            void put(T item) throws InterruptedException {
+                queue.put(item);
+            }
+
+            void close() throws InterruptedException {
+                for (int i = 0; i < threads; i++) queue.put(end);
+            }
+
+            void await() throws InterruptedException {
+                done.await();
+            }
+
+            // Temps de travail effectif par thread (hors attente sur les files)
+            IngestionReport.StageReport report() {
+                double seconds = busyNanos.sum() / 1e9 / threads;
+                return new IngestionReport.StageReport(name, threads, items.sum(), seconds);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private ChunkingConfiguration chunking = ChunkingConfiguration.DEFAULT;
+        private EmbeddingModel embeddingModel;
+        private int parseThreads = 2;
+        private int splitThreads = 1;
+        private int embedThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int storeThreads = 1;
+        private int queueCapacity = 16;
+        private int batchSize = 32;
+        private int streamingSegmentSize;
+        private int streamingOverlap;
+        private final Map<EmbeddingStore<TextSegment>, Bm25Index> lexicalIndexes = new IdentityHashMap<>();
+        private Function<Path, Map<String, ?>> documentMetadata = path -> Map.of();
+        private DocumentSnapshots snapshots;
+
+        public Builder parserFactory(Supplier<DocumentParser> parserFactory) {
+            this.chunking = chunking.withParserFactory(parserFactory);
+            return this;
+        }
+
+        public Builder splitter(DocumentSplitter splitter) {
+            this.chunking = chunking.withSplitter(splitter);
+            return this;
+        }
+
+        /**
+         * Parser et splitter d'une stratégie de découpage (remplace {@code parserFactory} et
+         * {@code splitter}) ; un document indexé avec une autre stratégie est réindexé.
+         */
+        public Builder chunking(ChunkingStrategy chunking) {
+            this.chunking = ChunkingConfiguration.of(chunking);
+            return this;
+        }
+
+        /**
+         * Segments de chaque document enregistrés après découpage et relus aux ingestions
+         * suivantes tant que le fichier et la configuration de découpage ne changent pas. Demande
+         * le découpage par défaut ou une {@link #chunking stratégie nommée} ; incompatible avec le
+         * mode streaming, qui ne matérialise jamais le document.
+         */
+        public Builder snapshots(DocumentSnapshots snapshots) {
+            this.snapshots = snapshots;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder parseThreads(int parseThreads) {
+            this.parseThreads = positive(parseThreads, "parseThreads");
+            return this;
+        }
+
+        public Builder splitThreads(int splitThreads) {
+            this.splitThreads = positive(splitThreads, "splitThreads");
+            return this;
+        }
+
+        public Builder embedThreads(int embedThreads) {
+            this.embedThreads = positive(embedThreads, "embedThreads");
+            return this;
+        }
+
+        public Builder storeThreads(int storeThreads) {
+            this.storeThreads = positive(storeThreads, "storeThreads");
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = positive(queueCapacity, "queueCapacity");
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = positive(batchSize, "batchSize");
+            return this;
+        }
+
+        /**
+         * Ingestion en streaming pour les très gros documents : parse SAX de Tika (le
+         * {@code parserFactory} n'est pas utilisé) et découpage incrémental en segments d'au plus
+         * {@code maxSegmentSize} caractères, avec {@code maxOverlap} caractères de recouvrement ;
+         * remplace le {@code splitter}.
+         */
+        public Builder streaming(int maxSegmentSize, int maxOverlap) {
+            this.streamingSegmentSize = positive(maxSegmentSize, "maxSegmentSize");
+            if (maxOverlap < 0 || maxOverlap >= maxSegmentSize) {
+                throw new IllegalArgumentException("maxOverlap doit être compris entre 0 et maxSegmentSize");
+            }
+            this.streamingOverlap = maxOverlap;
+            return this;
+        }
+
+        /**
+         * Index BM25 alimenté avec les segments de chaque document ingéré dans {@code store}
+         * (y compris les documents déjà indexés, relus depuis un MappedEmbeddingStore). L'index est
+         * publié une fois, à la fin de {@link #ingest}.
+         */
+        public Builder lexicalIndex(EmbeddingStore<TextSegment> store, Bm25Index lexicalIndex) {
+            lexicalIndexes.put(store, lexicalIndex);
+            return this;
+        }
+
+        /**
+         * Métadonnées ajoutées à tous les segments d'un document (thème, collection...), en plus
+         * de {@code file_name} ; à indexer dans le store pour les recherches filtrées.
+         */
+        public Builder documentMetadata(Function<Path, Map<String, ?>> documentMetadata) {
+            this.documentMetadata = documentMetadata;
+            return this;
+        }
+
+        public IngestionPipeline build() {
+            return new IngestionPipeline(this);
+        }
+
+        private static int positive(int value, String name) {
+            if (value <= 0) throw new IllegalArgumentException(name + " doit être > 0");
+            return value;
+        }
+    }
+}
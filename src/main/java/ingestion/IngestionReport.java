@@ -0,0 +1,34 @@
+package ingestion;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bilan d'une ingestion : documents traités (dont {@code restored} repris d'un instantané, sans
+ * parse ni découpage), débit (segments/s) de chaque étape et avertissements (instantané non
+ * enregistré...) qui n'ont pas interrompu l'ingestion.
+ */
+public record IngestionReport(int documents, int skipped, int restored, long segments, List<StageReport> stages,
+                              List<String> warnings) {
+
+    public record StageReport(String name, int threads, long items, double seconds) {
+
+        public double segmentsPerSecond(long segments) {
+            return seconds <= 0 ? 0 : segments / seconds;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "Ingestion : %d document(s) indexé(s) (%d depuis un instantané), %d déjà à jour, %d segments%n",
+                documents, restored, skipped, segments));
+        for (StageReport stage : stages) {
+            sb.append(String.format(Locale.ROOT, "  %-6s x%-2d %6d éléments  %8.3f s  %10.1f segments/s%n",
+                    stage.name(), stage.threads(), stage.items(), stage.seconds(),
+                    stage.segmentsPerSecond(segments)));
+        }
+        for (String warning : warnings) sb.append("  ! ").append(warning).append(System.lineSeparator());
+        return sb.toString();
+    }
+}
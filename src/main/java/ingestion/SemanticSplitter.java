@@ -0,0 +1,192 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Découpage aux changements de sujet : les phrases du document sont embeddées et un segment se
+ * termine là où deux phrases voisines sont peu similaires (similarité cosinus sous le
+ * percentile {@code breakpointPercentile} des similarités du document), dans les bornes
+ * {@code minSegmentSize} / {@code maxSegmentSize} en caractères.
+ * <p>
+ * Les titres ({@link StructuredTikaParser}) sont aussi des points de coupure. Le coût est un
+ * embedding par phrase à l'ingestion, en plus de celui des segments.
+ */
+public class SemanticSplitter implements DocumentSplitter {
+
+    // En dessous, une « phrase » (fragment de diapositive, puce de deux mots) est rattachée à la suivante
+    private static final int MIN_SENTENCE_LENGTH = 40;
+
+    private record Sentence(String text, int page, boolean heading) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final int minSegmentSize;
+    private final int maxSegmentSize;
+    private final double breakpointPercentile;
+    private final int batchSize;
+
+    private SemanticSplitter(Builder builder) {
+        this.embeddingModel = Objects.requireNonNull(builder.embeddingModel, "embeddingModel");
+        if (builder.minSegmentSize > builder.maxSegmentSize) {
+            throw new IllegalArgumentException("minSegmentSize doit être <= maxSegmentSize");
+        }
+        this.minSegmentSize = builder.minSegmentSize;
+        this.maxSegmentSize = builder.maxSegmentSize;
+        this.breakpointPercentile = builder.breakpointPercentile;
+        this.batchSize = builder.batchSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<TextSegment> split(Document document) {
+        List<Sentence> sentences = sentences(document.text());
+        if (sentences.isEmpty()) return List.of();
+
+        double[] similarities = similarities(sentences);
+        double threshold = percentile(similarities, breakpointPercentile);
+
+        List<TextSegment> segments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int page = 0;
+        for (int i = 0; i < sentences.size(); i++) {
+            Sentence sentence = sentences.get(i);
+            boolean full = current.length() + 1 + sentence.text().length() > maxSegmentSize;
+            boolean topicChange = sentence.heading() || (i > 0 && similarities[i - 1] < threshold);
+            if (!current.isEmpty() && (full || (topicChange && current.length() >= minSegmentSize))) {
+                emit(segments, document, current, page);
+            }
+            if (current.isEmpty()) page = sentence.page();
+            else current.append(sentence.heading() || sentences.get(i - 1).heading() ? '\n' : ' ');
+            current.append(sentence.text());
+        }
+        emit(segments, document, current, page);
+        return segments;
+    }
+
+    private List<Sentence> sentences(String text) {
+        List<Sentence> sentences = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        int pendingPage = 0;
+        for (TextBlocks.Block block : TextBlocks.parse(text)) {
+            if (block.heading()) {
+                if (!pending.isEmpty()) sentences.add(new Sentence(pending.toString(), pendingPage, false));
+                pending.setLength(0);
+                sentences.add(new Sentence(block.text(), block.page(), true));
+                continue;
+            }
+            for (String sentence : TextBlocks.sentences(block.text())) {
+                for (String part : TextBlocks.split(sentence, maxSegmentSize)) {
+                    if (pending.isEmpty()) pendingPage = block.page();
+                    else pending.append(' ');
+                    pending.append(part);
+                    if (pending.length() >= MIN_SENTENCE_LENGTH) {
+                        // Rattacher un fragment ne doit pas dépasser la taille maximale
+                        for (String piece : TextBlocks.split(pending.toString(), maxSegmentSize)) {
+                            sentences.add(new Sentence(piece, pendingPage, false));
+                        }
+                        pending.setLength(0);
+                    }
+                }
+            }
+        }
+        if (!pending.isEmpty()) sentences.add(new Sentence(pending.toString(), pendingPage, false));
+        return sentences;
+    }
+
+    // similarities[i] : similarité cosinus entre les phrases i et i + 1 (vecteurs normalisés)
+    private double[] similarities(List<Sentence> sentences) {
+        List<TextSegment> texts = sentences.stream().map(sentence -> TextSegment.from(sentence.text())).toList();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            embeddings.addAll(embeddingModel.embedAll(texts.subList(from, Math.min(from + batchSize, texts.size()))).content());
+        }
+        double[] similarities = new double[Math.max(0, sentences.size() - 1)];
+        for (int i = 0; i < similarities.length; i++) {
+            float[] a = embeddings.get(i).vector();
+            float[] b = embeddings.get(i + 1).vector();
+            double dot = 0;
+            for (int d = 0; d < a.length; d++) dot += a[d] * b[d];
+            similarities[i] = dot;
+        }
+        return similarities;
+    }
+
+    private static double percentile(double[] values, double percentile) {
+        if (values.length == 0) return Double.NEGATIVE_INFINITY;
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.floor(percentile / 100 * (sorted.length - 1))];
+    }
+
+    private static void emit(List<TextSegment> segments, Document document, StringBuilder current, int page) {
+        if (current.isEmpty()) return;
+        Metadata metadata = document.metadata().copy().put("index", String.valueOf(segments.size()));
+        if (page > 0) metadata.put(StreamingSplitter.PAGE, page);
+        segments.add(TextSegment.from(current.toString(), metadata));
+        current.setLength(0);
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private int minSegmentSize = 200;
+        private int maxSegmentSize = 800;
+        private double breakpointPercentile = 25;
+        private int batchSize = 64;
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Taille en dessous de laquelle un changement de sujet ne coupe pas encore le segment.
+         */
+        public Builder minSegmentSize(int minSegmentSize) {
+            if (minSegmentSize < 0) throw new IllegalArgumentException("minSegmentSize doit être >= 0");
+            this.minSegmentSize = minSegmentSize;
+            return this;
+        }
+
+        public Builder maxSegmentSize(int maxSegmentSize) {
+            if (maxSegmentSize <= 0) throw new IllegalArgumentException("maxSegmentSize doit être > 0");
+            this.maxSegmentSize = maxSegmentSize;
+            return this;
+        }
+
+        /**
+         * Part des transitions entre phrases considérées comme des changements de sujet : 25 coupe
+         * aux 25 % de transitions les moins similaires du document.
+         */
+        public Builder breakpointPercentile(double breakpointPercentile) {
+            if (breakpointPercentile < 0 || breakpointPercentile > 100) {
+                throw new IllegalArgumentException("breakpointPercentile doit être compris entre 0 et 100");
+            }
+            this.breakpointPercentile = breakpointPercentile;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("batchSize doit être > 0");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public SemanticSplitter build() {
+            return new SemanticSplitter(this);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Découpage incrémental : le texte arrive par morceaux (événements SAX de Tika) et les segments
+ * sont émis dès qu'ils sont complets, sans jamais garder plus d'un segment en mémoire.
+ * <p>
+ * Mêmes règles que {@code DocumentSplitters.recursive(maxSegmentSize, maxOverlap)} en caractères :
+ * coupure de préférence entre paragraphes, puis en fin de phrase, puis entre deux mots ; le
+ * segment suivant reprend les derniers mots du précédent (au plus {@code maxOverlap} caractères).
+ * Chaque segment reçoit les métadonnées du document, son numéro ({@code index}) et, si le parser
+ * signale les sauts de page, la page où commence son texte ({@value #PAGE}).
+ */
+public class StreamingSplitter {
+
+    public static final String PAGE = "page";
+
+    private static final String PARAGRAPH = "\n\n";
+
+    private final int maxSegmentSize;
+    private final int maxOverlap;
+    private final int minCut;
+    private final Metadata documentMetadata;
+    private final Consumer<TextSegment> output;
+
+    private final StringBuilder buffer;
+    // Longueur du recouvrement en tête de buffer : ce texte a déjà été émis
+    private int carried;
+    private int index;
+
+    // Pages : numéro courant (0 tant qu'aucun saut n'est signalé), page du début du buffer et
+    // positions du buffer où commence une nouvelle page
+    private int page;
+    private int basePage;
+    private int[] pageStarts = new int[4];
+    private int pageStartCount;
+
+    public StreamingSplitter(int maxSegmentSize, int maxOverlap, Metadata documentMetadata,
+                             Consumer<TextSegment> output) {
+        if (maxSegmentSize <= 0) throw new IllegalArgumentException("maxSegmentSize doit être > 0");
+        if (maxOverlap < 0 || maxOverlap >= maxSegmentSize) {
+            throw new IllegalArgumentException("maxOverlap doit être compris entre 0 et maxSegmentSize");
+        }
+        this.maxSegmentSize = maxSegmentSize;
+        this.maxOverlap = maxOverlap;
+        // Une coupure trop tôt ne laisserait presque que du recouvrement dans le segment
+        this.minCut = Math.max(maxOverlap + 1, maxSegmentSize / 2);
+        this.documentMetadata = documentMetadata;
+        this.output = output;
+        this.buffer = new StringBuilder(maxSegmentSize + 1);
+    }
+
+    /**
+     * Ajoute du texte ; les suites d'espaces (retours à la ligne compris) sont réduites à un espace.
+     */
+    public void append(char[] chars, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            char c = chars[i];
+            if (Character.isWhitespace(c)) {
+                int last = buffer.length() - 1;
+                if (last < 0 || Character.isWhitespace(buffer.charAt(last))) continue;
+                c = ' ';
+            }
+            buffer.append(c);
+            while (buffer.length() > maxSegmentSize) cut();
+        }
+    }
+
+    public void append(CharSequence text) {
+        char[] chars = text.toString().toCharArray();
+        append(chars, 0, chars.length);
+    }
+
+    /**
+     * Fin de bloc (paragraphe, titre, cellule...) : point de coupure privilégié.
+     */
+    public void paragraphBreak() {
+        trimTrailingSpace();
+        if (buffer.length() > carried && !endsWithParagraph()) buffer.append(PARAGRAPH);
+    }
+
+    /**
+     * Début d'une nouvelle page (la première page compris).
+     */
+    public void pageBreak() {
+        page++;
+        if (pageStartCount == pageStarts.length) pageStarts = Arrays.copyOf(pageStarts, pageStartCount * 2);
+        pageStarts[pageStartCount++] = buffer.length();
+    }
+
+    /**
+     * Émet le dernier segment, s'il contient du texte nouveau.
+     */
+    public void finish() {
+        if (!buffer.substring(carried).isBlank()) emit(buffer.toString(), pageAt(carried));
+        buffer.setLength(0);
+        carried = 0;
+        basePage = page;
+        pageStartCount = 0;
+    }
+
+    /**
+     * Nombre de segments émis jusqu'ici.
+     */
+    public int segments() {
+        return index;
+    }
+
+    private void cut() {
+        int at = buffer.lastIndexOf(PARAGRAPH, maxSegmentSize - PARAGRAPH.length());
+        if (at < minCut) at = lastSentenceEnd();
+        if (at < minCut) at = buffer.lastIndexOf(" ", maxSegmentSize);
+        if (at < minCut) at = maxSegmentSize;
+
+        String segment = buffer.substring(0, at);
+        emit(segment, pageAt(carried));
+
+        // Recouvrement plus court que la moitié du segment : chaque coupure fait avancer le buffer
+        String overlap = overlap(segment, Math.min(maxOverlap, (at - 1) / 2));
+        int removed = at;
+        while (removed < buffer.length() && Character.isWhitespace(buffer.charAt(removed))) removed++;
+        buffer.delete(0, removed);
+        String prefix = overlap.isEmpty() ? "" : overlap + ' ';
+        buffer.insert(0, prefix);
+        shiftPages(removed, prefix.length());
+        carried = prefix.length();
+    }
+
+    private int pageAt(int offset) {
+        int page = basePage;
+        for (int i = 0; i < pageStartCount && pageStarts[i] <= offset; i++) page++;
+        return page;
+    }
+
+    // Le début du buffer (« removed » caractères) est parti, « inserted » caractères l'ont remplacé
+    private void shiftPages(int removed, int inserted) {
+        basePage = pageAt(removed);
+        int kept = 0;
+        for (int i = 0; i < pageStartCount; i++) {
+            if (pageStarts[i] > removed) pageStarts[kept++] = pageStarts[i] - removed + inserted;
+        }
+        pageStartCount = kept;
+    }
+
+    // Position juste après le dernier « . », « ? » ou « ! » suivi d'un espace
+    private int lastSentenceEnd() {
+        for (int i = Math.min(buffer.length() - 1, maxSegmentSize); i > 0; i--) {
+            char previous = buffer.charAt(i - 1);
+            if (Character.isWhitespace(buffer.charAt(i)) && (previous == '.' || previous == '?' || previous == '!')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Derniers mots entiers du segment, au plus « limit » caractères
+    private static String overlap(String segment, int limit) {
+        String text = segment.strip();
+        if (limit <= 0) return "";
+        if (text.length() <= limit) return text;
+        int space = text.indexOf(' ', text.length() - limit - 1);
+        return space < 0 ? "" : text.substring(space + 1).strip();
+    }
+
+    private void emit(String text, int page) {
+        String stripped = text.strip();
+        if (stripped.isEmpty()) return;
+        Metadata metadata = documentMetadata.copy().put("index", String.valueOf(index++));
+        if (page > 0) metadata.put(PAGE, page);
+        output.accept(TextSegment.from(stripped, metadata));
+    }
+
+    private boolean endsWithParagraph() {
+        return buffer.length() >= PARAGRAPH.length()
+                && buffer.charAt(buffer.length() - 1) == '\n' && buffer.charAt(buffer.length() - 2) == '\n';
+    }
+
+    private void trimTrailingSpace() {
+        while (buffer.length() > carried && buffer.charAt(buffer.length() - 1) == ' ') buffer.setLength(buffer.length() - 1);
+    }
+}
@@ -0,0 +1,82 @@
+package ingestion;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Parse Tika sans matérialiser le texte : le ContentHandler SAX transmet chaque morceau de texte
+ * au StreamingSplitter au fil de l'extraction, au lieu du BodyContentHandler qui accumule tout le
+ * document dans une chaîne.
+ * <p>
+ * Les fins d'éléments de bloc du XHTML produit par Tika (paragraphes, titres, pages, cellules)
+ * deviennent des coupures de paragraphe ; les pages d'un PDF ({@code <div class="page">}) sont
+ * signalées au splitter, qui les reporte dans les métadonnées des segments.
+ */
+public class StreamingTikaParser {
+
+    private static final Set<String> BLOCKS = Set.of(
+            "p", "div", "h1", "h2", "h3", "h4", "h5", "h6", "li", "tr", "td", "th",
+            "pre", "blockquote", "title", "br");
+
+    private final Parser parser;
+
+    public StreamingTikaParser() {
+        this(new AutoDetectParser());
+    }
+
+    public StreamingTikaParser(Parser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parse le flux et termine le découpage ({@link StreamingSplitter#finish()}).
+     */
+    public void parse(InputStream in, StreamingSplitter splitter) throws IOException {
+        try {
+            parser.parse(in, new TextHandler(splitter), new Metadata(), new ParseContext());
+        } catch (SAXException | TikaException e) {
+            throw new IOException("Parse Tika impossible : " + e.getMessage(), e);
+        }
+        splitter.finish();
+    }
+
+    private static final class TextHandler extends DefaultHandler {
+
+        private final StreamingSplitter splitter;
+
+        TextHandler(StreamingSplitter splitter) {
+            this.splitter = splitter;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (BLOCKS.contains(localName)) splitter.paragraphBreak();
+            if ("div".equals(localName) && "page".equals(attributes.getValue("class"))) splitter.pageBreak();
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (BLOCKS.contains(localName)) splitter.paragraphBreak();
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            splitter.append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            splitter.append(ch, start, length);
+        }
+    }
+}
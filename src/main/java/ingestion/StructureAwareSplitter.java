@@ -0,0 +1,110 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Découpage qui suit la structure du document ({@link StructuredTikaParser}) : un segment
+ * regroupe les paragraphes d'une même section, jusqu'à {@code maxSegmentSize} caractères, et
+ * ne coupe un paragraphe qu'au-delà de cette taille (en fin de phrase de préférence).
+ * <p>
+ * Une nouvelle section commence à chaque titre ({@code #} ou titre de diapositive suivi d'une
+ * liste à puces) ; le titre est repris en tête des segments suivants de la même section. Un
+ * segment de moins de {@code minSegmentSize} caractères est fusionné avec son voisin quand la
+ * taille le permet, ce qui évite les fragments de quelques mots de {@code recursive(300, 30)}.
+ * <p>
+ * Chaque segment reçoit les métadonnées du document, son numéro ({@code index}), la page où il
+ * commence ({@value StreamingSplitter#PAGE}) et le titre de sa section ({@value #SECTION}).
+ */
+public class StructureAwareSplitter implements DocumentSplitter {
+
+    public static final String SECTION = "section";
+
+    private record Chunk(String text, int page, String section) {
+    }
+
+    private final int minSegmentSize;
+    private final int maxSegmentSize;
+
+    public StructureAwareSplitter(int minSegmentSize, int maxSegmentSize) {
+        if (maxSegmentSize <= 0) throw new IllegalArgumentException("maxSegmentSize doit être > 0");
+        if (minSegmentSize < 0 || minSegmentSize > maxSegmentSize) {
+            throw new IllegalArgumentException("minSegmentSize doit être compris entre 0 et maxSegmentSize");
+        }
+        this.minSegmentSize = minSegmentSize;
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    @Override
+    public List<TextSegment> split(Document document) {
+        List<Chunk> chunks = new ArrayList<>();
+        String section = null;
+        StringBuilder current = new StringBuilder();
+        int page = 0;
+
+        for (TextBlocks.Block block : TextBlocks.parse(document.text())) {
+            if (block.heading()) {
+                flush(chunks, current, page, section);
+                section = block.text();
+                current.append(section);
+                page = block.page();
+                continue;
+            }
+            for (String part : TextBlocks.split(block.text(), maxSegmentSize)) {
+                if (!current.isEmpty() && current.length() + 1 + part.length() > maxSegmentSize) {
+                    flush(chunks, current, page, section);
+                    // Le titre situe la suite de la section, s'il laisse assez de place
+                    if (section != null && section.length() + 1 + part.length() <= maxSegmentSize) current.append(section);
+                }
+                if (current.isEmpty() || current.toString().equals(section)) page = block.page();
+                if (!current.isEmpty()) current.append('\n');
+                current.append(part);
+            }
+        }
+        flush(chunks, current, page, section);
+
+        List<TextSegment> segments = new ArrayList<>();
+        for (Chunk chunk : merge(chunks)) {
+            Metadata metadata = document.metadata().copy().put("index", String.valueOf(segments.size()));
+            if (chunk.page() > 0) metadata.put(StreamingSplitter.PAGE, chunk.page());
+            if (chunk.section() != null) metadata.put(SECTION, chunk.section());
+            segments.add(TextSegment.from(chunk.text(), metadata));
+        }
+        return segments;
+    }
+
+    private static void flush(List<Chunk> chunks, StringBuilder current, int page, String section) {
+        // Un titre seul (section vide) rejoint le segment suivant par la fusion des petits segments
+        if (!current.isEmpty()) chunks.add(new Chunk(current.toString(), page, section));
+        current.setLength(0);
+    }
+
+    // Petits segments fusionnés avec le suivant (ou, pour le dernier, avec le précédent)
+    private List<Chunk> merge(List<Chunk> chunks) {
+        List<Chunk> merged = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            Chunk previous = merged.isEmpty() ? null : merged.getLast();
+            if (previous != null && previous.text().length() < minSegmentSize
+                    && previous.text().length() + 1 + chunk.text().length() <= maxSegmentSize) {
+                merged.set(merged.size() - 1, new Chunk(previous.text() + '\n' + chunk.text(), previous.page(),
+                        previous.section() != null ? previous.section() : chunk.section()));
+            } else {
+                merged.add(chunk);
+            }
+        }
+        if (merged.size() > 1) {
+            Chunk last = merged.getLast();
+            Chunk previous = merged.get(merged.size() - 2);
+            if (last.text().length() < minSegmentSize && previous.text().length() + 1 + last.text().length() <= maxSegmentSize) {
+                merged.removeLast();
+                merged.set(merged.size() - 1, new Chunk(previous.text() + '\n' + last.text(), previous.page(), previous.section()));
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,138 @@
+package ingestion;
+
+import dev.langchain4j.data.document.BlankDocumentException;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentParser;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+/**
+ * Parser Tika qui garde la structure du XHTML dans le texte du document, pour les splitters
+ * {@link StructureAwareSplitter} et {@link SemanticSplitter} : une ligne vide entre deux blocs
+ * (paragraphes, cellules, éléments de liste), un saut de page ({@code \f}) entre deux pages et
+ * les titres {@code h1}...{@code h6} préfixés par autant de {@code #} qu'en Markdown.
+ * <p>
+ * Le parser Tika par défaut de LangChain4j ne sépare les blocs que par un retour à la ligne,
+ * comme les lignes d'un même paragraphe : la structure est perdue.
+ */
+public class StructuredTikaParser implements DocumentParser {
+
+    private static final Set<String> BLOCKS = Set.of(
+            "p", "div", "li", "tr", "td", "th", "pre", "blockquote");
+
+    private final Parser parser;
+
+    public StructuredTikaParser() {
+        this(new AutoDetectParser());
+    }
+
+    public StructuredTikaParser(Parser parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    public Document parse(InputStream inputStream) {
+        StructureHandler handler = new StructureHandler();
+        try {
+            parser.parse(inputStream, handler, new Metadata(), new ParseContext());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SAXException | TikaException e) {
+            throw new IllegalStateException("Parse Tika impossible : " + e.getMessage(), e);
+        }
+        String text = handler.text();
+        if (text.isBlank()) throw new BlankDocumentException();
+        return Document.from(text);
+    }
+
+    private static final class StructureHandler extends DefaultHandler {
+
+        private final StringBuilder text = new StringBuilder();
+        private boolean body;
+        private boolean firstPage = true;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("body".equals(localName)) body = true;
+            if (!body) return;
+            if ("div".equals(localName) && "page".equals(attributes.getValue("class"))) {
+                // Le premier saut marquerait une page vide avant la première page
+                if (!firstPage) pageBreak();
+                firstPage = false;
+            } else if (isHeading(localName)) {
+                paragraphBreak();
+                text.append("#".repeat(localName.charAt(1) - '0')).append(' ');
+            } else if (BLOCKS.contains(localName)) {
+                paragraphBreak();
+            } else if ("br".equals(localName)) {
+                text.append('\n');
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("body".equals(localName)) body = false;
+            if (body && (BLOCKS.contains(localName) || isHeading(localName))) paragraphBreak();
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (!body) return;
+            for (int i = start; i < start + length; i++) {
+                char c = ch[i];
+                // Espaces horizontaux réduits à un seul, retours à la ligne gardés (lignes d'un bloc)
+                if (c == '\n' || c == '\r') {
+                    trimSpaces();
+                    if (!text.isEmpty() && text.charAt(text.length() - 1) != '\n') text.append('\n');
+                } else if (Character.isWhitespace(c) || c == ' ') {
+                    if (!text.isEmpty() && !Character.isWhitespace(text.charAt(text.length() - 1))) text.append(' ');
+                } else {
+                    text.append(c);
+                }
+            }
+        }
+
+        // Le parser PDF de Tika émet ses fins de ligne comme espaces ignorables
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            characters(ch, start, length);
+        }
+
+        String text() {
+            return text.toString().strip();
+        }
+
+        private void paragraphBreak() {
+            trimSpaces();
+            if (text.isEmpty() || text.charAt(text.length() - 1) == '\f') return;
+            while (!text.isEmpty() && text.charAt(text.length() - 1) == '\n') text.setLength(text.length() - 1);
+            text.append("\n\n");
+        }
+
+        private void pageBreak() {
+            while (!text.isEmpty() && (text.charAt(text.length() - 1) == '\n' || text.charAt(text.length() - 1) == ' ')) {
+                text.setLength(text.length() - 1);
+            }
+            text.append('\f');
+        }
+
+        private static boolean isHeading(String localName) {
+            return localName.length() == 2 && localName.charAt(0) == 'h' && Character.isDigit(localName.charAt(1));
+        }
+
+        private void trimSpaces() {
+            while (!text.isEmpty() && text.charAt(text.length() - 1) == ' ') text.setLength(text.length() - 1);
+        }
+    }
+}
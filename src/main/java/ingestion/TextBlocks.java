@@ -0,0 +1,154 @@
+package ingestion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Blocs de texte d'un document produit par {@link StructuredTikaParser} (paragraphes séparés par
+ * une ligne vide, pages par un saut de page, titres préfixés par {@code #}), nettoyés pour le
+ * découpage : les blocs sans lettre (numéros de page, dates) et les en-têtes ou pieds de page
+ * répétés sur une bonne partie des pages sont écartés.
+ * <p>
+ * Un texte sans ces marques (parser Tika par défaut) donne simplement des paragraphes.
+ */
+final class TextBlocks {
+
+    record Block(String text, int page, boolean heading) {
+    }
+
+    private static final Pattern PARAGRAPHS = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?…])\\s+");
+    private static final String BULLETS = "•▪❖➢➔–-*";
+
+    private TextBlocks() {
+    }
+
+    static List<Block> parse(String text) {
+        String[] pages = text.split("\f", -1);
+        boolean paged = pages.length > 1;
+
+        List<List<String>> raw = new ArrayList<>();
+        for (String page : pages) {
+            List<String> blocks = new ArrayList<>();
+            for (String block : PARAGRAPHS.split(page)) {
+                if (!block.isBlank()) blocks.add(block.strip());
+            }
+            raw.add(blocks);
+        }
+        Set<String> boilerplate = paged ? boilerplate(raw) : Set.of();
+
+        List<Block> blocks = new ArrayList<>();
+        for (int p = 0; p < raw.size(); p++) {
+            int page = paged ? p + 1 : 0;
+            for (String block : raw.get(p)) {
+                if (!hasLetter(block) || boilerplate.contains(signature(block))) continue;
+                if (block.startsWith("#")) {
+                    blocks.add(new Block(lines(block.replaceFirst("^#+\\s*", "")), page, true));
+                    continue;
+                }
+                // Titre de diapositive : une ligne courte suivie d'une liste à puces
+                String[] lines = block.split("\n", 2);
+                if (lines.length == 2 && isTitle(lines[0]) && isBullet(lines[1].strip())) {
+                    blocks.add(new Block(lines[0].strip(), page, true));
+                    block = lines[1];
+                }
+                blocks.add(new Block(lines(block), page, false));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Phrases d'un bloc : coupure après « . », « ! », « ? » et avant chaque puce.
+     */
+    static List<String> sentences(String block) {
+        List<String> sentences = new ArrayList<>();
+        for (String line : block.split("\n")) {
+            for (String sentence : SENTENCE_END.split(line)) {
+                if (!sentence.isBlank()) sentences.add(sentence.strip());
+            }
+        }
+        return sentences;
+    }
+
+    /**
+     * Découpe un texte trop long en morceaux d'au plus {@code maxSize} caractères, de préférence
+     * en fin de phrase, sinon entre deux mots.
+     */
+    static List<String> split(String text, int maxSize) {
+        List<String> parts = new ArrayList<>();
+        String rest = text.strip();
+        while (rest.length() > maxSize) {
+            int at = -1;
+            var matcher = SENTENCE_END.matcher(rest);
+            while (matcher.find() && matcher.start() <= maxSize) at = matcher.start();
+            if (at < maxSize / 2) at = rest.lastIndexOf(' ', maxSize);
+            if (at <= 0) at = maxSize;
+            parts.add(rest.substring(0, at).strip());
+            rest = rest.substring(at).strip();
+        }
+        if (!rest.isEmpty()) parts.add(rest);
+        return parts;
+    }
+
+    // Blocs identiques aux chiffres près sur au moins 3 pages et 30 % des pages
+    private static Set<String> boilerplate(List<List<String>> pages) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (List<String> page : pages) {
+            Set<String> seen = new HashSet<>();
+            for (String block : page) {
+                if (block.length() <= 100) seen.add(signature(block));
+            }
+            seen.forEach(signature -> counts.merge(signature, 1, Integer::sum));
+        }
+        int threshold = Math.max(3, (int) Math.ceil(pages.size() * 0.3));
+        Set<String> boilerplate = new HashSet<>();
+        counts.forEach((signature, count) -> {
+            if (count >= threshold) boilerplate.add(signature);
+        });
+        return boilerplate;
+    }
+
+    private static String signature(String block) {
+        return block.replaceAll("\\d+", "#").replaceAll("\\s+", " ").strip();
+    }
+
+    // Lignes d'un bloc recollées, sauf devant une puce
+    private static String lines(String block) {
+        StringBuilder sb = new StringBuilder(block.length());
+        for (String line : block.split("\n")) {
+            String stripped = line.strip().replaceAll("\\s+", " ");
+            if (stripped.isEmpty()) continue;
+            if (!sb.isEmpty()) sb.append(isBullet(stripped) ? '\n' : ' ');
+            sb.append(stripped);
+        }
+        return sb.toString();
+    }
+
+    // Ligne courte qui commence par une majuscule ou un chiffre, sans ponctuation finale ni
+    // parenthèse fermée sans ouvrante (suite d'une phrase commencée au bloc précédent)
+    private static boolean isTitle(String line) {
+        String stripped = line.strip();
+        if (stripped.isEmpty() || stripped.length() > 80 || isBullet(stripped)) return false;
+        char first = stripped.charAt(0);
+        return (Character.isUpperCase(first) || Character.isDigit(first))
+                && ".,;:!?".indexOf(stripped.charAt(stripped.length() - 1)) < 0
+                && stripped.chars().filter(c -> c == '(').count() >= stripped.chars().filter(c -> c == ')').count();
+    }
+
+    // Les puces des polices de symboles (Wingdings...) sont extraites en caractères d'usage privé
+    private static boolean isBullet(String line) {
+        if (line.isEmpty()) return false;
+        char first = line.charAt(0);
+        return BULLETS.indexOf(first) >= 0 || Character.getType(first) == Character.PRIVATE_USE;
+    }
+
+    private static boolean hasLetter(String block) {
+        return block.codePoints().anyMatch(Character::isLetter);
+    }
+}
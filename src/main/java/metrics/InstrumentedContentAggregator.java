@@ -0,0 +1,33 @@
+package metrics;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+class InstrumentedContentAggregator implements ContentAggregator {
+
+    private final ContentAggregator delegate;
+    private final RagMetrics metrics;
+
+    InstrumentedContentAggregator(ContentAggregator delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        long start = System.nanoTime();
+        try {
+            List<Content> contents = delegate.aggregate(queryToContents);
+            metrics.record(RagMetrics.Stage.RERANKING, start);
+            return contents;
+        } catch (RuntimeException e) {
+            metrics.recordError(RagMetrics.Stage.RERANKING, start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package metrics;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.injector.ContentInjector;
+
+import java.util.List;
+
+class InstrumentedContentInjector implements ContentInjector {
+
+    private final ContentInjector delegate;
+    private final RagMetrics metrics;
+
+    InstrumentedContentInjector(ContentInjector delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ChatMessage inject(List<Content> contents, ChatMessage chatMessage) {
+        long start = System.nanoTime();
+        try {
+            ChatMessage message = delegate.inject(contents, chatMessage);
+            metrics.record(RagMetrics.Stage.PROMPT_ASSEMBLY, start);
+            metrics.addInjectedContents(contents.size());
+            return message;
+        } catch (RuntimeException e) {
+            metrics.recordError(RagMetrics.Stage.PROMPT_ASSEMBLY, start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package metrics;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+class InstrumentedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final RagMetrics metrics;
+
+    InstrumentedEmbeddingModel(EmbeddingModel delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return embed(TextSegment.from(text));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        long start = System.nanoTime();
+        try {
+            Response<Embedding> response = delegate.embed(textSegment);
+            metrics.record(RagMetrics.Stage.QUERY_EMBEDDING, start);
+            return response;
+        } catch (RuntimeException e) {
+            metrics.recordError(RagMetrics.Stage.QUERY_EMBEDDING, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        // Lots de questions (routeurs, compression) : une mesure pour le lot entier
+        long start = System.nanoTime();
+        try {
+            Response<List<Embedding>> response = delegate.embedAll(textSegments);
+            metrics.record(RagMetrics.Stage.QUERY_EMBEDDING, start);
+            return response;
+        } catch (RuntimeException e) {
+            metrics.recordError(RagMetrics.Stage.QUERY_EMBEDDING, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
@@ -0,0 +1,91 @@
+package metrics;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Seule la recherche est mesurée ; les écritures passent directement au store.
+ */
+class InstrumentedEmbeddingStore<T> implements EmbeddingStore<T> {
+
+    private final EmbeddingStore<T> delegate;
+    private final RagMetrics metrics;
+
+    InstrumentedEmbeddingStore(EmbeddingStore<T> delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public EmbeddingSearchResult<T> search(EmbeddingSearchRequest request) {
+        long start = System.nanoTime();
+        EmbeddingSearchResult<T> result;
+        try {
+            result = delegate.search(request);
+        } catch (RuntimeException e) {
+            metrics.recordError(RagMetrics.Stage.STORE_SEARCH, start);
+            throw e;
+        }
+        metrics.record(RagMetrics.Stage.STORE_SEARCH, start);
+        metrics.addStoreSegments(result.matches().size());
+        for (EmbeddingMatch<T> match : result.matches()) metrics.recordScore(match.score());
+        return result;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate.add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate.add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, T embedded) {
+        return delegate.add(embedding, embedded);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate.addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<T> embedded) {
+        return delegate.addAll(embeddings, embedded);
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<T> embedded) {
+        delegate.addAll(ids, embeddings, embedded);
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+    }
+}
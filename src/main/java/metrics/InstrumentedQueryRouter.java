@@ -0,0 +1,31 @@
+package metrics;
+
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.QueryRouter;
+
+import java.util.Collection;
+
+class InstrumentedQueryRouter implements QueryRouter {
+
+    private final QueryRouter delegate;
+    private final RagMetrics metrics;
+
+    InstrumentedQueryRouter(QueryRouter delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        long start = System.nanoTime();
+        try {
+            Collection<ContentRetriever> retrievers = delegate.route(query);
+            metrics.record(RagMetrics.Stage.ROUTING, start);
+            return retrievers;
+        } catch (RuntimeException e) {
+            metrics.recordError(RagMetrics.Stage.ROUTING, start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+
+class InstrumentedWebSearchEngine implements WebSearchEngine {
+
+    private final WebSearchEngine delegate;
+    private final RagMetrics metrics;
+
+    InstrumentedWebSearchEngine(WebSearchEngine delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public WebSearchResults search(WebSearchRequest request) {
+        long start = System.nanoTime();
+        WebSearchResults results;
+        try {
+            results = delegate.search(request);
+        } catch (RuntimeException e) {
+            metrics.recordError(RagMetrics.Stage.WEB_SEARCH, start);
+            throw e;
+        }
+        metrics.record(RagMetrics.Stage.WEB_SEARCH, start);
+        if (results.results() != null) metrics.addWebResults(results.results().size());
+        return results;
+    }
+}
@@ -0,0 +1,108 @@
+package metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences à buckets log-linéaires (à la HdrHistogram) : puissances de 2 en
+ * microsecondes, chacune découpée en 8 sous-buckets, soit une erreur relative d'au plus 12,5 %.
+ * <p>
+ * L'enregistrement est sans verrou et sans allocation ; couvre de 1 µs à environ 70 minutes.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    public double maxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    public double meanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sumNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * Percentile (0 < p <= 100) en millisecondes, borne haute du bucket concerné.
+     */
+    public double percentileMillis(double p) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBoundMicros(i) / 1e3, maxMillis());
+        }
+        return maxMillis();
+    }
+
+    /**
+     * Plus petite borne de bucket supérieure ou égale à {@code micros} : seules ces bornes
+     * séparent exactement les observations.
+     */
+    public static long bucketBoundMicros(long micros) {
+        return upperBoundMicros(bucketOf(Math.max(0, micros - 1)));
+    }
+
+    /**
+     * Nombre d'observations des buckets entièrement sous {@code micros} (pour les buckets cumulés
+     * Prometheus) ; exact quand {@code micros} est une {@link #bucketBoundMicros borne de bucket}.
+     */
+    public long countAtOrBelowMicros(long micros) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            if (upperBoundMicros(i) > micros) break;
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "n=%d moy=%.2f ms p50=%.2f ms p95=%.2f ms p99=%.2f ms max=%.2f ms",
+                count(), meanMillis(), percentileMillis(50), percentileMillis(95), percentileMillis(99), maxMillis());
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+        if (magnitude >= MAGNITUDES) return MAGNITUDES * SUB_BUCKETS - 1;
+        int sub = (int) (micros >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return magnitude * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        int magnitude = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (magnitude == 0) return sub + 1;
+        return ((long) (SUB_BUCKETS + sub + 1) << (magnitude - 1));
+    }
+}
@@ -0,0 +1,38 @@
+package metrics;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * Le début de l'appel est rangé dans les attributs de la requête, propres à chaque appel.
+ */
+class MetricsChatModelListener implements ChatModelListener {
+
+    private static final Object START = new Object();
+
+    private final RagMetrics metrics;
+
+    MetricsChatModelListener(RagMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext context) {
+        context.attributes().put(START, System.nanoTime());
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext context) {
+        if (context.attributes().get(START) instanceof Long start) metrics.record(RagMetrics.Stage.LLM, start);
+        TokenUsage usage = context.chatResponse().tokenUsage();
+        if (usage != null) metrics.addTokens(usage.inputTokenCount(), usage.outputTokenCount());
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext context) {
+        if (context.attributes().get(START) instanceof Long start) metrics.recordError(RagMetrics.Stage.LLM, start);
+    }
+}
@@ -0,0 +1,64 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écrit périodiquement les métriques au format Prometheus dans un fichier, pour les programmes
+ * sans serveur HTTP (collecteur « textfile » de node_exporter).
+ * <p>
+ * Le fichier est écrit à côté puis renommé : un lecteur ne voit jamais un export à moitié écrit.
+ */
+public class PrometheusFileExporter implements AutoCloseable {
+
+    private final RagMetrics metrics;
+    private final Path file;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-exporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PrometheusFileExporter(RagMetrics metrics, Path file) {
+        this.metrics = metrics;
+        this.file = file;
+    }
+
+    public static PrometheusFileExporter start(RagMetrics metrics, Path file, Duration period) {
+        PrometheusFileExporter exporter = new PrometheusFileExporter(metrics, file);
+        exporter.scheduler.scheduleAtFixedRate(exporter::exportQuietly, 0, period.toMillis(), TimeUnit.MILLISECONDS);
+        return exporter;
+    }
+
+    public void export() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(file.getFileName() + ".tmp");
+        Files.writeString(tmp, metrics.toPrometheus(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Arrête l'export périodique après un dernier export.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        export();
+    }
+
+    private void exportQuietly() {
+        try {
+            export();
+        } catch (IOException e) {
+            System.err.println("Export des métriques impossible vers " + file + " : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package metrics;
+
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.injector.ContentInjector;
+import dev.langchain4j.rag.query.router.QueryRouter;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.web.search.WebSearchEngine;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/**
+ * Métriques d'un tour RAG, étape par étape : routage, embedding de la question, recherche dans le
+ * store, recherche web, re-ranking, assemblage du prompt et appel au LLM.
+ * <p>
+ * Les composants sont instrumentés par décoration ({@link #router}, {@link #queryEmbeddings},
+ * {@link #store}, {@link #webSearch}, {@link #contentAggregator}, {@link #contentInjector}) ou par écouteur pour le modèle de
+ * chat ({@link #chatModelListener}). Chaque mesure coûte deux {@code nanoTime()} et quelques
+ * incréments sans verrou : l'instrumentation peut rester active en production.
+ * <p>
+ * Export au format texte Prometheus par {@link #toPrometheus()} (endpoint {@code /metrics} de
+ * {@code server.AssistantServer}, ou fichier via {@link PrometheusFileExporter}).
+ */
+public class RagMetrics {
+
+    public enum Stage {
+        ROUTING("routing"),
+        QUERY_EMBEDDING("query_embedding"),
+        STORE_SEARCH("store_search"),
+        WEB_SEARCH("web_search"),
+        RERANKING("reranking"),
+        PROMPT_ASSEMBLY("prompt_assembly"),
+        LLM("llm");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    // Bornes des buckets exportés, en microsecondes (de 100 µs à 30 s), ramenées aux bornes de
+    // l'histogramme (100 → 104, 1 000 → 1 024...) : chaque « le » compte alors exactement ses observations
+    private static final long[] LATENCY_BOUNDS_MICROS = LongStream.of(
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000, 30_000_000)
+            .map(LatencyHistogram::bucketBoundMicros)
+            .toArray();
+    private static final String[] LATENCY_BOUNDS_LABELS = new String[LATENCY_BOUNDS_MICROS.length];
+
+    static {
+        for (int i = 0; i < LATENCY_BOUNDS_MICROS.length; i++) {
+            LATENCY_BOUNDS_LABELS[i] = BigDecimal.valueOf(LATENCY_BOUNDS_MICROS[i], 6).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    // Tokens du prompt envoyé au LLM (historique + contexte + question), par appel
+    private static final long[] PROMPT_TOKEN_BOUNDS = {256, 512, 1_024, 2_048, 4_096, 8_192, 16_384, 32_768};
+
+    // Scores de pertinence (RelevanceScore, entre 0 et 1) : 10 buckets de 0,1
+    private static final int SCORE_BUCKETS = 10;
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Stage, LongAdder> errors = new EnumMap<>(Stage.class);
+    private final LatencyHistogram turns = new LatencyHistogram();
+
+    private final LongAdder storeSegments = new LongAdder();
+    private final LongAdder webResults = new LongAdder();
+    private final LongAdder injectedContents = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+
+    private final AtomicLongArray scoreCounts = new AtomicLongArray(SCORE_BUCKETS);
+    private final LongAdder scoreCount = new LongAdder();
+    private final DoubleAdder scoreSum = new DoubleAdder();
+
+    private final AtomicLongArray promptTokenCounts = new AtomicLongArray(PROMPT_TOKEN_BOUNDS.length + 1);
+
+    public RagMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+            errors.put(stage, new LongAdder());
+        }
+    }
+
+    // ---- Décorateurs ----
+
+    public QueryRouter router(QueryRouter delegate) {
+        return new InstrumentedQueryRouter(delegate, this);
+    }
+
+    /**
+     * À placer devant le modèle utilisé pour les questions (cache compris), pas pour l'ingestion.
+     */
+    public EmbeddingModel queryEmbeddings(EmbeddingModel delegate) {
+        return new InstrumentedEmbeddingModel(delegate, this);
+    }
+
+    public <T> EmbeddingStore<T> store(EmbeddingStore<T> delegate) {
+        return new InstrumentedEmbeddingStore<>(delegate, this);
+    }
+
+    public WebSearchEngine webSearch(WebSearchEngine delegate) {
+        return new InstrumentedWebSearchEngine(delegate, this);
+    }
+
+    /**
+     * Fusion et re-ranking des contenus retrouvés (par exemple {@code retrieval.BudgetedReRanker}).
+     */
+    public ContentAggregator contentAggregator(ContentAggregator delegate) {
+        return new InstrumentedContentAggregator(delegate, this);
+    }
+
+    public ContentInjector contentInjector(ContentInjector delegate) {
+        return new InstrumentedContentInjector(delegate, this);
+    }
+
+    /**
+     * Écouteur à passer au builder du modèle de chat ({@code .listeners(List.of(...))}), en
+     * synchrone comme en streaming.
+     */
+    public ChatModelListener chatModelListener() {
+        return new MetricsChatModelListener(this);
+    }
+
+    // ---- Enregistrement ----
+
+    public void record(Stage stage, long startNanos) {
+        stages.get(stage).recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public void recordError(Stage stage, long startNanos) {
+        record(stage, startNanos);
+        errors.get(stage).increment();
+    }
+
+    public void recordScore(double score) {
+        // Bucket i : score dans ]i/10, (i+1)/10], comme la borne « le » exportée
+        int bucket = (int) Math.min(SCORE_BUCKETS - 1, Math.max(0, Math.ceil(score * SCORE_BUCKETS) - 1));
+        scoreCounts.incrementAndGet(bucket);
+        scoreCount.increment();
+        scoreSum.add(score);
+    }
+
+    public void addStoreSegments(int count) {
+        storeSegments.add(count);
+    }
+
+    public void addWebResults(int count) {
+        webResults.add(count);
+    }
+
+    public void addInjectedContents(int count) {
+        injectedContents.add(count);
+    }
+
+    public void addTokens(Integer input, Integer output) {
+        if (input != null) {
+            inputTokens.add(input);
+            int bucket = 0;
+            while (bucket < PROMPT_TOKEN_BOUNDS.length && input > PROMPT_TOKEN_BOUNDS[bucket]) bucket++;
+            promptTokenCounts.incrementAndGet(bucket);
+        }
+        if (output != null) outputTokens.add(output);
+    }
+
+    /**
+     * Durée d'un tour complet (question → réponse), mesurée par l'appelant.
+     */
+    public LatencyHistogram turns() {
+        return turns;
+    }
+
+    public LatencyHistogram stage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    // ---- Export ----
+
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(8_192);
+
+        header(out, "rag_stage_duration_seconds", "histogram", "Durée de chaque étape d'un tour RAG.");
+        for (Stage stage : Stage.values()) {
+            latencyHistogram(out, "rag_stage_duration_seconds", "stage=\"" + stage.label() + "\"", stages.get(stage));
+        }
+        header(out, "rag_stage_errors_total", "counter", "Étapes terminées par une exception.");
+        for (Stage stage : Stage.values()) {
+            sample(out, "rag_stage_errors_total", "stage=\"" + stage.label() + "\"", errors.get(stage).sum());
+        }
+
+        header(out, "rag_turn_duration_seconds", "histogram", "Durée d'un tour complet, question → réponse.");
+        latencyHistogram(out, "rag_turn_duration_seconds", "", turns);
+
+        header(out, "rag_retrieved_segments_total", "counter", "Segments et résultats renvoyés par les recherches.");
+        sample(out, "rag_retrieved_segments_total", "source=\"store\"", storeSegments.sum());
+        sample(out, "rag_retrieved_segments_total", "source=\"web\"", webResults.sum());
+
+        header(out, "rag_injected_contents_total", "counter", "Contenus injectés dans les prompts.");
+        sample(out, "rag_injected_contents_total", "", injectedContents.sum());
+
+        header(out, "rag_retrieval_score", "histogram", "Score de pertinence des segments renvoyés par le store.");
+        long cumulative = 0;
+        for (int i = 0; i < SCORE_BUCKETS; i++) {
+            cumulative += scoreCounts.get(i);
+            String le = i == SCORE_BUCKETS - 1 ? "1.0" : String.format(Locale.ROOT, "%.1f", (i + 1) / (double) SCORE_BUCKETS);
+            sample(out, "rag_retrieval_score_bucket", "le=\"" + le + "\"", cumulative);
+        }
+        sample(out, "rag_retrieval_score_bucket", "le=\"+Inf\"", Math.max(cumulative, scoreCount.sum()));
+        sample(out, "rag_retrieval_score_sum", "", scoreSum.sum());
+        sample(out, "rag_retrieval_score_count", "", Math.max(cumulative, scoreCount.sum()));
+
+        header(out, "rag_llm_tokens_total", "counter", "Tokens consommés par le LLM.");
+        sample(out, "rag_llm_tokens_total", "kind=\"input\"", inputTokens.sum());
+        sample(out, "rag_llm_tokens_total", "kind=\"output\"", outputTokens.sum());
+
+        header(out, "rag_prompt_tokens", "histogram", "Tokens du prompt de chaque appel au LLM.");
+        long prompts = 0;
+        for (int i = 0; i < PROMPT_TOKEN_BOUNDS.length; i++) {
+            prompts += promptTokenCounts.get(i);
+            sample(out, "rag_prompt_tokens_bucket", "le=\"" + PROMPT_TOKEN_BOUNDS[i] + "\"", prompts);
+        }
+        prompts += promptTokenCounts.get(PROMPT_TOKEN_BOUNDS.length);
+        sample(out, "rag_prompt_tokens_bucket", "le=\"+Inf\"", prompts);
+        sample(out, "rag_prompt_tokens_sum", "", inputTokens.sum());
+        sample(out, "rag_prompt_tokens_count", "", prompts);
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = stages.get(stage);
+            if (histogram.count() == 0) continue;
+            out.append(String.format(Locale.ROOT, "%-16s %s%n", stage.label(), histogram));
+        }
+        long scores = scoreCount.sum();
+        out.append(String.format(Locale.ROOT, "segments %d (score moy. %.3f), web %d, tokens %d → %d",
+                storeSegments.sum(), scores == 0 ? 0 : scoreSum.sum() / scores, webResults.sum(),
+                inputTokens.sum(), outputTokens.sum()));
+        return out.toString();
+    }
+
+    private static void latencyHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        // Les compteurs avancent pendant la lecture : on garde les buckets cumulés croissants
+        long previous = 0;
+        for (int i = 0; i < LATENCY_BOUNDS_MICROS.length; i++) {
+            previous = Math.max(previous, histogram.countAtOrBelowMicros(LATENCY_BOUNDS_MICROS[i]));
+            sample(out, name + "_bucket", prefix + "le=\"" + LATENCY_BOUNDS_LABELS[i] + "\"", previous);
+        }
+        long count = Math.max(previous, histogram.count());
+        sample(out, name + "_bucket", prefix + "le=\"+Inf\"", count);
+        sample(out, name + "_sum", labels, histogram.sumSeconds());
+        sample(out, name + "_count", labels, count);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(Double.toString(value)).append('\n');
+    }
+}
@@ -0,0 +1,49 @@
+package prompt;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+
+/**
+ * Estimation locale du nombre de tokens, sans appel au fournisseur : environ 4 caractères par
+ * token pour du texte français ou anglais (tokenizers de type SentencePiece / BPE), plus un coût
+ * fixe par message pour le rôle et les séparateurs.
+ * <p>
+ * Assez précis pour tenir un budget ; le nombre exact reste celui renvoyé par le modèle
+ * ({@code TokenUsage}).
+ */
+public class ApproximateTokenEstimator implements TokenCountEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    @Override
+    public int estimateTokenCountInText(String text) {
+        return text == null || text.isEmpty() ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    @Override
+    public int estimateTokenCountInMessage(ChatMessage message) {
+        return TOKENS_PER_MESSAGE + estimateTokenCountInText(text(message));
+    }
+
+    @Override
+    public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+        int tokens = 0;
+        for (ChatMessage message : messages) tokens += estimateTokenCountInMessage(message);
+        return tokens;
+    }
+
+    static String text(ChatMessage message) {
+        return switch (message) {
+            case SystemMessage system -> system.text();
+            case UserMessage user -> user.hasSingleText() ? user.singleText() : user.contents().toString();
+            case AiMessage ai -> ai.text() == null ? String.valueOf(ai.toolExecutionRequests()) : ai.text();
+            case ToolExecutionResultMessage tool -> tool.text();
+            default -> message.toString();
+        };
+    }
+}
@@ -0,0 +1,230 @@
+package prompt;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.chat.ChatModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * Mémoire de conversation bornée en tokens plutôt qu'en nombre de messages.
+ * <p>
+ * Deux réductions, dans cet ordre :
+ * <ul>
+ *     <li>les passages injectés par le RAG ({@link BudgetedContentInjector#CONTEXT_HEADER}) ne sont
+ *     gardés que pour la question en cours : les questions précédentes redeviennent la question
+ *     seule (sans cela, chaque tour ré-envoie les contextes de tous les tours précédents) ;</li>
+ *     <li>au-delà du budget, les échanges les plus anciens (question et réponses qui suivent) sortent
+ *     de la mémoire et sont condensés dans un résumé, ajouté au message système.</li>
+ * </ul>
+ * Le résumé par défaut est extractif (début de chaque question sortie, sans appel réseau) ;
+ * {@link #modelSummarizer(ChatModel)} le fait rédiger par un modèle, au prix d'un appel au moment
+ * de l'éviction. Pas thread-safe, comme les mémoires de LangChain4j : une instance par session.
+ */
+public class BudgetedChatMemory implements ChatMemory {
+
+    private static final String CONTEXT = "\n\n" + BudgetedContentInjector.CONTEXT_HEADER;
+    private static final String SUMMARY_HEADER = "Résumé du début de la conversation :";
+    private static final int SUMMARY_LINE_CHARS = 160;
+
+    private final Object id;
+    private final int maxTokens;
+    private final int maxSummaryTokens;
+    private final TokenCountEstimator tokenEstimator;
+    private final BiFunction<String, List<ChatMessage>, String> summarizer;
+
+    private SystemMessage systemMessage;
+    private String summary = "";
+    private final List<ChatMessage> messages = new ArrayList<>();
+
+    private BudgetedChatMemory(Builder builder) {
+        this.id = builder.id;
+        this.maxTokens = builder.maxTokens;
+        this.maxSummaryTokens = builder.maxSummaryTokens;
+        this.tokenEstimator = builder.tokenEstimator;
+        this.summarizer = builder.summarizer;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        if (message instanceof SystemMessage system) {
+            systemMessage = system;
+            return;
+        }
+        if (message instanceof UserMessage) {
+            messages.replaceAll(BudgetedChatMemory::withoutContext);
+        }
+        messages.add(message);
+        evict();
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> result = new ArrayList<>(messages.size() + 1);
+        SystemMessage system = system();
+        if (system != null) result.add(system);
+        result.addAll(messages);
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        systemMessage = null;
+        summary = "";
+        messages.clear();
+    }
+
+    /**
+     * Résumé des échanges sortis de la mémoire (vide tant que le budget n'a pas été dépassé).
+     */
+    public String summary() {
+        return summary;
+    }
+
+    /**
+     * Résumé rédigé par un modèle de chat à partir du résumé précédent et des messages évincés.
+     */
+    public static BiFunction<String, List<ChatMessage>, String> modelSummarizer(ChatModel model) {
+        return (previous, evicted) -> {
+            StringBuilder prompt = new StringBuilder("""
+                    Résume en quelques phrases courtes, en français, ce qui a été demandé et répondu \
+                    dans cette conversation. Garde les faits et les noms utiles pour la suite.
+                    """);
+            if (!previous.isEmpty()) prompt.append("\nRésumé précédent :\n").append(previous).append('\n');
+            prompt.append("\nÉchanges :\n");
+            for (ChatMessage message : evicted) {
+                prompt.append(message instanceof UserMessage ? "Utilisateur : " : "Assistant : ")
+                        .append(ApproximateTokenEstimator.text(message)).append('\n');
+            }
+            return model.chat(prompt.toString()).strip();
+        };
+    }
+
+    // Sans résumé, le message système est renvoyé tel quel
+    private SystemMessage system() {
+        if (summary.isEmpty()) return systemMessage;
+        String text = SUMMARY_HEADER + "\n" + summary;
+        return SystemMessage.from(systemMessage == null ? text : systemMessage.text() + "\n\n" + text);
+    }
+
+    private void evict() {
+        // La dernière question (celle du tour en cours) n'est jamais évincée
+        int lastUser = -1;
+        for (int i = messages.size() - 1; i >= 0 && lastUser < 0; i--) {
+            if (messages.get(i) instanceof UserMessage) lastUser = i;
+        }
+
+        while (!messages.isEmpty() && tokens() > maxTokens) {
+            // Un échange complet : la question la plus ancienne et ce qui suit jusqu'à la suivante
+            int end = 1;
+            while (end < messages.size() && !(messages.get(end) instanceof UserMessage)) end++;
+            if (lastUser >= 0 && end > lastUser) break;
+            List<ChatMessage> exchange = messages.subList(0, end);
+            // Le résumé compte dans le budget : il est mis à jour à chaque échange sorti
+            summary = limit(summarizer.apply(summary, List.copyOf(exchange)));
+            exchange.clear();
+            lastUser -= end;
+        }
+    }
+
+    private int tokens() {
+        SystemMessage system = system();
+        int tokens = tokenEstimator.estimateTokenCountInMessages(messages);
+        return system == null ? tokens : tokens + tokenEstimator.estimateTokenCountInMessage(system);
+    }
+
+    // Garde les lignes les plus récentes du résumé dans son propre budget
+    private String limit(String text) {
+        String result = text.strip();
+        while (tokenEstimator.estimateTokenCountInText(result) > maxSummaryTokens) {
+            int newline = result.indexOf('\n');
+            if (newline < 0) return result.substring(result.length() - maxSummaryTokens * 4).strip();
+            result = result.substring(newline + 1);
+        }
+        return result;
+    }
+
+    private static ChatMessage withoutContext(ChatMessage message) {
+        if (!(message instanceof UserMessage user) || !user.hasSingleText()) return message;
+        String text = user.singleText();
+        int context = text.indexOf(CONTEXT);
+        if (context < 0) return message;
+        return user.name() == null
+                ? UserMessage.from(text.substring(0, context))
+                : UserMessage.from(user.name(), text.substring(0, context));
+    }
+
+    // Une ligne par question sortie ; les réponses ne sont pas reprises
+    private static String extractiveSummary(String previous, List<ChatMessage> evicted) {
+        StringBuilder summary = new StringBuilder(previous);
+        for (ChatMessage message : evicted) {
+            if (!(message instanceof UserMessage)) continue;
+            String question = ApproximateTokenEstimator.text(message).strip().replaceAll("\\s+", " ");
+            if (question.length() > SUMMARY_LINE_CHARS) question = question.substring(0, SUMMARY_LINE_CHARS) + "…";
+            if (!summary.isEmpty()) summary.append('\n');
+            summary.append("- question déjà posée : ").append(question);
+        }
+        return summary.toString();
+    }
+
+    public static class Builder {
+
+        private Object id = "default";
+        private int maxTokens = 1_500;
+        private int maxSummaryTokens = 200;
+        private TokenCountEstimator tokenEstimator = new ApproximateTokenEstimator();
+        private BiFunction<String, List<ChatMessage>, String> summarizer = BudgetedChatMemory::extractiveSummary;
+
+        public Builder id(Object id) {
+            this.id = Objects.requireNonNull(id, "id");
+            return this;
+        }
+
+        /**
+         * Budget de l'historique envoyé au modèle : message système, résumé et messages.
+         */
+        public Builder maxTokens(int maxTokens) {
+            if (maxTokens <= 0) throw new IllegalArgumentException("maxTokens doit être > 0");
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        public Builder maxSummaryTokens(int maxSummaryTokens) {
+            if (maxSummaryTokens <= 0) throw new IllegalArgumentException("maxSummaryTokens doit être > 0");
+            this.maxSummaryTokens = maxSummaryTokens;
+            return this;
+        }
+
+        public Builder tokenEstimator(TokenCountEstimator tokenEstimator) {
+            this.tokenEstimator = tokenEstimator;
+            return this;
+        }
+
+        /**
+         * (résumé précédent, messages évincés) → nouveau résumé.
+         */
+        public Builder summarizer(BiFunction<String, List<ChatMessage>, String> summarizer) {
+            this.summarizer = summarizer;
+            return this;
+        }
+
+        public BudgetedChatMemory build() {
+            return new BudgetedChatMemory(this);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package prompt;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.injector.ContentInjector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Injection des contenus retrouvés sous un budget de tokens, à la place de
+ * {@code DefaultContentInjector} qui colle tous les segments tels quels.
+ * <p>
+ * Avant de remplir le budget : les doublons et les segments contenus dans un autre sont retirés,
+ * puis les segments d'un même document qui se suivent ({@code index} consécutifs) ou se
+ * recouvrent (recouvrement du découpage) sont fusionnés en un seul passage, sans répéter le
+ * recouvrement. Les passages sont ensuite ajoutés par ordre de pertinence (rang du meilleur
+ * segment) tant qu'ils tiennent ; le premier qui dépasse est tronqué en fin de phrase s'il reste
+ * assez de place, les suivants sont abandonnés.
+ * <p>
+ * Le message produit a la même forme que celui de {@code DefaultContentInjector} (question, puis
+ * {@value #CONTEXT_HEADER}, puis les passages) : {@link BudgetedChatMemory} sait en retirer les
+ * passages une fois le tour passé.
+ */
+public class BudgetedContentInjector implements ContentInjector {
+
+    public static final String CONTEXT_HEADER = "Answer using the following information:";
+
+    private static final String INDEX = "index";
+    private static final String SEPARATOR = "\n\n";
+
+    public record Stats(long turns, long contents, long deduplicated, long merged, long truncated, long dropped,
+                        long promptTokens) {
+
+        public double meanPromptTokens() {
+            return turns == 0 ? 0 : (double) promptTokens / turns;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "contexte : %d tours, %d contenus (%d doublons, %d fusionnés, %d tronqués, %d abandonnés), %.0f tokens/prompt",
+                    turns, contents, deduplicated, merged, truncated, dropped, meanPromptTokens());
+        }
+    }
+
+    // Passage du prompt : un ou plusieurs segments fusionnés, classé par le rang du meilleur
+    private static final class Passage {
+
+        final String document;
+        final Integer index;
+        final int rank;
+        String text;
+        int lastIndex;
+        int bestRank;
+
+        Passage(String document, Integer index, int rank, String text) {
+            this.document = document;
+            this.index = index;
+            this.rank = rank;
+            this.text = text;
+            this.lastIndex = index == null ? -1 : index;
+            this.bestRank = rank;
+        }
+    }
+
+    private final int maxTokens;
+    private final int minTruncatedTokens;
+    private final int minOverlap;
+    private final TokenCountEstimator tokenEstimator;
+
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder contents = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+
+    private BudgetedContentInjector(Builder builder) {
+        this.maxTokens = builder.maxTokens;
+        this.minTruncatedTokens = builder.minTruncatedTokens;
+        this.minOverlap = builder.minOverlap;
+        this.tokenEstimator = builder.tokenEstimator;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatMessage inject(List<Content> retrieved, ChatMessage chatMessage) {
+        turns.increment();
+        contents.add(retrieved.size());
+        String question = ApproximateTokenEstimator.text(chatMessage);
+        if (retrieved.isEmpty()) {
+            promptTokens.add(tokenEstimator.estimateTokenCountInText(question));
+            return chatMessage;
+        }
+
+        List<Passage> passages = merge(deduplicate(retrieved));
+        passages.sort(Comparator.comparingInt(p -> p.bestRank));
+
+        StringBuilder context = new StringBuilder();
+        int remaining = maxTokens;
+        for (int i = 0; i < passages.size(); i++) {
+            String text = passages.get(i).text;
+            int tokens = tokenEstimator.estimateTokenCountInText(text);
+            if (tokens <= remaining) {
+                append(context, text);
+                remaining -= tokens;
+                continue;
+            }
+            if (remaining >= minTruncatedTokens) {
+                append(context, truncate(text, remaining));
+                truncated.increment();
+                dropped.add(passages.size() - i - 1);
+            } else {
+                dropped.add(passages.size() - i);
+            }
+            break;
+        }
+
+        String text = context.isEmpty() ? question : question + SEPARATOR + CONTEXT_HEADER + "\n" + context;
+        promptTokens.add(tokenEstimator.estimateTokenCountInText(text));
+        return chatMessage instanceof UserMessage user && user.name() != null
+                ? UserMessage.from(user.name(), text)
+                : UserMessage.from(text);
+    }
+
+    public Stats stats() {
+        return new Stats(turns.sum(), contents.sum(), deduplicated.sum(), merged.sum(), truncated.sum(),
+                dropped.sum(), promptTokens.sum());
+    }
+
+    // Retire les textes identiques ou entièrement contenus dans un texte mieux classé ou plus long
+    private List<Passage> deduplicate(List<Content> retrieved) {
+        List<Passage> kept = new ArrayList<>(retrieved.size());
+        for (int rank = 0; rank < retrieved.size(); rank++) {
+            Content content = retrieved.get(rank);
+            String text = normalize(content.textSegment().text());
+            if (text.isEmpty()) continue;
+
+            boolean duplicate = false;
+            for (int k = 0; k < kept.size() && !duplicate; k++) {
+                Passage other = kept.get(k);
+                if (other.text.contains(text)) {
+                    duplicate = true;
+                } else if (text.contains(other.text)) {
+                    // Le nouveau texte englobe l'ancien : il prend sa place et son rang
+                    kept.set(k, passage(content, other.rank, text));
+                    duplicate = true;
+                }
+            }
+            if (duplicate) {
+                deduplicated.increment();
+            } else {
+                kept.add(passage(content, rank, text));
+            }
+        }
+        return kept;
+    }
+
+    // Fusionne, document par document et dans l'ordre du découpage, les segments voisins
+    private List<Passage> merge(List<Passage> passages) {
+        Map<String, List<Passage>> byDocument = new LinkedHashMap<>();
+        List<Passage> result = new ArrayList<>(passages.size());
+        for (Passage passage : passages) {
+            if (passage.document == null) result.add(passage);
+            else byDocument.computeIfAbsent(passage.document, d -> new ArrayList<>()).add(passage);
+        }
+
+        for (List<Passage> document : byDocument.values()) {
+            document.sort(Comparator.comparing((Passage p) -> p.index == null ? Integer.MAX_VALUE : p.index)
+                    .thenComparingInt(p -> p.rank));
+            Passage current = document.getFirst();
+            for (Passage next : document.subList(1, document.size())) {
+                int overlap = overlap(current.text, next.text);
+                boolean adjacent = current.index != null && next.index != null && next.index == current.lastIndex + 1;
+                if (overlap >= minOverlap || adjacent) {
+                    current.text = overlap >= minOverlap
+                            ? current.text + next.text.substring(overlap)
+                            : current.text + " " + next.text;
+                    if (next.index != null) current.lastIndex = next.index;
+                    current.bestRank = Math.min(current.bestRank, next.bestRank);
+                    merged.increment();
+                } else {
+                    result.add(current);
+                    current = next;
+                }
+            }
+            result.add(current);
+        }
+        return result;
+    }
+
+    private static Passage passage(Content content, int rank, String text) {
+        Map<String, Object> metadata = content.textSegment().metadata().toMap();
+        Object document = metadata.get(Document.FILE_NAME);
+        if (document == null) document = metadata.get(Document.URL);
+        Object index = metadata.get(INDEX);
+        Integer position = null;
+        if (index != null) {
+            try {
+                position = Integer.valueOf(index.toString());
+            } catch (NumberFormatException e) {
+                // index non numérique : pas de fusion par position
+            }
+        }
+        return new Passage(document == null ? null : document.toString(), position, rank, text);
+    }
+
+    // Plus long suffixe de « before » qui est aussi un préfixe de « after »
+    private static int overlap(String before, String after) {
+        for (int length = Math.min(before.length(), after.length()); length > 0; length--) {
+            if (before.regionMatches(before.length() - length, after, 0, length)) return length;
+        }
+        return 0;
+    }
+
+    private String truncate(String text, int tokens) {
+        int limit = Math.min(text.length(), tokens * 4);
+        // On réduit jusqu'à tenir selon l'estimateur, puis on recule à une fin de phrase ou de mot
+        while (limit > 0 && tokenEstimator.estimateTokenCountInText(text.substring(0, limit)) > tokens - 1) limit -= 16;
+        if (limit <= 0) return "";
+        int cut = Math.max(text.lastIndexOf(". ", limit), Math.max(text.lastIndexOf("? ", limit), text.lastIndexOf("! ", limit)));
+        if (cut < limit / 2) cut = text.lastIndexOf(' ', limit);
+        else cut++;
+        if (cut <= 0) cut = limit;
+        return text.substring(0, cut).strip() + " …";
+    }
+
+    private static void append(StringBuilder context, String text) {
+        if (!context.isEmpty()) context.append(SEPARATOR);
+        context.append(text);
+    }
+
+    private static String normalize(String text) {
+        return text.strip().replaceAll("\\s+", " ");
+    }
+
+    public static class Builder {
+
+        private int maxTokens = 1_000;
+        private int minTruncatedTokens = 40;
+        private int minOverlap = 10;
+        private TokenCountEstimator tokenEstimator = new ApproximateTokenEstimator();
+
+        /**
+         * Budget des passages injectés (la question n'est pas comptée).
+         */
+        public Builder maxTokens(int maxTokens) {
+            if (maxTokens <= 0) throw new IllegalArgumentException("maxTokens doit être > 0");
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * En dessous de ce reste de budget, le passage qui dépasse est abandonné plutôt que tronqué.
+         */
+        public Builder minTruncatedTokens(int minTruncatedTokens) {
+            this.minTruncatedTokens = minTruncatedTokens;
+            return this;
+        }
+
+        /**
+         * Recouvrement minimal, en caractères, pour fusionner deux segments d'un même document.
+         */
+        public Builder minOverlap(int minOverlap) {
+            if (minOverlap <= 0) throw new IllegalArgumentException("minOverlap doit être > 0");
+            this.minOverlap = minOverlap;
+            return this;
+        }
+
+        public Builder tokenEstimator(TokenCountEstimator tokenEstimator) {
+            this.tokenEstimator = tokenEstimator;
+            return this;
+        }
+
+        public BudgetedContentInjector build() {
+            return new BudgetedContentInjector(this);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Index inversé BM25 en mémoire sur des TextSegments, pour les termes exacts que MiniLM rate
+ * (« ISO/IEC 25010 », « AQL », « SOLID »...).
+ * <p>
+ * Chaque terme a une liste de postings primitive (identifiants de segments et fréquences en
+ * {@code int[]}). L'index est publié sous forme de vue immuable : la recherche est sans verrou.
+ * Chaque publication reconstruit toute la vue ; une ingestion de plusieurs documents passe donc
+ * par un {@link Batch}, publié une seule fois à la fin, plutôt que par {@link #replaceDocument}
+ * document par document.
+ */
+public class Bm25Index {
+
+    public record Match(TextSegment segment, double score) {
+    }
+
+    // Segment tokenisé : termes distincts et leurs fréquences, conservés pour reconstruire l'index
+    private record Entry(TextSegment segment, String[] terms, int[] frequencies, int length) {
+    }
+
+    private record Postings(int[] segments, int[] frequencies) {
+    }
+
+    private record Snapshot(List<TextSegment> segments, int[] lengths, float averageLength,
+                            Map<String, Postings> postings) {
+    }
+
+    private final float k1;
+    private final float b;
+    private final Map<String, List<Entry>> documents = new LinkedHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(List.of(), new int[0], 0, Map.of());
+
+    public Bm25Index() {
+        this(1.2f, 0.75f);
+    }
+
+    public Bm25Index(float k1, float b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * Remplace les segments d'un document (clé libre, en pratique le {@code file_name}) et publie
+     * aussitôt l'index.
+     */
+    public void replaceDocument(String documentKey, Collection<TextSegment> segments) {
+        batch().replaceDocument(documentKey, segments).publish();
+    }
+
+    public void removeDocument(String documentKey) {
+        batch().removeDocument(documentKey).publish();
+    }
+
+    /**
+     * Modifications groupées : rien n'est visible avant {@link Batch#publish()}.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    public synchronized boolean contains(String documentKey) {
+        return documents.containsKey(documentKey);
+    }
+
+    public int size() {
+        return snapshot.segments().size();
+    }
+
+    public List<Match> search(String query, int maxResults) {
+        return search(query, maxResults, null);
+    }
+
+    /**
+     * Recherche limitée aux segments dont les métadonnées satisfont {@code filter} (si non nul) ;
+     * le filtre n'est évalué que sur les segments ayant obtenu un score.
+     */
+    public List<Match> search(String query, int maxResults, Filter filter) {
+        Snapshot current = snapshot;
+        int n = current.segments().size();
+        if (n == 0 || maxResults <= 0) return List.of();
+
+        float[] scores = new float[n];
+        boolean any = false;
+        for (String term : termFrequencies(query).keySet()) {
+            Postings postings = current.postings().get(term);
+            if (postings == null) continue;
+            any = true;
+
+            int df = postings.segments().length;
+            float idf = (float) Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < df; i++) {
+                int segment = postings.segments()[i];
+                float tf = postings.frequencies()[i];
+                float norm = k1 * (1 - b + b * current.lengths()[segment] / current.averageLength());
+                scores[segment] += idf * tf * (k1 + 1) / (tf + norm);
+            }
+        }
+        if (!any) return List.of();
+
+        PriorityQueue<Integer> best = new PriorityQueue<>(maxResults, (x, y) -> Float.compare(scores[x], scores[y]));
+        for (int i = 0; i < n; i++) {
+            if (scores[i] <= 0) continue;
+            if (filter != null && !filter.test(current.segments().get(i).metadata())) continue;
+            if (best.size() < maxResults) {
+                best.add(i);
+            } else if (scores[i] > scores[best.peek()]) {
+                best.poll();
+                best.add(i);
+            }
+        }
+
+        Match[] matches = new Match[best.size()];
+        for (int i = matches.length - 1; i >= 0; i--) {
+            int segment = best.poll();
+            matches[i] = new Match(current.segments().get(segment), scores[segment]);
+        }
+        return Arrays.asList(matches);
+    }
+
+    /**
+     * Remplacements et suppressions de documents, publiés ensemble par une seule reconstruction de
+     * l'index. Thread-safe : les segments sont tokenisés par le thread appelant, hors du verrou de
+     * l'index.
+     */
+    public final class Batch {
+
+        // null : document supprimé
+        private final Map<String, List<Entry>> changes = new LinkedHashMap<>();
+
+        private Batch() {
+        }
+
+        public Batch replaceDocument(String documentKey, Collection<TextSegment> segments) {
+            List<Entry> entries = new ArrayList<>(segments.size());
+            for (TextSegment segment : segments) entries.add(tokenize(segment));
+            synchronized (changes) {
+                changes.put(documentKey, entries);
+            }
+            return this;
+        }
+
+        public Batch removeDocument(String documentKey) {
+            synchronized (changes) {
+                changes.put(documentKey, null);
+            }
+            return this;
+        }
+
+        /**
+         * Applique les modifications en attente ; l'index n'est reconstruit que si l'une d'elles
+         * change son contenu.
+         */
+        public void publish() {
+            synchronized (Bm25Index.this) {
+                boolean changed = false;
+                synchronized (changes) {
+                    for (Map.Entry<String, List<Entry>> change : changes.entrySet()) {
+                        if (change.getValue() != null) {
+                            documents.put(change.getKey(), change.getValue());
+                            changed = true;
+                        } else if (documents.remove(change.getKey()) != null) {
+                            changed = true;
+                        }
+                    }
+                    changes.clear();
+                }
+                if (changed) rebuild();
+            }
+        }
+    }
+
+    private void rebuild() {
+        List<TextSegment> segments = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        for (List<Entry> document : documents.values()) {
+            for (Entry entry : document) {
+                segments.add(entry.segment());
+                entries.add(entry);
+            }
+        }
+
+        // 1re passe : taille de chaque liste de postings ; 2e passe : remplissage
+        Map<String, int[]> documentFrequencies = new HashMap<>();
+        int[] lengths = new int[entries.size()];
+        long totalLength = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            lengths[i] = entry.length();
+            totalLength += entry.length();
+            for (String term : entry.terms()) documentFrequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+        }
+
+        Map<String, Postings> postings = new HashMap<>(documentFrequencies.size() * 2);
+        Map<String, int[]> fill = new HashMap<>(documentFrequencies.size() * 2);
+        documentFrequencies.forEach((term, df) -> {
+            postings.put(term, new Postings(new int[df[0]], new int[df[0]]));
+            fill.put(term, new int[1]);
+        });
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            for (int t = 0; t < entry.terms().length; t++) {
+                Postings list = postings.get(entry.terms()[t]);
+                int position = fill.get(entry.terms()[t])[0]++;
+                list.segments()[position] = i;
+                list.frequencies()[position] = entry.frequencies()[t];
+            }
+        }
+
+        float averageLength = entries.isEmpty() ? 0 : (float) totalLength / entries.size();
+        snapshot = new Snapshot(List.copyOf(segments), lengths, averageLength, postings);
+    }
+
+    private static Entry tokenize(TextSegment segment) {
+        Map<String, Integer> frequencies = termFrequencies(segment.text());
+        String[] terms = new String[frequencies.size()];
+        int[] counts = new int[frequencies.size()];
+        int length = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms[i] = entry.getKey();
+            counts[i++] = entry.getValue();
+            length += entry.getValue();
+        }
+        return new Entry(segment, terms, counts, length);
+    }
+
+    /**
+     * Termes : lettres et chiffres, en minuscules, sans accents ; les termes d'une seule lettre
+     * sont ignorés (« l' », « d' »), pas les nombres.
+     */
+    static Map<String, Integer> termFrequencies(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String term = folded.substring(start, i);
+                if (term.length() > 1 || Character.isDigit(term.charAt(0))) frequencies.merge(term, 1, Integer::sum);
+                start = -1;
+            }
+        }
+        return frequencies;
+    }
+}
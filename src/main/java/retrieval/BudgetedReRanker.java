@@ -0,0 +1,261 @@
+package retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.aggregator.DefaultContentAggregator;
+import dev.langchain4j.rag.query.Query;
+import metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-ranking local entre la recherche et l'injection dans le prompt : les retrievers renvoient un
+ * ensemble large de candidats, un {@link ScoringModel} (cross-encoder) les note par lots sur un
+ * pool de threads et seuls les {@code maxResults} meilleurs au-dessus de {@code minScore} sont
+ * gardés. Moins de contenus injectés : prompt plus court, moins de tokens, tour LLM plus rapide.
+ * <p>
+ * Budget de latence strict : à l'échéance, les lots non terminés sont abandonnés. Les candidats
+ * notés sont classés par score, les autres suivent dans l'ordre de la première étape ; si aucun
+ * lot n'a abouti, c'est le classement de la première étape qui est gardé. Un lot déjà en cours
+ * d'inférence n'est pas interrompu, mais le tour ne l'attend pas.
+ */
+public class BudgetedReRanker implements ContentAggregator, AutoCloseable {
+
+    public record Stats(long turns, long scored, long overBudget, long errors, LatencyHistogram latency) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "re-ranking : %d tours, %d candidats notés, %d hors budget, %d erreurs, %s",
+                    turns, scored, overBudget, errors, latency);
+        }
+    }
+
+    private final ScoringModel scoringModel;
+    private final ContentAggregator firstStage;
+    private final int candidates;
+    private final int maxResults;
+    private final double minScore;
+    private final int batchSize;
+    private final Duration budget;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder scored = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private BudgetedReRanker(Builder builder) {
+        this.scoringModel = Objects.requireNonNull(builder.scoringModel, "scoringModel");
+        this.firstStage = builder.firstStage;
+        this.candidates = Math.max(builder.candidates, builder.maxResults);
+        this.maxResults = builder.maxResults;
+        this.minScore = builder.minScore;
+        this.batchSize = builder.batchSize;
+        this.budget = builder.budget;
+        this.ownsExecutor = builder.executor == null;
+        this.executor = ownsExecutor ? newPool(builder.threads) : builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        List<Content> fused = firstStage.aggregate(queryToContents);
+        if (fused.isEmpty() || queryToContents.isEmpty()) return fused;
+
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        turns.increment();
+
+        // Plusieurs requêtes (expansion) : la première est la question d'origine
+        String query = queryToContents.keySet().iterator().next().text();
+        List<Content> pool = fused.subList(0, Math.min(candidates, fused.size()));
+
+        // Lots soumis dans l'ordre de la première étape : les meilleurs candidats sont notés d'abord
+        List<Future<List<Double>>> batches = new ArrayList<>();
+        for (int from = 0; from < pool.size(); from += batchSize) {
+            List<TextSegment> segments = pool.subList(from, Math.min(from + batchSize, pool.size())).stream()
+                    .map(Content::textSegment)
+                    .toList();
+            batches.add(executor.submit(() -> scoringModel.scoreAll(segments, query).content()));
+        }
+
+        double[] scores = new double[pool.size()];
+        boolean[] known = new boolean[pool.size()];
+        boolean complete = true;
+        for (int b = 0; b < batches.size(); b++) {
+            Future<List<Double>> batch = batches.get(b);
+            try {
+                List<Double> batchScores = batch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                for (int i = 0; i < batchScores.size(); i++) {
+                    scores[b * batchSize + i] = batchScores.get(i);
+                    known[b * batchSize + i] = true;
+                }
+                scored.add(batchScores.size());
+            } catch (TimeoutException e) {
+                complete = false;
+                batch.cancel(true);
+            } catch (ExecutionException e) {
+                complete = false;
+                errors.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete = false;
+                batch.cancel(true);
+            }
+        }
+        if (!complete) overBudget.increment();
+
+        List<Content> result = rank(pool, scores, known);
+        latency.recordNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    public Stats stats() {
+        return new Stats(turns.sum(), scored.sum(), overBudget.sum(), errors.sum(), latency);
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) executor.shutdownNow();
+    }
+
+    private List<Content> rank(List<Content> pool, double[] scores, boolean[] known) {
+        List<Integer> order = new ArrayList<>(pool.size());
+        List<Integer> unscored = new ArrayList<>();
+        for (int i = 0; i < pool.size(); i++) {
+            if (!known[i]) unscored.add(i);
+            else if (scores[i] >= minScore) order.add(i);
+        }
+        order.sort((a, b) -> Double.compare(scores[b], scores[a]));
+        order.addAll(unscored);
+
+        List<Content> result = new ArrayList<>(Math.min(maxResults, order.size()));
+        for (int i : order) {
+            if (result.size() == maxResults) break;
+            Content content = pool.get(i);
+            if (!known[i]) {
+                result.add(content);
+                continue;
+            }
+            Map<ContentMetadata, Object> metadata = new HashMap<>(content.metadata());
+            metadata.put(ContentMetadata.RERANKED_SCORE, scores[i]);
+            result.add(Content.from(content.textSegment(), metadata));
+        }
+        return result;
+    }
+
+    // Inférence CPU : threads classiques (pas virtuels), démons pour ne pas bloquer l'arrêt de la JVM
+    private static ExecutorService newPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "reranker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static class Builder {
+
+        private ScoringModel scoringModel;
+        private ContentAggregator firstStage = new DefaultContentAggregator();
+        private int candidates = 20;
+        private int maxResults = 3;
+        private double minScore = 0;
+        private int batchSize = 8;
+        private Duration budget = Duration.ofMillis(200);
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private ExecutorService executor;
+
+        public Builder scoringModel(ScoringModel scoringModel) {
+            this.scoringModel = scoringModel;
+            return this;
+        }
+
+        /**
+         * Fusion des résultats des retrievers avant re-ranking (par défaut RRF de LangChain4j).
+         */
+        public Builder firstStage(ContentAggregator firstStage) {
+            this.firstStage = firstStage;
+            return this;
+        }
+
+        /**
+         * Nombre de candidats notés, pris en tête de la première étape.
+         */
+        public Builder candidates(int candidates) {
+            if (candidates <= 0) throw new IllegalArgumentException("candidates doit être > 0");
+            this.candidates = candidates;
+            return this;
+        }
+
+        public Builder maxResults(int maxResults) {
+            if (maxResults <= 0) throw new IllegalArgumentException("maxResults doit être > 0");
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        /**
+         * Score minimal du cross-encoder (entre 0 et 1) pour qu'un candidat noté soit gardé.
+         */
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("batchSize doit être > 0");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder budget(Duration budget) {
+            if (budget.isNegative()) throw new IllegalArgumentException("budget doit être >= 0");
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Taille du pool créé par le re-ranker (ignorée si {@link #executor} est fourni).
+         */
+        public Builder threads(int threads) {
+            if (threads <= 0) throw new IllegalArgumentException("threads doit être > 0");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Pool partagé, non fermé par {@link BudgetedReRanker#close()}.
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public BudgetedReRanker build() {
+            return new BudgetedReRanker(this);
+        }
+    }
+}
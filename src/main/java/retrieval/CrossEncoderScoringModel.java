@@ -0,0 +1,133 @@
+package retrieval;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.util.PairList;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cross-encoder ONNX local (type ms-marco-MiniLM) : la question et le segment sont lus ensemble
+ * par le modèle, plus précis qu'une similarité entre deux embeddings calculés séparément.
+ * <p>
+ * Même runtime que le modèle d'embedding (onnxruntime + tokenizer Hugging Face). Le logit du
+ * modèle est ramené entre 0 et 1 par une sigmoïde. Une session ONNX accepte des appels
+ * concurrents : un seul modèle suffit pour tous les threads.
+ */
+public class CrossEncoderScoringModel implements ScoringModel, AutoCloseable {
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final Set<String> inputs;
+
+    private CrossEncoderScoringModel(OrtEnvironment environment, OrtSession session, HuggingFaceTokenizer tokenizer) {
+        this.environment = environment;
+        this.session = session;
+        this.tokenizer = tokenizer;
+        this.inputs = session.getInputNames();
+    }
+
+    /**
+     * @param intraOpThreads threads ONNX par appel ; 1 si les lots sont déjà répartis sur un pool
+     */
+    public static CrossEncoderScoringModel load(Path model, Path tokenizer, int maxLength, int intraOpThreads)
+            throws IOException {
+        if (maxLength <= 0) throw new IllegalArgumentException("maxLength doit être > 0");
+        if (intraOpThreads <= 0) throw new IllegalArgumentException("intraOpThreads doit être > 0");
+        HuggingFaceTokenizer hfTokenizer = HuggingFaceTokenizer.builder()
+                .optTokenizerPath(tokenizer)
+                .optMaxLength(maxLength)
+                .optTruncation(true)
+                .optPadding(true)
+                .build();
+        try {
+            OrtEnvironment environment = OrtEnvironment.getEnvironment();
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            options.setIntraOpNumThreads(intraOpThreads);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            return new CrossEncoderScoringModel(environment, environment.createSession(model.toString(), options),
+                    hfTokenizer);
+        } catch (OrtException e) {
+            hfTokenizer.close();
+            throw new IOException("Modèle ONNX illisible : " + model, e);
+        }
+    }
+
+    /**
+     * Répertoire contenant {@code model.onnx} et {@code tokenizer.json}.
+     */
+    public static CrossEncoderScoringModel load(Path directory) throws IOException {
+        return load(directory.resolve("model.onnx"), directory.resolve("tokenizer.json"), 512, 1);
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+        if (segments.isEmpty()) return Response.from(List.of());
+
+        PairList<String, String> pairs = new PairList<>(segments.size());
+        for (TextSegment segment : segments) pairs.add(query, segment.text());
+        // Padding à la plus longue paire du lot : toutes les lignes ont la même longueur
+        Encoding[] encodings = tokenizer.batchEncode(pairs);
+
+        long[][] ids = new long[encodings.length][];
+        long[][] mask = new long[encodings.length][];
+        long[][] types = new long[encodings.length][];
+        for (int i = 0; i < encodings.length; i++) {
+            ids[i] = encodings[i].getIds();
+            mask[i] = encodings[i].getAttentionMask();
+            types[i] = encodings[i].getTypeIds();
+        }
+
+        Map<String, OnnxTensor> tensors = new HashMap<>();
+        try {
+            tensors.put("input_ids", OnnxTensor.createTensor(environment, ids));
+            tensors.put("attention_mask", OnnxTensor.createTensor(environment, mask));
+            // Certains exports (DistilBERT...) n'ont pas d'entrée token_type_ids
+            if (inputs.contains("token_type_ids")) tensors.put("token_type_ids", OnnxTensor.createTensor(environment, types));
+
+            try (OrtSession.Result result = session.run(tensors)) {
+                Object logits = result.get(0).getValue();
+                List<Double> scores = new ArrayList<>(encodings.length);
+                for (int i = 0; i < encodings.length; i++) scores.add(sigmoid(logit(logits, i)));
+                return Response.from(scores);
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Inférence du cross-encoder impossible", e);
+        } finally {
+            tensors.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+        tokenizer.close();
+    }
+
+    // Sortie [lot, 1] (un logit de pertinence) ou [lot] selon l'export
+    private static float logit(Object logits, int row) {
+        return switch (logits) {
+            case float[][] matrix -> matrix[row][matrix[row].length - 1];
+            case float[] vector -> vector[row];
+            default -> throw new IllegalStateException("Sortie inattendue du cross-encoder : " + logits.getClass());
+        };
+    }
+
+    private static double sigmoid(float logit) {
+        return 1.0 / (1.0 + Math.exp(-logit));
+    }
+}
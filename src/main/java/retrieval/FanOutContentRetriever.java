@@ -0,0 +1,179 @@
+package retrieval;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interroge plusieurs ContentRetrievers en parallèle (un thread virtuel par source) avec une
+ * échéance par source.
+ * <p>
+ * Résultats partiels : une source « requise » est attendue jusqu'à son échéance ; une source
+ * « optionnelle » (web) n'est attendue que {@code grace} de plus une fois les sources requises
+ * terminées. Une source en retard ou en erreur est simplement ignorée pour ce tour. Les résultats
+ * sont fusionnés rang par rang (1er de chaque source, puis 2e, ...).
+ * <p>
+ * Le thread d'une source en retard est interrompu. Un client HTTP bloquant n'y réagit pas
+ * forcément : il lui faut alors son propre timeout (celui du moteur de recherche web, par exemple),
+ * sinon l'appel continue jusqu'à sa réponse et occupe sa connexion.
+ */
+public class FanOutContentRetriever implements ContentRetriever {
+
+    private record Source(String name, ContentRetriever retriever, Duration deadline, boolean required,
+                          SourceStats stats) {
+    }
+
+    public static final class SourceStats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        public LatencyHistogram latency() {
+            return latency;
+        }
+
+        public long timeouts() {
+            return timeouts.sum();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        @Override
+        public String toString() {
+            return latency + " timeouts=" + timeouts() + " erreurs=" + errors();
+        }
+    }
+
+    private final List<Source> sources;
+    private final Duration grace;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private FanOutContentRetriever(Builder builder) {
+        if (builder.sources.isEmpty()) throw new IllegalArgumentException("Au moins une source est requise");
+        this.sources = List.copyOf(builder.sources);
+        this.grace = builder.grace;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        long start = System.nanoTime();
+
+        // submit (FutureTask) et non CompletableFuture : cancel(true) interrompt alors la source
+        List<Future<List<Content>>> futures = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            futures.add(executor.submit(() -> {
+                long t = System.nanoTime();
+                try {
+                    return source.retriever().retrieve(query);
+                } finally {
+                    source.stats().latency.recordNanos(System.nanoTime() - t);
+                }
+            }));
+        }
+
+        List<List<Content>> results = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) results.add(List.of());
+
+        // 1) Sources requises, chacune jusqu'à sa propre échéance
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            if (source.required()) {
+                results.set(i, await(source, futures.get(i), start + source.deadline().toNanos()));
+            }
+        }
+
+        // 2) Sources optionnelles : au plus « grace » de plus, sans dépasser leur échéance
+        boolean anyRequired = sources.stream().anyMatch(Source::required);
+        long graceEnd = anyRequired ? System.nanoTime() + grace.toNanos() : Long.MAX_VALUE;
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            if (!source.required()) {
+                long deadline = Math.min(start + source.deadline().toNanos(), graceEnd);
+                results.set(i, await(source, futures.get(i), deadline));
+            }
+        }
+        return interleave(results);
+    }
+
+    public Map<String, SourceStats> stats() {
+        Map<String, SourceStats> stats = new LinkedHashMap<>();
+        for (Source source : sources) stats.put(source.name(), source.stats());
+        return stats;
+    }
+
+    private static List<Content> await(Source source, Future<List<Content>> future, long deadlineNanos) {
+        try {
+            long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            source.stats().timeouts.increment();
+            future.cancel(true);
+        } catch (ExecutionException e) {
+            source.stats().errors.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        }
+        return List.of();
+    }
+
+    private static List<Content> interleave(List<List<Content>> results) {
+        List<Content> merged = new ArrayList<>();
+        int longest = results.stream().mapToInt(List::size).max().orElse(0);
+        for (int rank = 0; rank < longest; rank++) {
+            for (List<Content> result : results) {
+                if (rank < result.size()) merged.add(result.get(rank));
+            }
+        }
+        return merged;
+    }
+
+    public static class Builder {
+
+        private final List<Source> sources = new ArrayList<>();
+        private Duration grace = Duration.ofMillis(300);
+
+        public Builder source(String name, ContentRetriever retriever, Duration deadline) {
+            sources.add(new Source(name, retriever, deadline, true, new SourceStats()));
+            return this;
+        }
+
+        public Builder optionalSource(String name, ContentRetriever retriever, Duration deadline) {
+            sources.add(new Source(name, retriever, deadline, false, new SourceStats()));
+            return this;
+        }
+
+        /**
+         * Attente supplémentaire accordée aux sources optionnelles après la fin des sources requises.
+         */
+        public Builder grace(Duration grace) {
+            this.grace = grace;
+            return this;
+        }
+
+        public FanOutContentRetriever build() {
+            return new FanOutContentRetriever(this);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Recherche hybride : BM25 (termes exacts) + embeddings (sens), fusionnés par Reciprocal Rank
+ * Fusion — score = Σ 1 / (rrfK + rang) sur les deux listes.
+ * <p>
+ * RRF n'utilise que les rangs : pas besoin de rendre comparables un score BM25 et une similarité
+ * cosinus. Les segments des deux listes sont rapprochés par leur texte.
+ * <p>
+ * Un filtre de métadonnées, éventuellement choisi par requête ({@link Builder#dynamicFilter}),
+ * s'applique aux deux recherches.
+ */
+public class HybridContentRetriever implements ContentRetriever {
+
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EmbeddingModel embeddingModel;
+    private final Bm25Index lexicalIndex;
+    private final int maxResults;
+    private final int candidates;
+    private final double minScore;
+    private final int rrfK;
+    private final Function<Query, Filter> filter;
+
+    private HybridContentRetriever(Builder builder) {
+        this.embeddingStore = Objects.requireNonNull(builder.embeddingStore, "embeddingStore");
+        this.embeddingModel = Objects.requireNonNull(builder.embeddingModel, "embeddingModel");
+        this.lexicalIndex = Objects.requireNonNull(builder.lexicalIndex, "lexicalIndex");
+        this.maxResults = builder.maxResults;
+        this.candidates = Math.max(builder.candidates, builder.maxResults);
+        this.minScore = builder.minScore;
+        this.rrfK = builder.rrfK;
+        this.filter = builder.filter;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        Map<String, TextSegment> segments = new LinkedHashMap<>();
+        Map<String, Double> fused = new LinkedHashMap<>();
+        Filter metadataFilter = filter.apply(query);
+
+        List<Bm25Index.Match> lexical = lexicalIndex.search(query.text(), candidates, metadataFilter);
+        for (int rank = 0; rank < lexical.size(); rank++) {
+            accumulate(lexical.get(rank).segment(), rank, segments, fused);
+        }
+
+        List<EmbeddingMatch<TextSegment>> semantic = embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(embeddingModel.embed(query.text()).content())
+                .maxResults(candidates)
+                .minScore(minScore)
+                .filter(metadataFilter)
+                .build()).matches();
+        for (int rank = 0; rank < semantic.size(); rank++) {
+            if (semantic.get(rank).embedded() != null) accumulate(semantic.get(rank).embedded(), rank, segments, fused);
+        }
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(fused.entrySet());
+        ranked.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+
+        List<Content> contents = new ArrayList<>(Math.min(maxResults, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < maxResults; i++) {
+            contents.add(Content.from(segments.get(ranked.get(i).getKey())));
+        }
+        return contents;
+    }
+
+    private void accumulate(TextSegment segment, int rank, Map<String, TextSegment> segments, Map<String, Double> fused) {
+        segments.putIfAbsent(segment.text(), segment);
+        fused.merge(segment.text(), 1.0 / (rrfK + rank + 1), Double::sum);
+    }
+
+    public static class Builder {
+
+        private EmbeddingStore<TextSegment> embeddingStore;
+        private EmbeddingModel embeddingModel;
+        private Bm25Index lexicalIndex;
+        private int maxResults = 3;
+        private int candidates = 20;
+        private double minScore = 0;
+        private int rrfK = 60;
+        private Function<Query, Filter> filter = query -> null;
+
+        public Builder embeddingStore(EmbeddingStore<TextSegment> embeddingStore) {
+            this.embeddingStore = embeddingStore;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder lexicalIndex(Bm25Index lexicalIndex) {
+            this.lexicalIndex = lexicalIndex;
+            return this;
+        }
+
+        public Builder maxResults(int maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        /**
+         * Nombre de résultats demandés à chacune des deux recherches avant fusion.
+         */
+        public Builder candidates(int candidates) {
+            this.candidates = candidates;
+            return this;
+        }
+
+        /**
+         * Score minimal côté embeddings ; un segment trouvé par BM25 n'y est pas soumis.
+         */
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        public Builder rrfK(int rrfK) {
+            this.rrfK = rrfK;
+            return this;
+        }
+
+        public Builder filter(Filter filter) {
+            this.filter = query -> filter;
+            return this;
+        }
+
+        /**
+         * Filtre choisi pour chaque requête ({@code null} : pas de filtre), par exemple par un
+         * {@code routing.FilterRouter}.
+         */
+        public Builder dynamicFilter(Function<Query, Filter> filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        public HybridContentRetriever build() {
+            return new HybridContentRetriever(this);
+        }
+    }
+}
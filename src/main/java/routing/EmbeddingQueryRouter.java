@@ -0,0 +1,154 @@
+package routing;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.QueryRouter;
+import embedding.CachingEmbeddingModel;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routeur local : compare l'embedding de la requête au profil de chaque retriever (embedding de
+ * sa description) et ne consulte le routeur LLM de repli que si la décision n'est pas sûre.
+ * <p>
+ * Décision locale si la meilleure similarité dépasse {@code acceptAbove} avec au moins
+ * {@code margin} d'avance sur la deuxième ; aucun retriever si elle est sous {@code rejectBelow}.
+ * Toutes les décisions (locales ou LLM) sont mémorisées par texte de requête normalisé.
+ */
+public class EmbeddingQueryRouter implements QueryRouter {
+
+    public record Stats(long memoHits, long localDecisions, long fallbacks) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "routage : %d mémorisés, %d locaux, %d via LLM",
+                    memoHits, localDecisions, fallbacks);
+        }
+    }
+
+    private final RouteClassifier<ContentRetriever> classifier;
+    private final QueryRouter fallback;
+    private final Map<String, List<ContentRetriever>> decisions;
+
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder localDecisions = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private EmbeddingQueryRouter(Builder builder) {
+        this.classifier = new RouteClassifier<>(Objects.requireNonNull(builder.embeddingModel, "embeddingModel"),
+                builder.profiles, builder.acceptAbove, builder.margin, builder.rejectBelow);
+        this.fallback = Objects.requireNonNull(builder.fallback, "fallback");
+
+        int maxDecisions = builder.maxDecisions;
+        this.decisions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<ContentRetriever>> eldest) {
+                return size() > maxDecisions;
+            }
+        };
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        String key = CachingEmbeddingModel.normalizedKey(query.text());
+        synchronized (decisions) {
+            List<ContentRetriever> known = decisions.get(key);
+            if (known != null) {
+                memoHits.increment();
+                return known;
+            }
+        }
+
+        List<ContentRetriever> decision = classifier.classify(query.text());
+        if (decision != null) {
+            localDecisions.increment();
+        } else {
+            fallbacks.increment();
+            decision = List.copyOf(fallback.route(query));
+        }
+        synchronized (decisions) {
+            decisions.put(key, decision);
+        }
+        return decision;
+    }
+
+    public Stats stats() {
+        return new Stats(memoHits.sum(), localDecisions.sum(), fallbacks.sum());
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private final Map<ContentRetriever, Object> profiles = new LinkedHashMap<>();
+        private QueryRouter fallback;
+        private double acceptAbove = 0.35;
+        private double margin = 0.1;
+        private double rejectBelow = -1;
+        private int maxDecisions = 10_000;
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder route(ContentRetriever retriever, String description) {
+            profiles.put(retriever, description);
+            return this;
+        }
+
+        /**
+         * Profil déjà calculé, par exemple le centroïde des segments d'un store.
+         */
+        public Builder route(ContentRetriever retriever, Embedding profile) {
+            profiles.put(retriever, profile);
+            return this;
+        }
+
+        public Builder routes(Map<ContentRetriever, String> descriptions) {
+            profiles.putAll(descriptions);
+            return this;
+        }
+
+        public Builder fallback(QueryRouter fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        public Builder acceptAbove(double acceptAbove) {
+            this.acceptAbove = acceptAbove;
+            return this;
+        }
+
+        public Builder margin(double margin) {
+            this.margin = margin;
+            return this;
+        }
+
+        public Builder rejectBelow(double rejectBelow) {
+            this.rejectBelow = rejectBelow;
+            return this;
+        }
+
+        public Builder maxDecisions(int maxDecisions) {
+            if (maxDecisions <= 0) throw new IllegalArgumentException("maxDecisions doit être > 0");
+            this.maxDecisions = maxDecisions;
+            return this;
+        }
+
+        public EmbeddingQueryRouter build() {
+            return new EmbeddingQueryRouter(this);
+        }
+    }
+}
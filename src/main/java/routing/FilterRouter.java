@@ -0,0 +1,153 @@
+package routing;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.filter.Filter;
+import embedding.CachingEmbeddingModel;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Routage par filtre de métadonnées : au lieu de choisir un store parmi plusieurs, choisit le
+ * filtre (par exemple {@code topic = "ia"}) appliqué à la recherche dans un store unique.
+ * <p>
+ * S'utilise comme {@code dynamicFilter} d'un retriever. Même classifieur que
+ * {@link EmbeddingQueryRouter} ; si la décision n'est pas sûre, le repli choisit le filtre
+ * (par défaut aucun : tous les sujets sont cherchés). Décisions mémorisées par texte normalisé.
+ */
+public class FilterRouter implements Function<Query, Filter> {
+
+    public record Stats(long memoHits, long localDecisions, long fallbacks) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "routage par filtre : %d mémorisés, %d locaux, %d replis",
+                    memoHits, localDecisions, fallbacks);
+        }
+    }
+
+    private final RouteClassifier<Filter> classifier;
+    private final Function<Query, Filter> fallback;
+    // Optional : « aucun filtre » est aussi une décision à mémoriser
+    private final Map<String, Optional<Filter>> decisions;
+
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder localDecisions = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private FilterRouter(Builder builder) {
+        if (builder.profiles.isEmpty()) throw new IllegalArgumentException("Au moins une route est nécessaire");
+        this.classifier = new RouteClassifier<>(Objects.requireNonNull(builder.embeddingModel, "embeddingModel"),
+                builder.profiles, builder.acceptAbove, builder.margin, -1);
+        this.fallback = Objects.requireNonNull(builder.fallback, "fallback");
+
+        int maxDecisions = builder.maxDecisions;
+        this.decisions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<Filter>> eldest) {
+                return size() > maxDecisions;
+            }
+        };
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Filtre à appliquer à la recherche, ou {@code null} pour chercher dans tout le store.
+     */
+    @Override
+    public Filter apply(Query query) {
+        String key = CachingEmbeddingModel.normalizedKey(query.text());
+        synchronized (decisions) {
+            Optional<Filter> known = decisions.get(key);
+            if (known != null) {
+                memoHits.increment();
+                return known.orElse(null);
+            }
+        }
+
+        List<Filter> decision = classifier.classify(query.text());
+        Filter filter;
+        if (decision != null && !decision.isEmpty()) {
+            localDecisions.increment();
+            filter = decision.getFirst();
+        } else {
+            fallbacks.increment();
+            filter = fallback.apply(query);
+        }
+        synchronized (decisions) {
+            decisions.put(key, Optional.ofNullable(filter));
+        }
+        return filter;
+    }
+
+    public Stats stats() {
+        return new Stats(memoHits.sum(), localDecisions.sum(), fallbacks.sum());
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private final Map<Filter, Object> profiles = new LinkedHashMap<>();
+        private Function<Query, Filter> fallback = query -> null;
+        private double acceptAbove = 0.35;
+        private double margin = 0.1;
+        private int maxDecisions = 10_000;
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder route(Filter filter, String description) {
+            profiles.put(filter, description);
+            return this;
+        }
+
+        /**
+         * Profil déjà calculé, par exemple le centroïde des segments du sujet.
+         */
+        public Builder route(Filter filter, Embedding profile) {
+            profiles.put(filter, profile);
+            return this;
+        }
+
+        /**
+         * Filtre utilisé quand la décision n'est pas sûre ({@code null} : aucun filtre).
+         */
+        public Builder fallback(Function<Query, Filter> fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        public Builder acceptAbove(double acceptAbove) {
+            this.acceptAbove = acceptAbove;
+            return this;
+        }
+
+        public Builder margin(double margin) {
+            this.margin = margin;
+            return this;
+        }
+
+        public Builder maxDecisions(int maxDecisions) {
+            if (maxDecisions <= 0) throw new IllegalArgumentException("maxDecisions doit être > 0");
+            this.maxDecisions = maxDecisions;
+            return this;
+        }
+
+        public FilterRouter build() {
+            return new FilterRouter(this);
+        }
+    }
+}
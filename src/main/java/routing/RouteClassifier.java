@@ -0,0 +1,73 @@
+package routing;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import store.VectorKernels;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifieur par embeddings partagé par les routeurs : chaque cible (retriever, filtre...) a un
+ * profil, embedding de sa description ou vecteur fourni, comparé à celui de la requête.
+ */
+final class RouteClassifier<T> {
+
+    private record Route<T>(T target, float[] profile) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final List<Route<T>> routes;
+    private final double acceptAbove;
+    private final double margin;
+    private final double rejectBelow;
+
+    /**
+     * @param profiles description ({@code String}) ou profil ({@code Embedding}) de chaque cible
+     */
+    RouteClassifier(EmbeddingModel embeddingModel, Map<T, Object> profiles,
+                    double acceptAbove, double margin, double rejectBelow) {
+        this.embeddingModel = embeddingModel;
+        this.acceptAbove = acceptAbove;
+        this.margin = margin;
+        this.rejectBelow = rejectBelow;
+
+        this.routes = new ArrayList<>();
+        for (Map.Entry<T, Object> entry : profiles.entrySet()) {
+            Embedding profile = entry.getValue() instanceof Embedding embedding
+                    ? embedding
+                    : embeddingModel.embed((String) entry.getValue()).content();
+            routes.add(new Route<>(entry.getKey(), VectorKernels.normalized(profile.vector())));
+        }
+    }
+
+    /**
+     * Cible retenue (liste vide si la meilleure similarité est sous {@code rejectBelow}), ou
+     * {@code null} si la décision n'est pas sûre : meilleure similarité sous {@code acceptAbove}
+     * ou moins de {@code margin} d'avance sur la deuxième.
+     */
+    List<T> classify(String text) {
+        float[] vector = VectorKernels.normalized(embeddingModel.embed(text).content().vector());
+
+        Route<T> best = null;
+        float bestSimilarity = -1f;
+        float secondSimilarity = -1f;
+        for (Route<T> route : routes) {
+            float similarity = VectorKernels.dot(vector, route.profile(), 0, vector.length);
+            if (similarity > bestSimilarity) {
+                secondSimilarity = bestSimilarity;
+                bestSimilarity = similarity;
+                best = route;
+            } else if (similarity > secondSimilarity) {
+                secondSimilarity = similarity;
+            }
+        }
+
+        if (best == null || bestSimilarity < rejectBelow) return List.of();
+        if (bestSimilarity >= acceptAbove && bestSimilarity - secondSimilarity >= margin) {
+            return List.of(best.target());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,141 @@
+package server;
+
+import assistant.SessionAssistant;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.LatencyHistogram;
+import metrics.RagMetrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serveur HTTP minimal autour d'un SessionAssistant : un thread virtuel par requête, les appels
+ * au LLM bloquants ne monopolisent donc pas de thread système.
+ * <ul>
+ *     <li>{@code POST /chat}, en-tête {@code X-Session-Id}, corps = question → réponse en texte brut</li>
+ *     <li>{@code GET /stats} → sessions actives, évictions, latences</li>
+ *     <li>{@code GET /metrics} → métriques par étape au format texte Prometheus</li>
+ * </ul>
+ * Tout ce que l'assistant partage entre sessions (modèle d'embedding, stores, caches) doit être
+ * thread-safe ; seules les mémoires de conversation sont propres à chaque session.
+ */
+public class AssistantServer implements AutoCloseable {
+
+    public static final String SESSION_HEADER = "X-Session-Id";
+
+    private final SessionAssistant assistant;
+    private final SessionChatMemories memories;
+    private final HttpServer http;
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final RagMetrics metrics;
+
+    public AssistantServer(SessionAssistant assistant, SessionChatMemories memories, int port) throws IOException {
+        this(assistant, memories, new RagMetrics(), port);
+    }
+
+    /**
+     * @param metrics métriques alimentées par les composants de l'assistant ; le serveur y ajoute
+     *                la durée de chaque tour
+     */
+    public AssistantServer(SessionAssistant assistant, SessionChatMemories memories, RagMetrics metrics, int port)
+            throws IOException {
+        this.assistant = assistant;
+        this.memories = memories;
+        this.metrics = metrics;
+        this.http = HttpServer.create(new InetSocketAddress(port), 0);
+        http.setExecutor(requests);
+        http.createContext("/chat", this::chat);
+        http.createContext("/stats", this::stats);
+        http.createContext("/metrics", this::metrics);
+    }
+
+    public AssistantServer start() {
+        // Balayage des sessions inactives : deux fois par idleTimeout, au plus une fois par seconde
+        long period = Math.max(1_000, memories.idleTimeout().toMillis() / 2);
+        evictor.scheduleAtFixedRate(memories::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        http.start();
+        return this;
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public LatencyHistogram latency() {
+        return metrics.turns();
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+        evictor.shutdownNow();
+        requests.shutdownNow();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                reply(exchange, 405, "POST attendu");
+                return;
+            }
+            String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (sessionId == null || sessionId.isBlank()) {
+                reply(exchange, 400, "En-tête " + SESSION_HEADER + " manquant");
+                return;
+            }
+            String question = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+            long start = System.nanoTime();
+            String answer;
+            try {
+                // Une seule requête à la fois par session : la mémoire de conversation n'est pas thread-safe
+                answer = memories.turn(sessionId, () -> assistant.chat(sessionId, question));
+            } catch (RuntimeException e) {
+                reply(exchange, 500, "Erreur : " + e.getMessage());
+                return;
+            } finally {
+                metrics.turns().recordNanos(System.nanoTime() - start);
+            }
+            reply(exchange, 200, answer);
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            reply(exchange, 200, "sessions=" + memories.size() + " évictions=" + memories.evictions()
+                    + "\nchat " + metrics.turns() + "\n" + metrics + "\n");
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] bytes = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package server;
+
+import assistant.CachingAssistant;
+import assistant.SessionAssistant;
+import cache.SemanticCache;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.aggregator.DefaultContentAggregator;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.router.DefaultQueryRouter;
+import dev.langchain4j.service.AiServices;
+import embedding.CachingEmbeddingModel;
+import embedding.MicroBatchingEmbeddingModel;
+import embedding.PooledOnnxEmbeddingModel;
+import ingestion.ChunkingStrategy;
+import ingestion.DocumentSnapshots;
+import ingestion.IncrementalIndexer;
+import metrics.RagMetrics;
+import prompt.BudgetedChatMemory;
+import prompt.BudgetedContentInjector;
+import retrieval.BudgetedReRanker;
+import retrieval.CrossEncoderScoringModel;
+import store.MappedEmbeddingStore;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * RAG naïf en mode serveur : mêmes réglages que RagNaif, mais une mémoire par session.
+ * <p>
+ * Les documents sont pris dans {@code -Ddocs=src/main/resources} et réindexés à chaud à chaque
+ * ajout ou modification de PDF, sans redémarrage. Découpage {@code -Dchunking=structure}
+ * (sections et paragraphes), {@code semantic} ou {@code fixed} (l'ancien {@code recursive(300, 30)}) ;
+ * changer de stratégie réindexe les documents au démarrage.
+ * <p>
+ * {@code -Dport=8080}, {@code -Dsession.idle=PT30M} (durée ISO-8601 avant éviction). Latences par
+ * étape et compteurs sur {@code GET /metrics}, au format Prometheus.
+ * <p>
+ * {@code -Dreranker=dir} (répertoire avec {@code model.onnx} et {@code tokenizer.json} d'un
+ * cross-encoder) : 20 candidats sont retrouvés puis re-classés localement, 2 sont gardés, avec un
+ * budget de {@code -Dreranker.budget=PT0.2S}.
+ * <pre>
+ * curl -H 'X-Session-Id: alice' --data 'Qu'\''est-ce que le RAG ?' http://localhost:8080/chat
+ * </pre>
+ */
+public class RagServer {
+
+    public static void main(String[] args) throws Exception {
+
+        RagMetrics metrics = new RagMetrics();
+
+        ChatModel model = GoogleAiGeminiChatModel.builder()
+                .apiKey(System.getenv("GEMINI_KEY"))
+                .modelName("gemini-2.5-flash")
+                .temperature(0.2)
+                .listeners(List.of(metrics.chatModelListener()))
+                .build();
+
+        // Sessions ONNX en pool : l'indexation des gros documents occupe tous les cœurs
+        PooledOnnxEmbeddingModel embeddingModel = PooledOnnxEmbeddingModel.allMiniLmL6V2().build();
+        // Questions concurrentes regroupées en lots, derrière le cache des questions déjà vues
+        MicroBatchingEmbeddingModel batchedEmbeddings = MicroBatchingEmbeddingModel.builder()
+                .delegate(embeddingModel)
+                .build();
+        CachingEmbeddingModel queryEmbeddings = new CachingEmbeddingModel(batchedEmbeddings, 10_000);
+
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(Paths.get("index", "docs"));
+        IncrementalIndexer indexer = IncrementalIndexer.builder()
+                .directory(Paths.get(System.getProperty("docs", "src/main/resources")))
+                .store(store)
+                .embeddingModel(embeddingModel)
+                .chunking(ChunkingStrategy.named(System.getProperty("chunking", "structure"), embeddingModel))
+                .snapshots(DocumentSnapshots.open(Paths.get("index", "snapshots")))
+                .build()
+                .start();
+
+        // Historique borné en tokens (1 500) plutôt qu'à 10 messages, début de conversation résumé
+        SessionChatMemories memories = SessionChatMemories.builder()
+                .memoryFactory(id -> BudgetedChatMemory.builder().id(id).maxTokens(1_500).build())
+                .idleTimeout(Duration.parse(System.getProperty("session.idle", "PT30M")))
+                .build();
+
+        String rerankerDir = System.getProperty("reranker");
+        BudgetedReRanker reRanker = rerankerDir == null ? null : BudgetedReRanker.builder()
+                .scoringModel(CrossEncoderScoringModel.load(Paths.get(rerankerDir)))
+                .maxResults(2)
+                .minScore(0.1)
+                .budget(Duration.parse(System.getProperty("reranker.budget", "PT0.2S")))
+                .build();
+        SessionAssistant assistant = reRanker == null
+                ? assistant(model, retriever(queryEmbeddings, store, metrics), memories, metrics)
+                : assistant(model, retriever(queryEmbeddings, store, metrics, 20, 0.3), memories, metrics, reRanker);
+        // Cache sémantique des réponses, optionnel : -DsemanticCache=true (partagé entre sessions)
+        if (Boolean.getBoolean("semanticCache")) {
+            assistant = CachingAssistant.of(assistant, SemanticCache.builder()
+                    .embeddingModel(queryEmbeddings)
+                    .indexVersion(store::generation)
+                    .build(), memories);
+        }
+
+        AssistantServer server = new AssistantServer(assistant, memories, metrics, Integer.getInteger("port", 8080)).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (reRanker != null) reRanker.close();
+            try {
+                indexer.close();
+            } catch (IOException e) {
+                // arrêt de la JVM : rien à faire
+            }
+        }));
+        System.out.println("Serveur RAG prêt : POST http://localhost:" + server.port() + "/chat");
+    }
+
+    /**
+     * Câblage partagé avec {@code AssistantServerTest} et {@code ServerLoadReport} : le modèle
+     * d'embedding et le store sont partagés par toutes les sessions (tous deux thread-safe), la
+     * mémoire vient du provider. Le routage et l'assemblage du prompt sont instrumentés ici, le LLM
+     * par son écouteur. Les passages injectés sont dédoublonnés, fusionnés et limités à 800 tokens.
+     */
+    static SessionAssistant assistant(ChatModel model, ContentRetriever retriever, ChatMemoryProvider memories,
+                                      RagMetrics metrics) {
+        return assistant(model, retriever, memories, metrics, new DefaultContentAggregator());
+    }
+
+    static SessionAssistant assistant(ChatModel model, ContentRetriever retriever, ChatMemoryProvider memories,
+                                      RagMetrics metrics, ContentAggregator aggregator) {
+        return AiServices.builder(SessionAssistant.class)
+                .chatModel(model)
+                .chatMemoryProvider(memories)
+                .retrievalAugmentor(DefaultRetrievalAugmentor.builder()
+                        .queryRouter(metrics.router(new DefaultQueryRouter(retriever)))
+                        .contentAggregator(metrics.contentAggregator(aggregator))
+                        .contentInjector(metrics.contentInjector(BudgetedContentInjector.builder().maxTokens(800).build()))
+                        .build())
+                .build();
+    }
+
+    static ContentRetriever retriever(EmbeddingModel embeddingModel, MappedEmbeddingStore store, RagMetrics metrics) {
+        return retriever(embeddingModel, store, metrics, 2, 0.5);
+    }
+
+    static ContentRetriever retriever(EmbeddingModel embeddingModel, MappedEmbeddingStore store, RagMetrics metrics,
+                                      int maxResults, double minScore) {
+        return EmbeddingStoreContentRetriever.builder()
+                .embeddingModel(metrics.queryEmbeddings(embeddingModel))
+                .embeddingStore(metrics.store(store))
+                .maxResults(maxResults)
+                .minScore(minScore)
+                .build();
+    }
+
+    static Path getResourcePath(String name) throws URISyntaxException {
+        return Paths.get(Objects.requireNonNull(
+                RagServer.class.getClassLoader().getResource(name),
+                "Fichier introuvable : " + name
+        ).toURI());
+    }
+}
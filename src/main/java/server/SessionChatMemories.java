@@ -0,0 +1,166 @@
+package server;
+
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ChatMemoryProvider par identifiant de session : une mémoire par session (par défaut une
+ * MessageWindowChatMemory), créée au premier message et évincée après {@code idleTimeout} sans
+ * activité.
+ * <p>
+ * L'éviction n'est pas faite à chaque appel : le serveur appelle {@link #evictIdle()} à
+ * intervalle régulier. Les mémoires ne sont pas thread-safe : {@link #turn} exécute les tours
+ * d'une même session l'un après l'autre, et une session dont un tour est en cours n'est jamais
+ * évincée.
+ */
+public class SessionChatMemories implements ChatMemoryProvider {
+
+    private static final class Session {
+
+        final ChatMemory memory;
+        final ReentrantLock turnLock = new ReentrantLock();
+        volatile long lastAccessMillis;
+        // Tours en cours ou en attente ; modifié uniquement dans les compute de la map
+        int activeTurns;
+
+        Session(ChatMemory memory, long now) {
+            this.memory = memory;
+            this.lastAccessMillis = now;
+        }
+    }
+
+    private final Function<Object, ChatMemory> memoryFactory;
+    private final long idleTimeoutMillis;
+    private final Clock clock;
+    private final Map<Object, Session> sessions = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+
+    private SessionChatMemories(Builder builder) {
+        int maxMessages = builder.maxMessages;
+        this.memoryFactory = builder.memoryFactory != null
+                ? builder.memoryFactory
+                : id -> MessageWindowChatMemory.builder().id(id).maxMessages(maxMessages).build();
+        this.idleTimeoutMillis = builder.idleTimeout.toMillis();
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatMemory get(Object sessionId) {
+        return touch(sessionId, 0).memory;
+    }
+
+    /**
+     * Exécute un tour de la session : les tours concurrents d'une même session attendent leur
+     * tour, et la session ne peut pas être évincée pendant ce temps.
+     */
+    public <T> T turn(Object sessionId, Supplier<T> turn) {
+        Session session = touch(sessionId, 1);
+        session.turnLock.lock();
+        try {
+            return turn.get();
+        } finally {
+            session.turnLock.unlock();
+            long now = clock.millis();
+            sessions.computeIfPresent(sessionId, (id, current) -> {
+                current.activeTurns--;
+                current.lastAccessMillis = now;
+                return current;
+            });
+        }
+    }
+
+    /**
+     * Supprime les sessions inactives depuis plus de {@code idleTimeout} ; renvoie leur nombre.
+     */
+    public int evictIdle() {
+        long limit = clock.millis() - idleTimeoutMillis;
+        int evicted = 0;
+        for (Object sessionId : sessions.keySet()) {
+            Session[] removed = new Session[1];
+            // Test et suppression atomiques vis-à-vis de get() et turn(), qui passent aussi par compute
+            sessions.computeIfPresent(sessionId, (id, session) -> {
+                if (session.activeTurns > 0 || session.lastAccessMillis >= limit) return session;
+                removed[0] = session;
+                return null;
+            });
+            if (removed[0] != null) {
+                removed[0].memory.clear();
+                evicted++;
+            }
+        }
+        evictions.add(evicted);
+        return evicted;
+    }
+
+    private Session touch(Object sessionId, int turns) {
+        long now = clock.millis();
+        return sessions.compute(sessionId, (id, session) -> {
+            if (session == null) session = new Session(memoryFactory.apply(id), now);
+            session.lastAccessMillis = now;
+            session.activeTurns += turns;
+            return session;
+        });
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public Duration idleTimeout() {
+        return Duration.ofMillis(idleTimeoutMillis);
+    }
+
+    public static class Builder {
+
+        private int maxMessages = 10;
+        private Function<Object, ChatMemory> memoryFactory;
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        private Clock clock = Clock.systemUTC();
+
+        public Builder maxMessages(int maxMessages) {
+            if (maxMessages <= 0) throw new IllegalArgumentException("maxMessages doit être > 0");
+            this.maxMessages = maxMessages;
+            return this;
+        }
+
+        /**
+         * Mémoire créée pour chaque nouvelle session ; remplace la fenêtre de {@code maxMessages}.
+         */
+        public Builder memoryFactory(Function<Object, ChatMemory> memoryFactory) {
+            this.memoryFactory = memoryFactory;
+            return this;
+        }
+
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public SessionChatMemories build() {
+            return new SessionChatMemories(this);
+        }
+    }
+}
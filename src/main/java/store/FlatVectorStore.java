@@ -0,0 +1,244 @@
+package store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+/**
+ * Recherche exacte sur un unique tableau float[] contigu de vecteurs pré-normalisés.
+ * <p>
+ * Le cosinus devient un simple produit scalaire (SIMD via {@link VectorKernels}) et le top-k est
+ * maintenu dans un tas de primitives : une requête n'alloue que ses résultats. Les embeddings
+ * renvoyés dans les correspondances sont les vecteurs normalisés.
+ */
+public class FlatVectorStore implements EmbeddingStore<TextSegment> {
+
+    // Vue publiée après chaque écriture ; les ajouts écrivent au-delà de count, invisible des lecteurs
+    private volatile Snapshot snapshot = new Snapshot(0, new float[0], new String[0], new TextSegment[0], 0);
+
+    private record Snapshot(int dimension, float[] vectors, String[] ids, TextSegment[] segments, int count) {
+    }
+
+    public int size() {
+        return snapshot.count();
+    }
+
+    // ---- EmbeddingStore ----
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public synchronized void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings et segments doivent avoir la même taille");
+        }
+        if (embeddings.isEmpty()) return;
+
+        Snapshot current = snapshot;
+        int dimension = current.dimension() > 0 ? current.dimension() : embeddings.get(0).dimension();
+        int count = current.count() + embeddings.size();
+
+        float[] vectors = current.vectors();
+        String[] allIds = current.ids();
+        TextSegment[] segments = current.segments();
+        if (count > allIds.length) {
+            int capacity = Math.max(count, allIds.length + (allIds.length >> 1) + 16);
+            vectors = Arrays.copyOf(vectors, capacity * dimension);
+            allIds = Arrays.copyOf(allIds, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+        }
+
+        for (int i = 0; i < embeddings.size(); i++) {
+            Embedding embedding = embeddings.get(i);
+            if (embedding.dimension() != dimension) {
+                throw new IllegalArgumentException(
+                        "Dimension attendue " + dimension + ", reçue " + embedding.dimension());
+            }
+            int index = current.count() + i;
+            System.arraycopy(VectorKernels.normalized(embedding.vector()), 0, vectors, index * dimension, dimension);
+            allIds[index] = ids.get(i);
+            segments[index] = embedded == null ? null : embedded.get(i);
+        }
+        snapshot = new Snapshot(dimension, vectors, allIds, segments, count);
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<String> ids) {
+        Set<String> toRemove = new HashSet<>(ids);
+        Snapshot current = snapshot;
+        retain(i -> !toRemove.contains(current.ids()[i]));
+    }
+
+    @Override
+    public synchronized void removeAll(Filter filter) {
+        Snapshot current = snapshot;
+        retain(i -> current.segments()[i] == null || !filter.test(current.segments()[i].metadata()));
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        snapshot = new Snapshot(0, new float[0], new String[0], new TextSegment[0], 0);
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        Snapshot current = snapshot;
+        int dimension = current.dimension();
+        int k = request.maxResults();
+        Filter filter = request.filter();
+        if (current.count() == 0 || k <= 0) return new EmbeddingSearchResult<>(List.of());
+
+        float[] query = VectorKernels.normalized(request.queryEmbedding().vector());
+        // minScore est exprimé en score de pertinence ((cos + 1) / 2) : on le convertit une seule fois
+        float minCosine = (float) (2 * request.minScore() - 1);
+
+        TopK top = new TopK(k);
+        float[] vectors = current.vectors();
+        for (int i = 0; i < current.count(); i++) {
+            if (filter != null) {
+                TextSegment segment = current.segments()[i];
+                if (segment == null || !filter.test(segment.metadata())) continue;
+            }
+            float cosine = VectorKernels.dot(query, vectors, i * dimension, dimension);
+            if (cosine >= minCosine) top.offer(i, cosine);
+        }
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(top.size);
+        for (int slot : top.sortedSlots()) {
+            int index = top.indexes[slot];
+            float[] vector = Arrays.copyOfRange(vectors, index * dimension, (index + 1) * dimension);
+            matches.add(new EmbeddingMatch<>(RelevanceScore.fromCosineSimilarity(top.scores[slot]),
+                    current.ids()[index], Embedding.from(vector), current.segments()[index]));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    private void retain(IntPredicate keep) {
+        Snapshot current = snapshot;
+        int dimension = current.dimension();
+        float[] vectors = new float[current.count() * dimension];
+        String[] ids = new String[current.count()];
+        TextSegment[] segments = new TextSegment[current.count()];
+
+        int count = 0;
+        for (int i = 0; i < current.count(); i++) {
+            if (!keep.test(i)) continue;
+            System.arraycopy(current.vectors(), i * dimension, vectors, count * dimension, dimension);
+            ids[count] = current.ids()[i];
+            segments[count] = current.segments()[i];
+            count++;
+        }
+        if (count == current.count()) return;
+        snapshot = new Snapshot(dimension, vectors, ids, segments, count);
+    }
+
+    /**
+     * Tas-min de taille fixe sur des primitives (indice, score) : la racine est le moins bon retenu.
+     */
+    static final class TopK {
+
+        final int[] indexes;
+        final float[] scores;
+        int size;
+
+        TopK(int k) {
+            this.indexes = new int[k];
+            this.scores = new float[k];
+        }
+
+        void offer(int index, float score) {
+            if (size < indexes.length) {
+                indexes[size] = index;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                indexes[0] = index;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Positions dans le tas, du meilleur score au moins bon.
+         */
+        int[] sortedSlots() {
+            int[] slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                int j = i;
+                while (j > 0 && scores[slots[j - 1]] < scores[i]) {
+                    slots[j] = slots[j - 1];
+                    j--;
+                }
+                slots[j] = i;
+            }
+            return slots;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[i] >= scores[parent]) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+                if (scores[i] <= scores[smallest]) break;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int index = indexes[a];
+            indexes[a] = indexes[b];
+            indexes[b] = index;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
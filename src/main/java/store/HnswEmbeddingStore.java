@@ -0,0 +1,491 @@
+package store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * EmbeddingStore approximatif basé sur un graphe HNSW (Hierarchical Navigable Small World).
+ * <p>
+ * Paramètres : {@code m} (voisins par nœud), {@code efConstruction} (largeur de recherche à
+ * l'insertion) et {@code efSearch} (largeur de recherche à la requête, au moins maxResults).
+ * Les suppressions sont logiques : les nœuds supprimés restent dans le graphe pour la navigation
+ * mais ne sont plus jamais renvoyés.
+ */
+public class HnswEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int liveCount;
+
+    private static final class Node {
+        final String id;
+        final float[] vector;
+        final float inverseNorm;
+        final TextSegment segment;
+        final int[][] links;
+        final int[] linkCounts;
+        boolean deleted;
+
+        Node(String id, float[] vector, TextSegment segment, int level, int m, int maxLinksLevel0) {
+            this.id = id;
+            this.vector = vector;
+            this.inverseNorm = inverseNorm(vector);
+            this.segment = segment;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[(l == 0 ? maxLinksLevel0 : m) + 1];
+            }
+        }
+
+        int level() {
+            return links.length - 1;
+        }
+    }
+
+    private record Scored(int node, float similarity) {
+    }
+
+    private static final Comparator<Scored> NEAREST_FIRST =
+            Comparator.comparingDouble(Scored::similarity).reversed();
+    private static final Comparator<Scored> FARTHEST_FIRST =
+            Comparator.comparingDouble(Scored::similarity);
+
+    private HnswEmbeddingStore(Builder builder) {
+        this.m = builder.m;
+        this.maxLinksLevel0 = 2 * builder.m;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.levelMultiplier = 1 / Math.log(builder.m);
+        this.random = new Random(builder.seed);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void efSearch(int efSearch) {
+        if (efSearch <= 0) throw new IllegalArgumentException("efSearch doit être > 0");
+        this.efSearch = efSearch;
+    }
+
+    public int efSearch() {
+        return efSearch;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- EmbeddingStore ----
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings et segments doivent avoir la même taille");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                Integer existing = indexById.get(ids.get(i));
+                if (existing != null) markDeleted(existing);
+                insert(ids.get(i), embeddings.get(i).vector(), embedded == null ? null : embedded.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer index = indexById.get(id);
+                if (index != null) markDeleted(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                if (!node.deleted && node.segment != null && filter.test(node.segment.metadata())) {
+                    markDeleted(i);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            nodes.clear();
+            indexById.clear();
+            entryPoint = -1;
+            maxLevel = -1;
+            liveCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Avec un filtre, la recherche porte sur les nœuds qui le satisfont : s'ils sont trop rares
+     * pour qu'un parcours du graphe les atteigne à moindre coût, on les compare tous (recherche
+     * exacte) ; sinon {@code ef} double jusqu'à obtenir maxResults correspondances, les nœuds
+     * écartés par le filtre ou supprimés ne comptant pas.
+     */
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = normalized(request.queryEmbedding().vector());
+        Filter filter = request.filter();
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) return new EmbeddingSearchResult<>(List.of());
+            int ef = Math.max(efSearch, request.maxResults());
+
+            if (filter != null) {
+                BitSet eligible = eligible(filter);
+                int count = eligible.cardinality();
+                if (count == 0) return new EmbeddingSearchResult<>(List.of());
+                // Parcours attendu : ef / (part des nœuds éligibles) ; au-delà de count, l'exact coûte moins
+                if ((long) count * count <= (long) ef * liveCount) {
+                    return new EmbeddingSearchResult<>(exact(query, eligible, request));
+                }
+            }
+
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(query, current, level);
+            }
+            while (true) {
+                List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(request.maxResults());
+                boolean complete = collect(searchLayer(query, current, ef, 0), filter, request, matches);
+                if (complete || ef >= nodes.size()) return new EmbeddingSearchResult<>(matches);
+                ef = (int) Math.min(2L * ef, nodes.size());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ajoute les candidats retenus, du plus proche au plus éloigné ; vrai si la liste est complète
+     * (maxResults atteint, ou candidats suivants sous minScore).
+     */
+    private boolean collect(List<Scored> candidates, Filter filter, EmbeddingSearchRequest request,
+                            List<EmbeddingMatch<TextSegment>> matches) {
+        for (Scored candidate : candidates) {
+            if (matches.size() == request.maxResults()) return true;
+            Node node = nodes.get(candidate.node());
+            if (node.deleted) continue;
+            if (filter != null && (node.segment == null || !filter.test(node.segment.metadata()))) continue;
+
+            double score = RelevanceScore.fromCosineSimilarity(candidate.similarity());
+            if (score < request.minScore()) return true;   // candidats triés : les suivants sont moins bons
+            matches.add(new EmbeddingMatch<>(score, node.id, Embedding.from(node.vector), node.segment));
+        }
+        return matches.size() == request.maxResults();
+    }
+
+    private BitSet eligible(Filter filter) {
+        BitSet eligible = new BitSet(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (!node.deleted && node.segment != null && filter.test(node.segment.metadata())) eligible.set(i);
+        }
+        return eligible;
+    }
+
+    private List<EmbeddingMatch<TextSegment>> exact(float[] query, BitSet eligible, EmbeddingSearchRequest request) {
+        PriorityQueue<Scored> best = new PriorityQueue<>(FARTHEST_FIRST);
+        for (int i = eligible.nextSetBit(0); i >= 0; i = eligible.nextSetBit(i + 1)) {
+            float s = similarity(query, i);
+            if (best.size() < request.maxResults()) {
+                best.add(new Scored(i, s));
+            } else if (s > best.peek().similarity()) {
+                best.poll();
+                best.add(new Scored(i, s));
+            }
+        }
+        List<Scored> sorted = new ArrayList<>(best);
+        sorted.sort(NEAREST_FIRST);
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(sorted.size());
+        collect(sorted, null, request, matches);
+        return matches;
+    }
+
+    // ---- Construction du graphe ----
+
+    private void insert(String id, float[] vector, TextSegment segment) {
+        int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        Node node = new Node(id, vector.clone(), segment, level, m, maxLinksLevel0);
+        int index = nodes.size();
+        nodes.add(node);
+        indexById.put(id, index);
+        liveCount++;
+
+        if (entryPoint < 0) {
+            entryPoint = index;
+            maxLevel = level;
+            return;
+        }
+
+        float[] query = normalized(vector);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Scored> candidates = searchLayer(query, current, efConstruction, l);
+            List<Scored> neighbours = selectNeighbours(candidates, m);
+            for (Scored neighbour : neighbours) {
+                link(index, neighbour.node(), l);
+                link(neighbour.node(), index, l);
+            }
+            current = candidates.get(0).node();
+        }
+        if (level > maxLevel) {
+            entryPoint = index;
+            maxLevel = level;
+        }
+    }
+
+    private void link(int from, int to, int level) {
+        Node node = nodes.get(from);
+        int[] links = node.links[level];
+        int maxLinks = links.length - 1;
+        links[node.linkCounts[level]++] = to;
+        if (node.linkCounts[level] <= maxLinks) return;
+
+        // Trop de voisins : on ne garde que les plus pertinents selon l'heuristique HNSW
+        float[] base = normalized(node.vector);
+        List<Scored> candidates = new ArrayList<>(node.linkCounts[level]);
+        for (int i = 0; i < node.linkCounts[level]; i++) {
+            candidates.add(new Scored(links[i], similarity(base, links[i])));
+        }
+        candidates.sort(NEAREST_FIRST);
+        List<Scored> kept = selectNeighbours(candidates, maxLinks);
+        for (int i = 0; i < kept.size(); i++) links[i] = kept.get(i).node();
+        node.linkCounts[level] = kept.size();
+    }
+
+    /**
+     * Heuristique de sélection : un candidat n'est retenu que s'il est plus proche de la base que
+     * de tous les voisins déjà retenus ; on complète ensuite avec les plus proches écartés.
+     */
+    private List<Scored> selectNeighbours(List<Scored> candidates, int max) {
+        List<Scored> selected = new ArrayList<>(max);
+        List<Scored> discarded = new ArrayList<>();
+        for (Scored candidate : candidates) {
+            if (selected.size() == max) break;
+            float[] vector = normalized(nodes.get(candidate.node()).vector);
+            boolean diverse = true;
+            for (Scored chosen : selected) {
+                if (similarity(vector, chosen.node()) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) selected.add(candidate);
+            else discarded.add(candidate);
+        }
+        for (int i = 0; i < discarded.size() && selected.size() < max; i++) {
+            selected.add(discarded.get(i));
+        }
+        return selected;
+    }
+
+    // ---- Recherche dans le graphe ----
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbour = node.links[level][i];
+                float s = similarity(query, neighbour);
+                if (s > best) {
+                    best = s;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Recherche best-first sur une couche ; renvoie au plus {@code ef} nœuds, du plus proche au plus éloigné.
+     */
+    private List<Scored> searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Scored> toVisit = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Scored> results = new PriorityQueue<>(FARTHEST_FIRST);
+
+        Scored start = new Scored(entry, similarity(query, entry));
+        visited.set(entry);
+        toVisit.add(start);
+        results.add(start);
+
+        while (!toVisit.isEmpty()) {
+            Scored current = toVisit.poll();
+            if (results.size() >= ef && current.similarity() < results.peek().similarity()) break;
+
+            Node node = nodes.get(current.node());
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbour = node.links[level][i];
+                if (visited.get(neighbour)) continue;
+                visited.set(neighbour);
+
+                float s = similarity(query, neighbour);
+                if (results.size() < ef || s > results.peek().similarity()) {
+                    Scored scored = new Scored(neighbour, s);
+                    toVisit.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) results.poll();
+                }
+            }
+        }
+
+        List<Scored> sorted = new ArrayList<>(results);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    private float similarity(float[] normalizedQuery, int index) {
+        Node node = nodes.get(index);
+        float[] v = node.vector;
+        float dot = 0f;
+        for (int i = 0; i < v.length; i++) dot += normalizedQuery[i] * v[i];
+        return dot * node.inverseNorm;
+    }
+
+    private void markDeleted(int index) {
+        Node node = nodes.get(index);
+        if (node.deleted) return;
+        node.deleted = true;
+        indexById.remove(node.id);
+        liveCount--;
+    }
+
+    private static float inverseNorm(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) sum += v * v;
+        return sum == 0f ? 0f : (float) (1 / Math.sqrt(sum));
+    }
+
+    private static float[] normalized(float[] vector) {
+        float inverse = inverseNorm(vector);
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) result[i] = vector[i] * inverse;
+        return result;
+    }
+
+    public static class Builder {
+
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+        private long seed = 42;
+
+        public Builder m(int m) {
+            if (m < 2) throw new IllegalArgumentException("m doit être >= 2");
+            this.m = m;
+            return this;
+        }
+
+        public Builder efConstruction(int efConstruction) {
+            if (efConstruction <= 0) throw new IllegalArgumentException("efConstruction doit être > 0");
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        public Builder efSearch(int efSearch) {
+            if (efSearch <= 0) throw new IllegalArgumentException("efSearch doit être > 0");
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public HnswEmbeddingStore build() {
+            return new HnswEmbeddingStore(this);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Compare le rappel et la latence du HNSW à la recherche exacte (InMemoryEmbeddingStore).
+ * <p>
+ * Usage : {@code HnswRecallReport [taille du corpus] [nombre de requêtes]}. Le corpus est synthétique
+ * (vecteurs 384 dimensions regroupés en clusters, comme MiniLM) pour pouvoir monter en taille.
+ * <p>
+ * Chaque vecteur porte une métadonnée {@code part} (0 à 99) : le rappel est aussi mesuré avec des
+ * filtres qui retiennent 50 %, 10 % et 1 % du corpus.
+ */
+public class HnswRecallReport {
+
+    public record Measure(double recall, double meanMicros, double p99Micros) {
+    }
+
+    public static void main(String[] args) {
+        int corpusSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int dimension = 384;
+        Random random = new Random(7);
+
+        List<Embedding> corpus = clusteredVectors(corpusSize, dimension, corpusSize / 50 + 1, random);
+        List<Embedding> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(perturb(corpus.get(random.nextInt(corpusSize)), 0.03f, random));
+        }
+
+        // Mêmes identifiants des deux côtés pour pouvoir comparer les résultats
+        EmbeddingStore<TextSegment> exact = new InMemoryEmbeddingStore<>();
+        List<String> ids = exact.generateIds(corpusSize);
+        List<TextSegment> segments = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            segments.add(TextSegment.from("segment " + i, new Metadata().put("part", i % 100)));
+        }
+        exact.addAll(ids, corpus, segments);
+
+        for (int m : new int[]{8, 16, 32}) {
+            long start = System.nanoTime();
+            HnswEmbeddingStore hnsw = HnswEmbeddingStore.builder().m(m).efConstruction(200).build();
+            hnsw.addAll(ids, corpus, segments);
+            double buildSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "%nM=%d efConstruction=200 : construction %.2f s (%d vecteurs)%n",
+                    m, buildSeconds, corpusSize);
+
+            // Les deux réglages utilisés par les retrievers : 3 / 0.35 (routage) et 2 / 0.5 (RAG naïf)
+            for (int[] setting : new int[][]{{3, 35}, {2, 50}}) {
+                int maxResults = setting[0];
+                double minScore = setting[1] / 100.0;
+                Measure baseline = measure(exact, exact, queries, maxResults, minScore);
+                System.out.printf(Locale.ROOT, "  k=%d minScore=%.2f  exact      : moy %8.1f µs  p99 %8.1f µs%n",
+                        maxResults, minScore, baseline.meanMicros(), baseline.p99Micros());
+                for (int ef : new int[]{16, 32, 64, 128, 256}) {
+                    hnsw.efSearch(ef);
+                    Measure measure = measure(hnsw, exact, queries, maxResults, minScore);
+                    System.out.printf(Locale.ROOT,
+                            "  k=%d minScore=%.2f  efSearch=%-3d: moy %8.1f µs  p99 %8.1f µs  rappel %.4f%n",
+                            maxResults, minScore, ef, measure.meanMicros(), measure.p99Micros(), measure.recall());
+                }
+            }
+
+            hnsw.efSearch(64);
+            for (int percent : new int[]{50, 10, 1}) {
+                Filter filter = metadataKey("part").isLessThan(percent);
+                Measure baseline = measure(exact, exact, queries, 3, 0.35, filter);
+                Measure measure = measure(hnsw, exact, queries, 3, 0.35, filter);
+                System.out.printf(Locale.ROOT,
+                        "  k=3 filtre %2d %%  efSearch=64 : moy %8.1f µs  p99 %8.1f µs  rappel %.4f  (exact : moy %8.1f µs)%n",
+                        percent, measure.meanMicros(), measure.p99Micros(), measure.recall(), baseline.meanMicros());
+            }
+        }
+    }
+
+    /**
+     * Rappel moyen des résultats de {@code store} par rapport à {@code exact}, et latence de {@code store}.
+     */
+    public static Measure measure(EmbeddingStore<TextSegment> store, EmbeddingStore<TextSegment> exact,
+                                  List<Embedding> queries, int maxResults, double minScore) {
+        return measure(store, exact, queries, maxResults, minScore, null);
+    }
+
+    /**
+     * @param filter filtre de métadonnées appliqué aux deux recherches, ou {@code null}
+     */
+    public static Measure measure(EmbeddingStore<TextSegment> store, EmbeddingStore<TextSegment> exact,
+                                  List<Embedding> queries, int maxResults, double minScore, Filter filter) {
+        long[] latencies = new long[queries.size()];
+        double recallSum = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(queries.get(i))
+                    .maxResults(maxResults)
+                    .minScore(minScore)
+                    .filter(filter)
+                    .build();
+
+            long start = System.nanoTime();
+            List<EmbeddingMatch<TextSegment>> found = store.search(request).matches();
+            latencies[i] = System.nanoTime() - start;
+
+            Set<String> expected = exact.search(request).matches().stream()
+                    .map(EmbeddingMatch::embeddingId)
+                    .collect(Collectors.toSet());
+            if (expected.isEmpty()) {
+                recallSum += 1;
+            } else {
+                long hits = found.stream().filter(match -> expected.contains(match.embeddingId())).count();
+                recallSum += (double) hits / expected.size();
+            }
+        }
+        Arrays.sort(latencies);
+        double mean = Arrays.stream(latencies).average().orElse(0) / 1e3;
+        double p99 = latencies.length == 0 ? 0 : latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1e3;
+        return new Measure(recallSum / Math.max(1, queries.size()), mean, p99);
+    }
+
+    static List<Embedding> clusteredVectors(int count, int dimension, int clusters, Random random) {
+        List<Embedding> centers = new ArrayList<>(clusters);
+        for (int c = 0; c < clusters; c++) {
+            float[] v = new float[dimension];
+            for (int d = 0; d < dimension; d++) v[d] = (float) random.nextGaussian();
+            centers.add(Embedding.from(v));
+        }
+        List<Embedding> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(perturb(centers.get(random.nextInt(clusters)), 0.8f, random));
+        }
+        return vectors;
+    }
+
+    static Embedding perturb(Embedding base, float noise, Random random) {
+        float[] v = base.vector().clone();
+        for (int d = 0; d < v.length; d++) v[d] += (float) random.nextGaussian() * noise;
+        return Embedding.from(v);
+    }
+}
@@ -0,0 +1,785 @@
+package store;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * EmbeddingStore persistant : les vecteurs sont écrits dans un fichier float32 plat (little-endian)
+ * relu en mémoire mappée, les segments et leurs métadonnées dans un fichier annexe.
+ * <p>
+ * Une réécriture produit une nouvelle génération de ces deux fichiers ({@code vectors-N.f32},
+ * {@code segments-N.bin}) ; le manifeste, remplacé atomiquement, désigne la génération courante.
+ * Un arrêt à n'importe quel moment laisse donc l'ancienne ou la nouvelle paire, jamais un
+ * mélange, et aucun fichier encore mappé n'est remplacé (ce que Windows refuse). Les ajouts
+ * ({@code addAll}) écrivent en fin de la génération courante : ce qui dépasse le compte du
+ * manifeste vient d'un ajout interrompu et est tronqué à l'ouverture.
+ * <p>
+ * Chaque document indexé est associé à son empreinte de contenu : un redémarrage ne ré-ingère
+ * que les documents dont le contenu a changé.
+ * <p>
+ * Les champs de métadonnées déclarés à l'ouverture ({@code file_name} par défaut) sont indexés
+ * en bitmaps : une recherche filtrée sur ces champs ne calcule de similarité que pour les
+ * segments qui correspondent, au lieu de filtrer pendant un parcours complet.
+ */
+public class MappedEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    // Génération 0 : noms d'origine, relus tels quels par les index créés avant les générations
+    private static final String VECTORS_FILE = "vectors.f32";
+    private static final String SEGMENTS_FILE = "segments.bin";
+    private static final String VECTORS_PREFIX = "vectors-";
+    private static final String SEGMENTS_PREFIX = "segments-";
+    private static final String MANIFEST_FILE = "index.properties";
+
+    // Tampon d'écriture des vecteurs : une réécriture ne charge jamais tout l'index sur le tas
+    private static final int WRITE_CHUNK_BYTES = 1 << 20;
+
+    private static final String DIMENSION_KEY = "dimension";
+    private static final String COUNT_KEY = "count";
+    private static final String FILES_KEY = "files.generation";
+    private static final String DOCUMENT_PREFIX = "document.";
+
+    private final Path directory;
+    private final Set<String> indexedFields;
+    private final Properties manifest = new Properties();
+
+    // Vue immuable publiée après chaque écriture : les recherches n'ont jamais besoin de verrou
+    private volatile Snapshot snapshot;
+    private final AtomicLong generation = new AtomicLong();
+    // Génération des fichiers vecteurs + segments désignée par le manifeste
+    private long filesGeneration;
+
+    private record Snapshot(int dimension, List<String> ids, List<TextSegment> segments,
+                            FloatBuffer vectors, float[] norms, MetadataIndex metadata) {
+
+        int size() {
+            return ids.size();
+        }
+    }
+
+    private MappedEmbeddingStore(Path directory, Set<String> indexedFields) {
+        this.directory = directory;
+        this.indexedFields = Set.copyOf(indexedFields);
+    }
+
+    public static MappedEmbeddingStore open(Path directory) throws IOException {
+        return open(directory, Set.of(Document.FILE_NAME));
+    }
+
+    /**
+     * @param indexedFields champs de métadonnées indexés pour les recherches filtrées ; à réserver
+     *                      aux champs à peu de valeurs distinctes (fichier, thème, page...)
+     */
+    public static MappedEmbeddingStore open(Path directory, Set<String> indexedFields) throws IOException {
+        Files.createDirectories(directory);
+        MappedEmbeddingStore store = new MappedEmbeddingStore(directory, indexedFields);
+        store.load();
+        return store;
+    }
+
+    // ---- Suivi des documents ----
+
+    public synchronized boolean isIndexed(String fileName, String contentHash) {
+        return contentHash.equals(manifest.getProperty(DOCUMENT_PREFIX + fileName));
+    }
+
+    public synchronized Set<String> indexedDocuments() {
+        Set<String> documents = new TreeSet<>();
+        for (String key : manifest.stringPropertyNames()) {
+            if (key.startsWith(DOCUMENT_PREFIX)) documents.add(key.substring(DOCUMENT_PREFIX.length()));
+        }
+        return documents;
+    }
+
+    /**
+     * Segments actuellement indexés pour un document (métadonnée {@code file_name}), par identifiant.
+     */
+    public Map<String, TextSegment> documentSegments(String fileName) {
+        Snapshot current = snapshot;
+        Map<String, TextSegment> segments = new LinkedHashMap<>();
+        for (int i = 0; i < current.size(); i++) {
+            if (belongsTo(current.segments().get(i), fileName)) segments.put(current.ids().get(i), current.segments().get(i));
+        }
+        return segments;
+    }
+
+    /**
+     * Remplace tous les segments d'un document (métadonnée {@code file_name}) par les nouveaux.
+     */
+    public void replaceDocument(String fileName, String contentHash,
+                                List<Embedding> embeddings, List<TextSegment> segments) {
+        updateDocument(fileName, contentHash, generateIds(segments.size()), embeddings, segments);
+    }
+
+    /**
+     * Remplace les segments d'un document en une seule publication : aucune recherche ne voit
+     * le document à moitié mis à jour.
+     * <p>
+     * Un embedding {@code null} reprend le vecteur déjà indexé sous le même identifiant (segment
+     * inchangé dont seules les métadonnées sont réécrites) ; les autres segments du document
+     * absents de {@code ids} sont supprimés.
+     */
+    public synchronized void updateDocument(String fileName, String contentHash, List<String> ids,
+                                            List<Embedding> embeddings, List<TextSegment> segments) {
+        if (ids.size() != embeddings.size() || ids.size() != segments.size()) {
+            throw new IllegalArgumentException("ids, embeddings et segments doivent avoir la même taille");
+        }
+        Snapshot current = snapshot;
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < current.size(); i++) positions.put(current.ids().get(i), i);
+
+        List<float[]> vectors = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (embeddings.get(i) != null) {
+                vectors.add(embeddings.get(i).vector());
+                continue;
+            }
+            Integer position = positions.get(ids.get(i));
+            if (position == null) throw new IllegalArgumentException("Segment inconnu, embedding requis : " + ids.get(i));
+            float[] vector = new float[current.dimension()];
+            current.vectors().get(position * current.dimension(), vector);
+            vectors.add(vector);
+        }
+
+        int dimension = current.dimension() > 0 ? current.dimension() : vectors.isEmpty() ? 0 : vectors.get(0).length;
+        FloatBuffer packed = FloatBuffer.allocate(vectors.size() * dimension);
+        for (float[] vector : vectors) {
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException("Dimension attendue " + dimension + ", reçue " + vector.length);
+            }
+            packed.put(vector);
+        }
+        packed.flip();
+
+        rewrite(i -> !belongsTo(current.segments().get(i), fileName), ids, packed, segments);
+        manifest.setProperty(DOCUMENT_PREFIX + fileName, contentHash);
+        writeManifest();
+    }
+
+    /**
+     * Ouvre l'écriture d'un document lot par lot (ingestion en streaming) : les vecteurs partent
+     * dans un fichier temporaire au fil de l'eau, le document n'est publié qu'au
+     * {@link DocumentWriter#commit()}, en une fois, comme avec {@link #updateDocument}.
+     */
+    public DocumentWriter writeDocument(String fileName, String contentHash) throws IOException {
+        return new DocumentWriter(fileName, contentHash);
+    }
+
+    public final class DocumentWriter implements Closeable {
+
+        private final String fileName;
+        private final String contentHash;
+        private final Path file;
+        private final FileChannel channel;
+        private final List<String> ids = new ArrayList<>();
+        private final List<TextSegment> segments = new ArrayList<>();
+        private int dimension;
+        private boolean closed;
+
+        private DocumentWriter(String fileName, String contentHash) throws IOException {
+            this.fileName = fileName;
+            this.contentHash = contentHash;
+            this.file = directory.resolve("pending-" + UUID.randomUUID() + ".f32");
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        public synchronized void add(List<Embedding> embeddings, List<TextSegment> batch) {
+            if (closed) throw new IllegalStateException("Écriture de " + fileName + " déjà terminée");
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalArgumentException("embeddings et segments doivent avoir la même taille");
+            }
+            if (embeddings.isEmpty()) return;
+            if (dimension == 0) dimension = embeddings.get(0).dimension();
+
+            ByteBuffer bytes = ByteBuffer.allocate(embeddings.size() * dimension * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (Embedding embedding : embeddings) {
+                if (embedding.dimension() != dimension) {
+                    throw new IllegalArgumentException(
+                            "Dimension attendue " + dimension + ", reçue " + embedding.dimension());
+                }
+                for (float v : embedding.vector()) bytes.putFloat(v);
+            }
+            bytes.flip();
+            try {
+                while (bytes.hasRemaining()) channel.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ids.addAll(generateIds(batch.size()));
+            segments.addAll(batch);
+        }
+
+        /**
+         * Remplace les segments du document par ceux écrits jusqu'ici.
+         */
+        public void commit() {
+            synchronized (MappedEmbeddingStore.this) {
+                synchronized (this) {
+                    if (closed) throw new IllegalStateException("Écriture de " + fileName + " déjà terminée");
+                    try {
+                        FloatBuffer vectors = ids.isEmpty() ? FloatBuffer.allocate(0)
+                                : channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                                .order(ByteOrder.LITTLE_ENDIAN)
+                                .asFloatBuffer();
+                        Snapshot current = snapshot;
+                        rewrite(i -> !belongsTo(current.segments().get(i), fileName), ids, vectors, segments);
+                        manifest.setProperty(DOCUMENT_PREFIX + fileName, contentHash);
+                        writeManifest();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        close();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Abandonne l'écriture si elle n'a pas été validée ; l'index n'est pas modifié.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public synchronized void removeDocument(String fileName) {
+        Snapshot current = snapshot;
+        retain(i -> !belongsTo(current.segments().get(i), fileName));
+        manifest.remove(DOCUMENT_PREFIX + fileName);
+        writeManifest();
+    }
+
+    public List<TextSegment> segments() {
+        return snapshot.segments().stream().filter(Objects::nonNull).toList();
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Compteur incrémenté à chaque modification de l'index (utile pour invalider des caches).
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    // ---- EmbeddingStore ----
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public synchronized void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings et segments doivent avoir la même taille");
+        }
+        if (embeddings.isEmpty()) return;
+
+        Snapshot current = snapshot;
+        int dimension = current.dimension() > 0 ? current.dimension() : embeddings.get(0).dimension();
+
+        ByteBuffer bytes = ByteBuffer.allocate(embeddings.size() * dimension * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (Embedding embedding : embeddings) {
+            if (embedding.dimension() != dimension) {
+                throw new IllegalArgumentException(
+                        "Dimension attendue " + dimension + ", reçue " + embedding.dimension());
+            }
+            for (float v : embedding.vector()) bytes.putFloat(v);
+        }
+        bytes.flip();
+
+        // Ajout en fin des fichiers courants : tant que le manifeste n'a pas le nouveau compte, les
+        // octets ajoutés sont en trop, et un arrêt ici les fait tronquer à l'ouverture
+        try (FileChannel channel = FileChannel.open(vectorsFile(filesGeneration),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) channel.write(bytes);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<String> allIds = new ArrayList<>(current.ids());
+        List<TextSegment> allSegments = new ArrayList<>(current.segments());
+        try (OutputStream os = Files.newOutputStream(segmentsFile(filesGeneration),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            for (int i = 0; i < ids.size(); i++) {
+                TextSegment segment = embedded == null ? null : embedded.get(i);
+                writeRecord(out, ids.get(i), segment);
+                allIds.add(ids.get(i));
+                allSegments.add(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            force(segmentsFile(filesGeneration));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        manifest.setProperty(DIMENSION_KEY, String.valueOf(dimension));
+        manifest.setProperty(COUNT_KEY, String.valueOf(allIds.size()));
+        writeManifest();
+        publish(dimension, allIds, allSegments);
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<String> ids) {
+        Set<String> toRemove = new HashSet<>(ids);
+        Snapshot current = snapshot;
+        retain(i -> !toRemove.contains(current.ids().get(i)));
+    }
+
+    @Override
+    public synchronized void removeAll(Filter filter) {
+        Snapshot current = snapshot;
+        retain(i -> {
+            TextSegment segment = current.segments().get(i);
+            return segment == null || !filter.test(segment.metadata());
+        });
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        retain(i -> false);
+        manifest.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(DOCUMENT_PREFIX))
+                .forEach(manifest::remove);
+        writeManifest();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        Snapshot current = snapshot;
+        int dimension = current.dimension();
+        Filter filter = request.filter();
+
+        float[] query = request.queryEmbedding().vector();
+        float queryNorm = norm(query);
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+
+        // Pré-filtrage par l'index : seules les positions candidates sont examinées
+        BitSet candidates = filter == null ? null : current.metadata().candidates(filter);
+        if (candidates != null && current.metadata().resolves(filter)) filter = null;
+        FloatBuffer vectors = current.vectors();
+        int first = candidates == null ? 0 : candidates.nextSetBit(0);
+        for (int i = first; i >= 0 && i < current.size(); i = candidates == null ? i + 1 : candidates.nextSetBit(i + 1)) {
+            TextSegment segment = current.segments().get(i);
+            if (filter != null && (segment == null || !filter.test(segment.metadata()))) continue;
+
+            int offset = i * dimension;
+            float dot = 0f;
+            for (int d = 0; d < dimension; d++) {
+                dot += query[d] * vectors.get(offset + d);
+            }
+            double cosine = dot / (queryNorm * current.norms()[i]);
+            double score = RelevanceScore.fromCosineSimilarity(cosine);
+            if (score < request.minScore()) continue;
+
+            if (best.size() < request.maxResults()) {
+                best.add(new Candidate(i, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new Candidate(i, score));
+            }
+        }
+
+        // On ne reconstruit les Embedding que pour les résultats retenus
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            Candidate candidate = best.poll();
+            float[] vector = new float[dimension];
+            vectors.get(candidate.index() * dimension, vector);
+            matches.add(new EmbeddingMatch<>(candidate.score(), current.ids().get(candidate.index()),
+                    Embedding.from(vector), current.segments().get(candidate.index())));
+        }
+        Collections.reverse(matches);
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    private record Candidate(int index, double score) {
+    }
+
+    // ---- Persistance ----
+
+    private void load() throws IOException {
+        Path manifestFile = directory.resolve(MANIFEST_FILE);
+        if (Files.exists(manifestFile)) {
+            try (InputStream in = Files.newInputStream(manifestFile)) {
+                manifest.load(in);
+            }
+        }
+
+        int dimension = Integer.parseInt(manifest.getProperty(DIMENSION_KEY, "0"));
+        int count = Integer.parseInt(manifest.getProperty(COUNT_KEY, "0"));
+        filesGeneration = Long.parseLong(manifest.getProperty(FILES_KEY, "0"));
+
+        List<String> ids = new ArrayList<>(count);
+        List<TextSegment> segments = new ArrayList<>(count);
+        Path segmentsFile = segmentsFile(filesGeneration);
+        Path vectorsFile = vectorsFile(filesGeneration);
+
+        // Documents en cours d'écriture lors d'un arrêt (jamais publiés) et générations que le
+        // manifeste ne désigne plus (arrêt avant leur suppression, ou suppression refusée)
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, file -> {
+            String name = file.getFileName().toString();
+            return name.endsWith(".tmp") || (name.startsWith("pending-") && name.endsWith(".f32"))
+                    || (isDataFile(name) && !file.equals(segmentsFile) && !file.equals(vectorsFile));
+        })) {
+            for (Path file : stale) deleteQuietly(file);
+        }
+
+        // Un ajout interrompu laisse, après les « count » entrées validées, des octets que le
+        // manifeste ne compte pas : ils sont tronqués, les entrées validées sont conservées
+        boolean consistent;
+        if (count == 0) {
+            truncate(segmentsFile, 0);
+            truncate(vectorsFile, 0);
+            consistent = true;
+        } else {
+            long vectorBytes = (long) count * dimension * Float.BYTES;
+            consistent = Files.exists(vectorsFile) && Files.size(vectorsFile) >= vectorBytes;
+            long segmentBytes = 0;
+            try (CountingInputStream counting = new CountingInputStream(
+                    new BufferedInputStream(Files.newInputStream(segmentsFile)));
+                 DataInputStream in = new DataInputStream(counting)) {
+                for (int i = 0; i < count; i++) {
+                    ids.add(in.readUTF());
+                    segments.add(in.readBoolean() ? SegmentCodec.read(in) : null);
+                }
+                segmentBytes = counting.count;
+            } catch (EOFException | NoSuchFileException e) {
+                consistent = false;
+            }
+            if (consistent) {
+                truncate(segmentsFile, segmentBytes);
+                truncate(vectorsFile, vectorBytes);
+            }
+        }
+
+        if (!consistent) {
+            // Entrées validées manquantes (fichiers perdus ou tronqués) : on repart de zéro, tout sera ré-ingéré
+            manifest.clear();
+            Files.deleteIfExists(segmentsFile);
+            Files.deleteIfExists(vectorsFile);
+            filesGeneration = 0;
+            writeManifest();
+            publish(0, List.of(), List.of());
+            return;
+        }
+        publish(dimension, ids, segments);
+    }
+
+    private void retain(IntPredicate keep) {
+        rewrite(keep, List.of(), FloatBuffer.allocate(0), List.of());
+    }
+
+    /**
+     * Réécrit l'index avec les entrées conservées suivies des nouvelles, puis publie une seule
+     * nouvelle vue.
+     */
+    private void rewrite(IntPredicate keep, List<String> newIds, FloatBuffer newVectors, List<TextSegment> newSegments) {
+        Snapshot current = snapshot;
+        int received = newIds.isEmpty() ? 0 : newVectors.remaining() / newIds.size();
+        int dimension = current.dimension() > 0 ? current.dimension() : received;
+        if (!newIds.isEmpty() && (received != dimension || newVectors.remaining() != newIds.size() * dimension)) {
+            throw new IllegalArgumentException("Dimension attendue " + dimension + ", reçue " + received);
+        }
+
+        List<String> ids = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            if (!keep.test(i)) continue;
+            ids.add(current.ids().get(i));
+            segments.add(current.segments().get(i));
+            kept.add(i);
+        }
+        if (ids.size() == current.size() && newIds.isEmpty()) return;
+        ids.addAll(newIds);
+        segments.addAll(newSegments);
+
+        // Nouvelle génération à côté de l'actuelle : les recherches en cours continuent sur l'ancien
+        // mapping, et tant que le manifeste ne la désigne pas, elle n'existe pas
+        long previous = filesGeneration;
+        long next = previous + 1;
+        Path vectorsFile = vectorsFile(next);
+        Path segmentsFile = segmentsFile(next);
+        try {
+            try (ChunkedVectorWriter out = new ChunkedVectorWriter(FileChannel.open(vectorsFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+                for (int i : kept) out.put(current.vectors().slice(i * dimension, dimension));
+                out.put(newVectors.duplicate());
+            }
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentsFile)))) {
+                for (int i = 0; i < ids.size(); i++) {
+                    writeRecord(dos, ids.get(i), segments.get(i));
+                }
+            }
+            force(segmentsFile);
+        } catch (IOException e) {
+            deleteQuietly(vectorsFile);
+            deleteQuietly(segmentsFile);
+            throw new UncheckedIOException(e);
+        }
+
+        if (dimension > 0) manifest.setProperty(DIMENSION_KEY, String.valueOf(dimension));
+        manifest.setProperty(COUNT_KEY, String.valueOf(ids.size()));
+        manifest.setProperty(FILES_KEY, String.valueOf(next));
+        writeManifest();
+        filesGeneration = next;
+        publish(dimension, ids, segments);
+
+        // Suppression au mieux : sous Windows l'ancien fichier reste verrouillé tant qu'il est
+        // mappé, il sera retiré à la prochaine ouverture
+        deleteQuietly(vectorsFile(previous));
+        deleteQuietly(segmentsFile(previous));
+    }
+
+    private static final class ChunkedVectorWriter implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(WRITE_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final FloatBuffer floats = bytes.asFloatBuffer();
+
+        ChunkedVectorWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void put(FloatBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                int n = Math.min(floats.remaining(), source.remaining());
+                floats.put(source.slice(source.position(), n));
+                source.position(source.position() + n);
+                if (!floats.hasRemaining()) flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            bytes.position(0).limit(floats.position() * Float.BYTES);
+            while (bytes.hasRemaining()) channel.write(bytes);
+            bytes.clear();
+            floats.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private static boolean belongsTo(TextSegment segment, String fileName) {
+        return segment != null && fileName.equals(segment.metadata().getString(Document.FILE_NAME));
+    }
+
+    private void publish(int dimension, List<String> ids, List<TextSegment> segments) {
+        FloatBuffer vectors = FloatBuffer.allocate(0);
+        Path vectorsFile = vectorsFile(filesGeneration);
+        if (!ids.isEmpty()) {
+            try (FileChannel channel = FileChannel.open(vectorsFile, StandardOpenOption.READ)) {
+                long length = (long) ids.size() * dimension * Float.BYTES;
+                vectors = channel.map(FileChannel.MapMode.READ_ONLY, 0, length)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        float[] norms = new float[ids.size()];
+        for (int i = 0; i < norms.length; i++) {
+            float sum = 0f;
+            for (int d = 0; d < dimension; d++) {
+                float v = vectors.get(i * dimension + d);
+                sum += v * v;
+            }
+            norms[i] = (float) Math.sqrt(sum);
+        }
+        snapshot = new Snapshot(dimension, List.copyOf(ids), Collections.unmodifiableList(segments),
+                vectors, norms, MetadataIndex.build(indexedFields, segments));
+        generation.incrementAndGet();
+    }
+
+    private void writeManifest() {
+        Path tmp = directory.resolve(MANIFEST_FILE + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                manifest.store(out, "MappedEmbeddingStore");
+            }
+            force(tmp);
+            Files.move(tmp, directory.resolve(MANIFEST_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path vectorsFile(long filesGeneration) {
+        return directory.resolve(filesGeneration == 0 ? VECTORS_FILE : VECTORS_PREFIX + filesGeneration + ".f32");
+    }
+
+    private Path segmentsFile(long filesGeneration) {
+        return directory.resolve(filesGeneration == 0 ? SEGMENTS_FILE : SEGMENTS_PREFIX + filesGeneration + ".bin");
+    }
+
+    private static boolean isDataFile(String name) {
+        return name.equals(VECTORS_FILE) || name.equals(SEGMENTS_FILE)
+                || (name.startsWith(VECTORS_PREFIX) && name.endsWith(".f32"))
+                || (name.startsWith(SEGMENTS_PREFIX) && name.endsWith(".bin"));
+    }
+
+    // Retire la fin non validée d'un fichier de données, sur disque avant toute nouvelle écriture
+    private static void truncate(Path file, long size) throws IOException {
+        if (!Files.exists(file) || Files.size(file) <= size) return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    // Octets réellement consommés par le DataInputStream, hors lecture anticipée du tampon
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    // Sur disque avant que le manifeste ne désigne le fichier
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // fichier encore ouvert ou mappé : retenté à la prochaine ouverture
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String id, TextSegment segment) throws IOException {
+        out.writeUTF(id);
+        out.writeBoolean(segment != null);
+        if (segment != null) SegmentCodec.write(out, segment);
+    }
+
+    private static float norm(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) sum += v * v;
+        return (float) Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,116 @@
+package store;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Index bitmap par champ de métadonnée : pour chaque valeur, l'ensemble des positions des
+ * segments qui la portent. Immuable, reconstruit à chaque publication du store.
+ * <p>
+ * {@link #candidates(Filter)} traduit les filtres d'égalité ({@code IsEqualTo}, {@code IsIn},
+ * combinés par {@code And} / {@code Or}) en l'ensemble des positions à examiner ; si une partie du filtre
+ * échappe à l'index, elle est vérifiée sur chaque candidat, et un filtre qui lui échappe entièrement
+ * retombe sur un parcours complet.
+ */
+final class MetadataIndex {
+
+    static final MetadataIndex EMPTY = new MetadataIndex(Map.of());
+
+    private final Map<String, Map<Object, BitSet>> fields;
+
+    private MetadataIndex(Map<String, Map<Object, BitSet>> fields) {
+        this.fields = fields;
+    }
+
+    static MetadataIndex build(Set<String> indexedFields, List<TextSegment> segments) {
+        if (indexedFields.isEmpty()) return EMPTY;
+        Map<String, Map<Object, BitSet>> fields = new HashMap<>();
+        for (String field : indexedFields) fields.put(field, new HashMap<>());
+        for (int i = 0; i < segments.size(); i++) {
+            TextSegment segment = segments.get(i);
+            if (segment == null) continue;
+            Map<String, Object> metadata = segment.metadata().toMap();
+            for (Map.Entry<String, Map<Object, BitSet>> field : fields.entrySet()) {
+                Object value = metadata.get(field.getKey());
+                if (value != null) field.getValue().computeIfAbsent(key(value), v -> new BitSet()).set(i);
+            }
+        }
+        return new MetadataIndex(fields);
+    }
+
+    /**
+     * Positions pouvant satisfaire le filtre, ou {@code null} si l'index ne permet pas de le
+     * restreindre (parcours complet). Le résultat appartient à l'appelant.
+     */
+    BitSet candidates(Filter filter) {
+        return switch (filter) {
+            case IsEqualTo equal -> lookup(equal.key(), List.of(equal.comparisonValue()));
+            case IsIn in -> lookup(in.key(), in.comparisonValues());
+            case And and -> {
+                BitSet left = candidates(and.left());
+                BitSet right = candidates(and.right());
+                if (left == null) yield right;
+                if (right != null) left.and(right);
+                yield left;
+            }
+            case Or or -> {
+                BitSet left = candidates(or.left());
+                if (left == null) yield null;
+                BitSet right = candidates(or.right());
+                if (right == null) yield null;
+                left.or(right);
+                yield left;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Vrai si {@link #candidates(Filter)} donne exactement les positions qui satisfont le filtre :
+     * la vérification du filtre sur chaque candidat devient inutile.
+     */
+    boolean resolves(Filter filter) {
+        return switch (filter) {
+            case IsEqualTo equal -> fields.containsKey(equal.key());
+            case IsIn in -> fields.containsKey(in.key());
+            case And and -> resolves(and.left()) && resolves(and.right());
+            case Or or -> resolves(or.left()) && resolves(or.right());
+            default -> false;
+        };
+    }
+
+    private BitSet lookup(String field, Iterable<?> values) {
+        Map<Object, BitSet> index = fields.get(field);
+        if (index == null) return null;
+        BitSet result = new BitSet();
+        for (Object value : values) {
+            BitSet positions = index.get(key(value));
+            if (positions != null) result.or(positions);
+        }
+        return result;
+    }
+
+    // Les filtres comparent les nombres par valeur (3 == 3L == 3.0) : même clé pour tous
+    private static Object key(Object value) {
+        return switch (value) {
+            case Integer i -> BigDecimal.valueOf(i).stripTrailingZeros();
+            case Long l -> BigDecimal.valueOf(l).stripTrailingZeros();
+            case Float f -> new BigDecimal(f.toString()).stripTrailingZeros();
+            case Double d -> BigDecimal.valueOf(d).stripTrailingZeros();
+            case UUID u -> u.toString();
+            default -> value;
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package store;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Quantification produit : le vecteur est découpé en {@code subspaces} sous-vecteurs, chacun
+ * remplacé par l'indice (1 octet) du centroïde le plus proche parmi 256 appris par k-means.
+ * <p>
+ * Score asymétrique : pour une requête, on précalcule le produit scalaire de chaque sous-vecteur
+ * de la requête avec chaque centroïde ; scorer un code coûte alors {@code subspaces} additions.
+ */
+final class ProductQuantizer implements VectorQuantizer {
+
+    private static final int MAX_CENTROIDS = 256;
+    private static final int ITERATIONS = 12;
+
+    private final int subspaces;
+    private final int subDimension;
+    private final int centroids;
+    // codebooks[s][c * subDimension + d]
+    private final float[][] codebooks;
+
+    private ProductQuantizer(int subspaces, int subDimension, int centroids, float[][] codebooks) {
+        this.subspaces = subspaces;
+        this.subDimension = subDimension;
+        this.centroids = centroids;
+        this.codebooks = codebooks;
+    }
+
+    /**
+     * Apprend les dictionnaires sur un échantillon de vecteurs normalisés (k-means par sous-espace).
+     */
+    static ProductQuantizer train(List<float[]> sample, int dimension, int subspaces, long seed) {
+        if (dimension % subspaces != 0) {
+            throw new IllegalArgumentException("La dimension " + dimension + " n'est pas divisible par " + subspaces);
+        }
+        if (sample.isEmpty()) throw new IllegalArgumentException("Échantillon d'apprentissage vide");
+
+        int subDimension = dimension / subspaces;
+        int centroids = Math.min(MAX_CENTROIDS, sample.size());
+        Random random = new Random(seed);
+        float[][] codebooks = new float[subspaces][];
+        for (int s = 0; s < subspaces; s++) {
+            codebooks[s] = kMeans(sample, s * subDimension, subDimension, centroids, random);
+        }
+        return new ProductQuantizer(subspaces, subDimension, centroids, codebooks);
+    }
+
+    @Override
+    public int codeSize() {
+        return subspaces;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes, int offset) {
+        for (int s = 0; s < subspaces; s++) {
+            codes[offset + s] = (byte) nearest(codebooks[s], centroids, vector, s * subDimension, subDimension);
+        }
+    }
+
+    @Override
+    public void decode(byte[] codes, int offset, float[] vector) {
+        for (int s = 0; s < subspaces; s++) {
+            int c = codes[offset + s] & 0xFF;
+            System.arraycopy(codebooks[s], c * subDimension, vector, s * subDimension, subDimension);
+        }
+    }
+
+    @Override
+    public Scorer scorer(float[] query) {
+        float[] table = new float[subspaces * centroids];
+        for (int s = 0; s < subspaces; s++) {
+            float[] codebook = codebooks[s];
+            for (int c = 0; c < centroids; c++) {
+                float dot = 0f;
+                for (int d = 0; d < subDimension; d++) dot += query[s * subDimension + d] * codebook[c * subDimension + d];
+                table[s * centroids + c] = dot;
+            }
+        }
+        return (codes, offset) -> {
+            float sum = 0f;
+            for (int s = 0; s < subspaces; s++) sum += table[s * centroids + (codes[offset + s] & 0xFF)];
+            return sum;
+        };
+    }
+
+    private static float[] kMeans(List<float[]> sample, int from, int length, int k, Random random) {
+        float[] centers = new float[k * length];
+        // Initialisation : k vecteurs distincts de l'échantillon tirés au hasard
+        int[] order = random.ints(0, sample.size()).distinct().limit(k).toArray();
+        for (int c = 0; c < k; c++) System.arraycopy(sample.get(order[c]), from, centers, c * length, length);
+
+        int[] assignment = new int[sample.size()];
+        float[] sums = new float[k * length];
+        int[] counts = new int[k];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Arrays.fill(sums, 0f);
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < sample.size(); i++) {
+                float[] vector = sample.get(i);
+                int c = nearest(centers, k, vector, from, length);
+                assignment[i] = c;
+                counts[c]++;
+                for (int d = 0; d < length; d++) sums[c * length + d] += vector[from + d];
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // Centroïde vide : on le replace sur un point de l'échantillon
+                    System.arraycopy(sample.get(random.nextInt(sample.size())), from, centers, c * length, length);
+                    continue;
+                }
+                for (int d = 0; d < length; d++) centers[c * length + d] = sums[c * length + d] / counts[c];
+            }
+        }
+        return centers;
+    }
+
+    private static int nearest(float[] centers, int k, float[] vector, int from, int length) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            float distance = 0f;
+            for (int d = 0; d < length; d++) {
+                float diff = vector[from + d] - centers[c * length + d];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,73 @@
+package store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Mémoire par vecteur et rappel@k des stores quantifiés, par rapport au store float actuel
+ * (InMemoryEmbeddingStore).
+ * <p>
+ * Usage : {@code QuantizationReport [taille du corpus] [nombre de requêtes]}, même corpus
+ * synthétique que {@link HnswRecallReport}.
+ */
+public class QuantizationReport {
+
+    private record Configuration(String name, QuantizedEmbeddingStore.Builder builder) {
+    }
+
+    public static void main(String[] args) {
+        int corpusSize = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int dimension = 384;
+        Random random = new Random(7);
+
+        List<Embedding> corpus = HnswRecallReport.clusteredVectors(corpusSize, dimension, corpusSize / 50 + 1, random);
+        List<Embedding> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(HnswRecallReport.perturb(corpus.get(random.nextInt(corpusSize)), 0.03f, random));
+        }
+
+        EmbeddingStore<TextSegment> exact = new InMemoryEmbeddingStore<>();
+        List<String> ids = exact.generateIds(corpusSize);
+        for (int i = 0; i < corpusSize; i++) exact.add(ids.get(i), corpus.get(i));
+
+        // float[384] + en-tête de tableau + objet Embedding, tel que stocké par InMemoryEmbeddingStore
+        int floatBytes = dimension * Float.BYTES + 16 + 16;
+
+        System.out.printf(Locale.ROOT, "%d vecteurs de dimension %d, %d requêtes%n", corpusSize, dimension, queryCount);
+        System.out.printf(Locale.ROOT, "%-22s %10s %10s %8s %10s %10s %10s%n",
+                "store", "tas o/vec", "hors tas", "gain", "rappel@3", "rappel@10", "moy µs");
+        report("float (InMemory)", exact, floatBytes, 0, floatBytes, exact, queries);
+
+        List<Configuration> configurations = List.of(
+                new Configuration("int8", QuantizedEmbeddingStore.builder().int8()),
+                new Configuration("int8 + rerank x4", QuantizedEmbeddingStore.builder().int8().rerank(4)),
+                new Configuration("PQ 96", QuantizedEmbeddingStore.builder().productQuantization(96)),
+                new Configuration("PQ 96 + rerank x4", QuantizedEmbeddingStore.builder().productQuantization(96).rerank(4)),
+                new Configuration("PQ 48", QuantizedEmbeddingStore.builder().productQuantization(48)),
+                new Configuration("PQ 48 + rerank x8", QuantizedEmbeddingStore.builder().productQuantization(48).rerank(8)));
+        for (Configuration configuration : configurations) {
+            QuantizedEmbeddingStore store = configuration.builder().trainingSize(Math.min(corpusSize, 5_000)).build();
+            store.addAll(ids, corpus, null);
+            report(configuration.name(), store, store.heapBytesPerVector(), store.offHeapBytesPerVector(), floatBytes,
+                    exact, queries);
+        }
+        System.out.printf(Locale.ROOT, "(gain : mémoire sur le tas du store float / celle du store quantifié)%n");
+    }
+
+    private static void report(String name, EmbeddingStore<TextSegment> store, int heapBytes, int offHeapBytes,
+                               int floatBytes, EmbeddingStore<TextSegment> exact, List<Embedding> queries) {
+        HnswRecallReport.Measure at3 = HnswRecallReport.measure(store, exact, queries, 3, 0);
+        HnswRecallReport.Measure at10 = HnswRecallReport.measure(store, exact, queries, 10, 0);
+        System.out.printf(Locale.ROOT, "%-22s %10d %10d %7.1fx %10.4f %10.4f %10.1f%n",
+                name, heapBytes, offHeapBytes, (double) floatBytes / heapBytes, at3.recall(), at10.recall(),
+                at10.meanMicros());
+    }
+}
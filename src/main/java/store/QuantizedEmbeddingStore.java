@@ -0,0 +1,348 @@
+package store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+/**
+ * Store exact sur codes quantifiés : seuls les codes (int8 ou PQ) sont sur le tas, notés contre
+ * la requête en float (distance asymétrique).
+ * <ul>
+ *     <li>int8 : {@code dimension + 4} octets par vecteur, environ 4 fois moins qu'en float</li>
+ *     <li>PQ : {@code subspaces} octets par vecteur (96 → 16 fois moins en dimension 384) ; les
+ *     dictionnaires sont appris sur les {@code trainingSize} premiers vecteurs, qui restent en
+ *     float (et sont cherchés exactement) jusque-là</li>
+ * </ul>
+ * Avec {@code rerank(n)}, les vecteurs complets sont aussi gardés hors tas (buffer direct, sans
+ * effet sur le GC) et les {@code n × maxResults} meilleurs candidats sont re-notés exactement.
+ */
+public class QuantizedEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private enum Mode {INT8, PQ}
+
+    // quantizer == null tant que le PQ n'est pas appris ; staging contient alors les vecteurs
+    private record Snapshot(int dimension, VectorQuantizer quantizer, byte[] codes, float[] staging,
+                            FloatBuffer full, String[] ids, TextSegment[] segments, int count) {
+    }
+
+    private final Mode mode;
+    private final int subspaces;
+    private final int trainingSize;
+    private final int rerank;
+    private final long seed;
+
+    private volatile Snapshot snapshot;
+
+    private QuantizedEmbeddingStore(Builder builder) {
+        this.mode = builder.mode;
+        this.subspaces = builder.subspaces;
+        this.trainingSize = builder.trainingSize;
+        this.rerank = builder.rerank;
+        this.seed = builder.seed;
+        this.snapshot = empty();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return snapshot.count();
+    }
+
+    public boolean isTrained() {
+        return snapshot.quantizer() != null;
+    }
+
+    /**
+     * Octets sur le tas par vecteur pour les codes (hors identifiant et segment).
+     */
+    public int heapBytesPerVector() {
+        Snapshot current = snapshot;
+        return current.quantizer() != null ? current.quantizer().codeSize() : current.dimension() * Float.BYTES;
+    }
+
+    /**
+     * Octets hors tas par vecteur (vecteurs complets gardés pour le re-ranking).
+     */
+    public int offHeapBytesPerVector() {
+        return rerank > 0 ? snapshot.dimension() * Float.BYTES : 0;
+    }
+
+    // ---- EmbeddingStore ----
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public synchronized void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings et segments doivent avoir la même taille");
+        }
+        if (embeddings.isEmpty()) return;
+
+        Snapshot current = snapshot;
+        int dimension = current.dimension() > 0 ? current.dimension() : embeddings.get(0).dimension();
+        VectorQuantizer quantizer = current.quantizer();
+        if (quantizer == null && mode == Mode.INT8) quantizer = new ScalarQuantizer(dimension);
+
+        int count = current.count() + embeddings.size();
+        String[] allIds = current.ids();
+        TextSegment[] segments = current.segments();
+        byte[] codes = current.codes();
+        float[] staging = current.staging();
+        FloatBuffer full = current.full();
+        if (count > allIds.length) {
+            int capacity = Math.max(count, allIds.length + (allIds.length >> 1) + 16);
+            allIds = Arrays.copyOf(allIds, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+            if (quantizer != null) codes = Arrays.copyOf(codes, capacity * quantizer.codeSize());
+            if (quantizer == null) staging = Arrays.copyOf(staging, capacity * dimension);
+            if (rerank > 0) full = grow(full, current.count() * dimension, capacity * dimension);
+        }
+
+        for (int i = 0; i < embeddings.size(); i++) {
+            Embedding embedding = embeddings.get(i);
+            if (embedding.dimension() != dimension) {
+                throw new IllegalArgumentException(
+                        "Dimension attendue " + dimension + ", reçue " + embedding.dimension());
+            }
+            int index = current.count() + i;
+            float[] vector = VectorKernels.normalized(embedding.vector());
+            if (quantizer != null) {
+                quantizer.encode(vector, codes, index * quantizer.codeSize());
+            } else {
+                System.arraycopy(vector, 0, staging, index * dimension, dimension);
+            }
+            if (rerank > 0) full.put(index * dimension, vector);
+            allIds[index] = ids.get(i);
+            segments[index] = embedded == null ? null : embedded.get(i);
+        }
+
+        // Assez de vecteurs pour apprendre les dictionnaires PQ : tout est encodé d'un coup
+        if (quantizer == null && count >= trainingSize) {
+            List<float[]> sample = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) sample.add(Arrays.copyOfRange(staging, i * dimension, (i + 1) * dimension));
+            quantizer = ProductQuantizer.train(sample.subList(0, Math.min(count, trainingSize)), dimension, subspaces, seed);
+            codes = new byte[allIds.length * quantizer.codeSize()];
+            for (int i = 0; i < count; i++) quantizer.encode(sample.get(i), codes, i * quantizer.codeSize());
+            staging = null;
+        }
+        snapshot = new Snapshot(dimension, quantizer, codes, staging, full, allIds, segments, count);
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<String> ids) {
+        Set<String> toRemove = new HashSet<>(ids);
+        Snapshot current = snapshot;
+        retain(i -> !toRemove.contains(current.ids()[i]));
+    }
+
+    @Override
+    public synchronized void removeAll(Filter filter) {
+        Snapshot current = snapshot;
+        retain(i -> current.segments()[i] == null || !filter.test(current.segments()[i].metadata()));
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        snapshot = empty();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        Snapshot current = snapshot;
+        int dimension = current.dimension();
+        int k = request.maxResults();
+        Filter filter = request.filter();
+        if (current.count() == 0 || k <= 0) return new EmbeddingSearchResult<>(List.of());
+
+        float[] query = VectorKernels.normalized(request.queryEmbedding().vector());
+        // minScore est exprimé en score de pertinence ((cos + 1) / 2) : on le convertit une seule fois
+        float minCosine = (float) (2 * request.minScore() - 1);
+
+        VectorQuantizer quantizer = current.quantizer();
+        boolean rescore = quantizer != null && rerank > 0;
+        FlatVectorStore.TopK top = new FlatVectorStore.TopK(rescore ? k * rerank : k);
+        VectorQuantizer.Scorer scorer = quantizer == null ? null : quantizer.scorer(query);
+        for (int i = 0; i < current.count(); i++) {
+            if (filter != null) {
+                TextSegment segment = current.segments()[i];
+                if (segment == null || !filter.test(segment.metadata())) continue;
+            }
+            float score = quantizer == null
+                    ? VectorKernels.dot(query, current.staging(), i * dimension, dimension)
+                    : scorer.score(current.codes(), i * quantizer.codeSize());
+            // Sans re-ranking le seuil porte sur le score approché ; avec, sur le score exact
+            if (rescore || score >= minCosine) top.offer(i, score);
+        }
+
+        if (rescore) {
+            FlatVectorStore.TopK exact = new FlatVectorStore.TopK(k);
+            float[] vector = new float[dimension];
+            for (int slot = 0; slot < top.size; slot++) {
+                int index = top.indexes[slot];
+                current.full().get(index * dimension, vector);
+                float cosine = VectorKernels.dot(query, vector, 0, dimension);
+                if (cosine >= minCosine) exact.offer(index, cosine);
+            }
+            top = exact;
+        }
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(top.size);
+        for (int slot : top.sortedSlots()) {
+            int index = top.indexes[slot];
+            matches.add(new EmbeddingMatch<>(RelevanceScore.fromCosineSimilarity(top.scores[slot]),
+                    current.ids()[index], Embedding.from(vector(current, index)), current.segments()[index]));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    /**
+     * Vecteur le plus précis disponible : complet (hors tas ou en attente d'apprentissage), sinon décodé.
+     */
+    private static float[] vector(Snapshot current, int index) {
+        int dimension = current.dimension();
+        float[] vector = new float[dimension];
+        if (current.full() != null) {
+            current.full().get(index * dimension, vector);
+        } else if (current.quantizer() == null) {
+            System.arraycopy(current.staging(), index * dimension, vector, 0, dimension);
+        } else {
+            current.quantizer().decode(current.codes(), index * current.quantizer().codeSize(), vector);
+        }
+        return vector;
+    }
+
+    private void retain(IntPredicate keep) {
+        Snapshot current = snapshot;
+        int dimension = current.dimension();
+        VectorQuantizer quantizer = current.quantizer();
+        int codeSize = quantizer == null ? 0 : quantizer.codeSize();
+
+        String[] ids = new String[current.count()];
+        TextSegment[] segments = new TextSegment[current.count()];
+        byte[] codes = quantizer == null ? null : new byte[current.count() * codeSize];
+        float[] staging = quantizer == null ? new float[current.count() * dimension] : null;
+        FloatBuffer full = rerank > 0 ? grow(null, 0, current.count() * dimension) : null;
+
+        int count = 0;
+        for (int i = 0; i < current.count(); i++) {
+            if (!keep.test(i)) continue;
+            ids[count] = current.ids()[i];
+            segments[count] = current.segments()[i];
+            if (codes != null) System.arraycopy(current.codes(), i * codeSize, codes, count * codeSize, codeSize);
+            if (staging != null) System.arraycopy(current.staging(), i * dimension, staging, count * dimension, dimension);
+            if (full != null) full.put(count * dimension, current.full(), i * dimension, dimension);
+            count++;
+        }
+        if (count == current.count()) return;
+        snapshot = new Snapshot(dimension, quantizer, codes, staging, full, ids, segments, count);
+    }
+
+    private static FloatBuffer grow(FloatBuffer current, int used, int capacity) {
+        // Hors tas : les vecteurs complets ne pèsent ni sur le tas ni sur les pauses du GC
+        FloatBuffer grown = ByteBuffer.allocateDirect(capacity * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        if (current != null && used > 0) grown.put(0, current, 0, used);
+        return grown;
+    }
+
+    private static Snapshot empty() {
+        return new Snapshot(0, null, new byte[0], new float[0], null, new String[0], new TextSegment[0], 0);
+    }
+
+    public static class Builder {
+
+        private Mode mode = Mode.INT8;
+        private int subspaces = 96;
+        private int trainingSize = 2_000;
+        private int rerank = 0;
+        private long seed = 42;
+
+        /**
+         * Quantification scalaire int8 (par défaut).
+         */
+        public Builder int8() {
+            this.mode = Mode.INT8;
+            return this;
+        }
+
+        /**
+         * Quantification produit, un octet par sous-espace ; la dimension doit être divisible par
+         * {@code subspaces}.
+         */
+        public Builder productQuantization(int subspaces) {
+            if (subspaces <= 0) throw new IllegalArgumentException("subspaces doit être > 0");
+            this.mode = Mode.PQ;
+            this.subspaces = subspaces;
+            return this;
+        }
+
+        /**
+         * Nombre de vecteurs sur lesquels apprendre les dictionnaires PQ.
+         */
+        public Builder trainingSize(int trainingSize) {
+            if (trainingSize <= 0) throw new IllegalArgumentException("trainingSize doit être > 0");
+            this.trainingSize = trainingSize;
+            return this;
+        }
+
+        /**
+         * Re-note exactement les {@code factor × maxResults} meilleurs candidats (0 = désactivé).
+         */
+        public Builder rerank(int factor) {
+            if (factor < 0) throw new IllegalArgumentException("rerank doit être >= 0");
+            this.rerank = factor;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public QuantizedEmbeddingStore build() {
+            return new QuantizedEmbeddingStore(this);
+        }
+    }
+}
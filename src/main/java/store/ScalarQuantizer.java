@@ -0,0 +1,61 @@
+package store;
+
+/**
+ * Quantification scalaire int8 : chaque composante est ramenée à [-127, 127] selon le maximum
+ * absolu du vecteur, stocké en fin de code (4 octets). 388 octets au lieu de 1536 en dimension 384.
+ */
+final class ScalarQuantizer implements VectorQuantizer {
+
+    private final int dimension;
+
+    ScalarQuantizer(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int codeSize() {
+        return dimension + Float.BYTES;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes, int offset) {
+        float maxAbs = 0f;
+        for (float v : vector) maxAbs = Math.max(maxAbs, Math.abs(v));
+        float scale = maxAbs == 0f ? 0f : maxAbs / 127f;
+        float inverse = scale == 0f ? 0f : 1f / scale;
+        for (int d = 0; d < dimension; d++) {
+            codes[offset + d] = (byte) Math.round(vector[d] * inverse);
+        }
+        writeFloat(codes, offset + dimension, scale);
+    }
+
+    @Override
+    public void decode(byte[] codes, int offset, float[] vector) {
+        float scale = readFloat(codes, offset + dimension);
+        for (int d = 0; d < dimension; d++) vector[d] = codes[offset + d] * scale;
+    }
+
+    @Override
+    public Scorer scorer(float[] query) {
+        return (codes, offset) -> {
+            float sum = 0f;
+            for (int d = 0; d < dimension; d++) sum += query[d] * codes[offset + d];
+            return sum * readFloat(codes, offset + dimension);
+        };
+    }
+
+    private static void writeFloat(byte[] codes, int offset, float value) {
+        int bits = Float.floatToRawIntBits(value);
+        codes[offset] = (byte) bits;
+        codes[offset + 1] = (byte) (bits >>> 8);
+        codes[offset + 2] = (byte) (bits >>> 16);
+        codes[offset + 3] = (byte) (bits >>> 24);
+    }
+
+    private static float readFloat(byte[] codes, int offset) {
+        return Float.intBitsToFloat((codes[offset] & 0xFF)
+                | (codes[offset + 1] & 0xFF) << 8
+                | (codes[offset + 2] & 0xFF) << 16
+                | (codes[offset + 3] & 0xFF) << 24);
+    }
+}
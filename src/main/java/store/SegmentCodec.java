@@ -0,0 +1,136 @@
+package store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sérialisation binaire d'un TextSegment (texte + métadonnées typées).
+ * <p>
+ * Les lectures depuis un {@link ByteBuffer} décodent directement le tampon (par exemple un
+ * fichier mappé), sans passer par un flux ni par une copie intermédiaire des octets.
+ */
+public final class SegmentCodec {
+
+    private static final byte STRING = 0;
+    private static final byte UUID_TYPE = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+
+    private SegmentCodec() {
+    }
+
+    public static void write(DataOutput out, TextSegment segment) throws IOException {
+        writeString(out, segment.text());
+
+        Map<String, Object> entries = segment.metadata().toMap();
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            switch (value) {
+                case String s -> {
+                    out.writeByte(STRING);
+                    writeString(out, s);
+                }
+                case UUID u -> {
+                    out.writeByte(UUID_TYPE);
+                    out.writeLong(u.getMostSignificantBits());
+                    out.writeLong(u.getLeastSignificantBits());
+                }
+                case Integer i -> {
+                    out.writeByte(INTEGER);
+                    out.writeInt(i);
+                }
+                case Long l -> {
+                    out.writeByte(LONG);
+                    out.writeLong(l);
+                }
+                case Float f -> {
+                    out.writeByte(FLOAT);
+                    out.writeFloat(f);
+                }
+                case Double d -> {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble(d);
+                }
+                default -> throw new IllegalArgumentException(
+                        "Type de métadonnée non supporté : " + value.getClass().getName());
+            }
+        }
+    }
+
+    public static TextSegment read(DataInput in) throws IOException {
+        String text = readString(in);
+
+        int size = in.readInt();
+        Map<String, Object> entries = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            Object value = switch (type) {
+                case STRING -> readString(in);
+                case UUID_TYPE -> new UUID(in.readLong(), in.readLong());
+                case INTEGER -> in.readInt();
+                case LONG -> in.readLong();
+                case FLOAT -> in.readFloat();
+                case DOUBLE -> in.readDouble();
+                default -> throw new IOException("Type de métadonnée inconnu : " + type);
+            };
+            entries.put(key, value);
+        }
+        return TextSegment.from(text, Metadata.from(entries));
+    }
+
+    public static TextSegment read(ByteBuffer in) throws IOException {
+        String text = readString(in);
+
+        int size = in.getInt();
+        Map<String, Object> entries = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte type = in.get();
+            Object value = switch (type) {
+                case STRING -> readString(in);
+                case UUID_TYPE -> new UUID(in.getLong(), in.getLong());
+                case INTEGER -> in.getInt();
+                case LONG -> in.getLong();
+                case FLOAT -> in.getFloat();
+                case DOUBLE -> in.getDouble();
+                default -> throw new IOException("Type de métadonnée inconnu : " + type);
+            };
+            entries.put(key, value);
+        }
+        return TextSegment.from(text, Metadata.from(entries));
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        int start = in.position();
+        String value = StandardCharsets.UTF_8.decode(in.slice(start, length)).toString();
+        in.position(start + length);
+        return value;
+    }
+}
@@ -0,0 +1,32 @@
+package store;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Produit scalaire vectorisé (Vector API). N'est chargé que si le module jdk.incubator.vector est présent.
+ */
+final class SimdKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private SimdKernel() {
+    }
+
+    static float dot(float[] query, float[] data, int offset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+            FloatVector v = FloatVector.fromArray(SPECIES, data, offset + i);
+            acc = q.fma(v, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += query[i] * data[offset + i];
+        }
+        return sum;
+    }
+}
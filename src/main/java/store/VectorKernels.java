@@ -0,0 +1,33 @@
+package store;
+
+/**
+ * Noyaux de calcul sur vecteurs float : SIMD si le module jdk.incubator.vector est chargé
+ * ({@code --add-modules jdk.incubator.vector}), boucle scalaire sinon.
+ */
+public final class VectorKernels {
+
+    public static final boolean SIMD = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private VectorKernels() {
+    }
+
+    public static float dot(float[] query, float[] data, int offset, int length) {
+        if (SIMD) return SimdKernel.dot(query, data, offset, length);
+
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += query[i] * data[offset + i];
+        }
+        return sum;
+    }
+
+    public static float[] normalized(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) sum += v * v;
+        float inverse = sum == 0f ? 0f : (float) (1 / Math.sqrt(sum));
+
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) result[i] = vector[i] * inverse;
+        return result;
+    }
+}
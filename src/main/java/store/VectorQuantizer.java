@@ -0,0 +1,23 @@
+package store;
+
+/**
+ * Compression d'un vecteur normalisé en un code d'octets de taille fixe, et score asymétrique :
+ * la requête reste en float, seuls les vecteurs stockés sont quantifiés.
+ */
+interface VectorQuantizer {
+
+    int codeSize();
+
+    void encode(float[] vector, byte[] codes, int offset);
+
+    void decode(byte[] codes, int offset, float[] vector);
+
+    /**
+     * Prépare une requête (normalisée) ; le scorer renvoie une approximation du produit scalaire.
+     */
+    Scorer scorer(float[] query);
+
+    interface Scorer {
+        float score(byte[] codes, int offset);
+    }
+}
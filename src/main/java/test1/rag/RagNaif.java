@@ -1,27 +1,24 @@
 package test1.rag;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.model.chat.ChatModel;
-import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
-import assistant.Assistant;
+import assistant.CachingAssistant;
+import assistant.StreamingAssistant;
+import assistant.StreamingConsole;
+import store.MappedEmbeddingStore;
+import ingestion.DocumentSnapshots;
+import ingestion.IngestionPipeline;
+import embedding.CachingEmbeddingModel;
+import cache.SemanticCache;
 
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 
@@ -30,7 +27,8 @@ public class RagNaif {
     public static void main(String[] args) throws Exception {
 
 
-        ChatModel model = GoogleAiGeminiChatModel.builder()
+        // Modèle en streaming : la réponse s'affiche au fil des tokens
+        StreamingChatModel model = GoogleAiGeminiStreamingChatModel.builder()
                 .apiKey(System.getenv("GEMINI_KEY"))
                 .modelName("gemini-2.5-flash")
                 .temperature(0.2)
@@ -40,24 +38,22 @@ public class RagNaif {
 
         Path pdfPath = getResourcePath("rag.pdf");
 
-        ApacheTikaDocumentParser parser = new ApacheTikaDocumentParser();
-
-        Document document = FileSystemDocumentLoader.loadDocument(pdfPath, parser);
-
-        DocumentSplitter splitter = DocumentSplitters.recursive(300, 30);
-        List<TextSegment> segments = splitter.split(document);
-
         EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        CachingEmbeddingModel queryEmbeddings = CachingEmbeddingModel.forQueries(embeddingModel);
 
-        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+        // Index persistant : le PDF n'est ré-ingéré que si son contenu a changé
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(Paths.get("index", "ia"));
 
-        EmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
-        store.addAll(embeddings, segments);
+        IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .snapshots(DocumentSnapshots.open(Paths.get("index", "snapshots")))
+                .build();
+        pipeline.ingest(store, pdfPath);
 
 
 
         var retriever = EmbeddingStoreContentRetriever.builder()
-                .embeddingModel(embeddingModel)
+                .embeddingModel(queryEmbeddings)
                 .embeddingStore(store)
                 .maxResults(2)
                 .minScore(0.5)
@@ -65,13 +61,19 @@ public class RagNaif {
 
         var memory = MessageWindowChatMemory.withMaxMessages(10);
 
-        Assistant assistant = AiServices.builder(Assistant.class)
-                .chatModel(model)
+        StreamingAssistant ragAssistant = AiServices.builder(StreamingAssistant.class)
+                .streamingChatModel(model)
                 .chatMemory(memory)
                 .contentRetriever(retriever)
                 .build();
 
-
+        // Cache sémantique des réponses, optionnel : -DsemanticCache=true
+        StreamingAssistant assistant = Boolean.getBoolean("semanticCache")
+                ? CachingAssistant.of(ragAssistant, SemanticCache.builder()
+                        .embeddingModel(queryEmbeddings)
+                        .indexVersion(store::generation)
+                        .build(), memory)
+                : ragAssistant;
 
         try (Scanner scanner = new Scanner(System.in)) {
             System.out.println("RAG naïf prêt ! Tape une question :");
@@ -82,7 +84,8 @@ public class RagNaif {
 
                 if (q == null || q.equalsIgnoreCase("exit")) break;
 
-                System.out.println("Assistant > " + assistant.chat(q));
+                System.out.print("Assistant > ");
+                StreamingConsole.print(() -> assistant.chat(q));
                 System.out.println();
             }
         }
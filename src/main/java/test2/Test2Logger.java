@@ -1,10 +1,5 @@
 package test2;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.data.embedding.Embedding;
 
@@ -17,9 +12,6 @@ import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2Embedding
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 
 import dev.langchain4j.store.embedding.EmbeddingMatch;
@@ -27,13 +19,16 @@ import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 
 import assistant.Assistant;
+import store.MappedEmbeddingStore;
 import test1.rag.RagNaif;
+import ingestion.DocumentSnapshots;
+import ingestion.IngestionPipeline;
+import embedding.CachingEmbeddingModel;
 
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
-import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 
@@ -56,34 +51,30 @@ public class Test2Logger {
                 .logRequestsAndResponses(true)
                 .build();
 
-        // ---- Charger PDF ----
+        // ---- Index persistant ----
         Path pdfPath = getResourcePath("rag.pdf");
-        ApacheTikaDocumentParser parser = new ApacheTikaDocumentParser();
-        Document document = FileSystemDocumentLoader.loadDocument(pdfPath, parser);
+        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        CachingEmbeddingModel queryEmbeddings = CachingEmbeddingModel.forQueries(embeddingModel);
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(Paths.get("index", "ia"));
 
-        // ---- Découpage du document ----
-        DocumentSplitter splitter = DocumentSplitters.recursive(300, 30);
-        List<TextSegment> segments = splitter.split(document);
+        // ---- Charger PDF, découper, calculer les embeddings (si le contenu a changé) ----
+        IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .snapshots(DocumentSnapshots.open(Paths.get("index", "snapshots")))
+                .build();
+        System.out.println(pipeline.ingest(store, pdfPath));
 
         System.out.println("\n===== SEGMENTS DU DOCUMENT (PHASE 1) =====");
         int i = 1;
-        for (TextSegment s : segments) {
+        for (TextSegment s : store.segments()) {
             System.out.println("---- SEGMENT " + i++ + " ----");
             System.out.println(s.text());
             System.out.println("----------------------------------\n");
         }
 
-        // ---- Embeddings ----
-        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
-
-        // ---- Store ----
-        EmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
-        store.addAll(embeddings, segments);
-
         // ---- Retriever pour l'assistant ----
         var retriever = EmbeddingStoreContentRetriever.builder()
-                .embeddingModel(embeddingModel)
+                .embeddingModel(queryEmbeddings)
                 .embeddingStore(store)
                 .maxResults(2)
                 .minScore(0.5)
@@ -109,7 +100,7 @@ public class Test2Logger {
                 System.out.println("\n===== SEGMENTS RETROUVÉS (MANUEL, PHASE 2) =====");
 
                 // 1. Embedding de la question
-                Embedding embeddingQuestion = embeddingModel.embed(question).content();
+                Embedding embeddingQuestion = queryEmbeddings.embed(question).content();
 
                 // 2. Construire la requête de recherche
                 EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
@@ -130,6 +121,7 @@ public class Test2Logger {
 
                 // ---- Réponse finale du LLM ----
                 System.out.println("\nAssistant > " + assistant.chat(question));
+                System.out.println(queryEmbeddings.stats());
             }
         }
     }
@@ -1,24 +1,24 @@
 package test3;
 
-import assistant.Assistant;
+import assistant.StreamingAssistant;
+import assistant.StreamingConsole;
 import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.chat.ChatModel;
-import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.rag.DefaultRetrievalAugmentor;
 import dev.langchain4j.rag.RetrievalAugmentor;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
-import dev.langchain4j.rag.query.router.LanguageModelQueryRouter;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import store.MappedEmbeddingStore;
+import ingestion.IngestionPipeline;
+import ingestion.StreamingSplitter;
+import embedding.CachingEmbeddingModel;
+import routing.FilterRouter;
+import retrieval.Bm25Index;
+import retrieval.HybridContentRetriever;
 
 import java.net.URISyntaxException;
 import java.nio.file.Paths;
@@ -27,10 +27,13 @@ import java.util.*;
 
 public class TestRoutage {
 
+    // Sujet du document, posé sur chacun de ses segments
+    private static final String TOPIC = "topic";
+
     public static void main(String[] args) throws Exception {
 
         // --- LLM ---
-        ChatModel model = GoogleAiGeminiChatModel.builder()
+        StreamingChatModel streamingModel = GoogleAiGeminiStreamingChatModel.builder()
                 .apiKey(System.getenv("GEMINI_KEY"))
                 .modelName("gemini-2.5-flash")
                 .temperature(0.2)
@@ -38,54 +41,65 @@ public class TestRoutage {
                 .build();
 
         EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        CachingEmbeddingModel queryEmbeddings = CachingEmbeddingModel.forQueries(embeddingModel);
 
         // --- Ingestion des documents ---
-        EmbeddingStore<TextSegment> storeIA = new InMemoryEmbeddingStore<>();
-        EmbeddingStore<TextSegment> storeGL = new InMemoryEmbeddingStore<>();
+        // Un seul store pour tous les sujets ; fichier, sujet et page sont indexés pour les filtres
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(Paths.get("index", "routage"),
+                Set.of(Document.FILE_NAME, TOPIC, StreamingSplitter.PAGE));
 
-        ingestPdf("rag.pdf", storeIA, embeddingModel);
-        ingestPdf("Support.pdf", storeGL, embeddingModel);
+        // Index BM25 construit pendant l'ingestion, pour les termes exacts (ISO/IEC 25010, AQL, SOLID)
+        Bm25Index lexicalIndex = new Bm25Index();
 
-        // --- 2 retrievers ---
-        ContentRetriever retrieverIA = EmbeddingStoreContentRetriever.builder()
-                .embeddingModel(embeddingModel)
-                .embeddingStore(storeIA)
-                .maxResults(3)
-                .minScore(0.35)
-                .build();
+        Map<Path, String> topics = new LinkedHashMap<>();
+        topics.put(getResourcePath("rag.pdf"), "ia");
+        topics.put(getResourcePath("Support.pdf"), "gl");
 
-        ContentRetriever retrieverGL = EmbeddingStoreContentRetriever.builder()
+        // Découpage en flux : les segments portent aussi leur numéro de page
+        IngestionPipeline pipeline = IngestionPipeline.builder()
                 .embeddingModel(embeddingModel)
-                .embeddingStore(storeGL)
-                .maxResults(3)
-                .minScore(0.35)
+                .streaming(300, 30)
+                .documentMetadata(path -> Map.of(TOPIC, topics.get(path)))
+                .lexicalIndex(store, lexicalIndex)
                 .build();
 
-
-        // --- DESCRIPTION RÉELLE DES PDF ---
-        Map<ContentRetriever, String> descriptions = new LinkedHashMap<>();
-
-        descriptions.put(retrieverIA,
-                """
-                Documents sur l'intelligence artificielle : RAG, embeddings, LLM, ingestion, retrieval.
-                Contenu : phases du RAG, vecteurs, modèles d'embeddings, pipeline IA.
-                """);
-
-        descriptions.put(retrieverGL,
-                """
-                Documents sur le Génie Logiciel et la Qualité Logicielle.
-                Contenu : qualité logicielle, ISO/IEC 25010, AQL, tests, maintenance, SOLID, désastres logiciels.
-                """);
+        System.out.println(pipeline.ingest(store, topics.keySet().toArray(Path[]::new)));
 
         // --- ROUTER ---
-        LanguageModelQueryRouter router = new LanguageModelQueryRouter(model, descriptions);
+        // Classifieur local par embeddings : choisit le sujet, donc le filtre de la recherche.
+        // Décision incertaine : pas de filtre, la recherche porte sur tous les sujets.
+        FilterRouter router = FilterRouter.builder()
+                .embeddingModel(queryEmbeddings)
+                .route(new IsEqualTo(TOPIC, "ia"),
+                        """
+                        Documents sur l'intelligence artificielle : RAG, embeddings, LLM, ingestion, retrieval.
+                        Contenu : phases du RAG, vecteurs, modèles d'embeddings, pipeline IA.
+                        """)
+                .route(new IsEqualTo(TOPIC, "gl"),
+                        """
+                        Documents sur le Génie Logiciel et la Qualité Logicielle.
+                        Contenu : qualité logicielle, ISO/IEC 25010, AQL, tests, maintenance, SOLID, désastres logiciels.
+                        """)
+                .acceptAbove(0.3)
+                .margin(0.1)
+                .build();
+
+        // --- Retriever hybride (BM25 + embeddings), filtré par le routeur ---
+        ContentRetriever retriever = HybridContentRetriever.builder()
+                .embeddingModel(queryEmbeddings)
+                .embeddingStore(store)
+                .lexicalIndex(lexicalIndex)
+                .dynamicFilter(router)
+                .maxResults(3)
+                .minScore(0.35)
+                .build();
 
         RetrievalAugmentor augmentor = DefaultRetrievalAugmentor.builder()
-                .queryRouter(router)
+                .contentRetriever(retriever)
                 .build();
 
-        Assistant assistant = dev.langchain4j.service.AiServices.builder(Assistant.class)
-                .chatModel(model)
+        StreamingAssistant assistant = dev.langchain4j.service.AiServices.builder(StreamingAssistant.class)
+                .streamingChatModel(streamingModel)
                 .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
                 .retrievalAugmentor(augmentor)
                 .build();
@@ -99,24 +113,10 @@ public class TestRoutage {
             String q = scanner.nextLine();
             if (q == null || q.equalsIgnoreCase("exit")) break;
 
-            System.out.println("\nAssistant > " + assistant.chat(q));
+            System.out.print("\nAssistant > ");
+            StreamingConsole.print(() -> assistant.chat(q));
         }
-    }
-
-    private static void ingestPdf(String fileName,
-                                  EmbeddingStore<TextSegment> store,
-                                  EmbeddingModel embeddingModel) throws Exception {
-
-        Path path = getResourcePath(fileName);
-        ApacheTikaDocumentParser parser = new ApacheTikaDocumentParser();
-
-        Document doc = FileSystemDocumentLoader.loadDocument(path, parser);
-        var splitter = DocumentSplitters.recursive(300, 30);
-
-        List<TextSegment> segments = splitter.split(doc);
-        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
-
-        store.addAll(embeddings, segments);
+        System.out.println(router.stats());
     }
 
     private static Path getResourcePath(String name) throws URISyntaxException {
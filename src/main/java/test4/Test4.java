@@ -1,16 +1,13 @@
 package test4;
 
 
-import assistant.Assistant;
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.data.segment.TextSegment;
+import assistant.StreamingAssistant;
+import assistant.StreamingConsole;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.input.PromptTemplate;
@@ -22,8 +19,11 @@ import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.rag.query.router.QueryRouter;
 import dev.langchain4j.rag.query.Query;
 
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import store.MappedEmbeddingStore;
+import ingestion.DocumentSnapshots;
+import ingestion.IngestionPipeline;
+import embedding.CachingEmbeddingModel;
+import routing.EmbeddingQueryRouter;
 
 import java.net.URISyntaxException;
 import java.nio.file.Path;
@@ -42,16 +42,29 @@ public class Test4 {
                 .logRequestsAndResponses(true)
                 .build();
 
+        // Même modèle en streaming pour l'assistant (le routeur LLM reste synchrone)
+        StreamingChatModel streamingModel = GoogleAiGeminiStreamingChatModel.builder()
+                .apiKey(System.getenv("GEMINI_KEY"))
+                .modelName("gemini-2.5-flash")
+                .temperature(0.2)
+                .logRequestsAndResponses(true)
+                .build();
+
         // --- 2) MODELE D’EMBEDDING ---
         EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        CachingEmbeddingModel queryEmbeddings = CachingEmbeddingModel.forQueries(embeddingModel);
 
-        // --- 3) INGESTION DU PDF rag.pdf UNIQUEMENT ---
-        EmbeddingStore<TextSegment> storeIA = new InMemoryEmbeddingStore<>();
-        ingestPdf("rag.pdf", storeIA, embeddingModel);
+        // --- 3) INGESTION DU PDF rag.pdf UNIQUEMENT (index persistant) ---
+        MappedEmbeddingStore storeIA = MappedEmbeddingStore.open(Paths.get("index", "ia"));
+        IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .snapshots(DocumentSnapshots.open(Paths.get("index", "snapshots")))
+                .build();
+        System.out.println(pipeline.ingest(storeIA, getResourcePath("rag.pdf")));
 
         // --- 4) CREATION DU RETRIEVER ---
         ContentRetriever retrieverIA = EmbeddingStoreContentRetriever.builder()
-                .embeddingModel(embeddingModel)
+                .embeddingModel(queryEmbeddings)
                 .embeddingStore(storeIA)
                 .maxResults(3)
                 .minScore(0.35)
@@ -70,7 +83,7 @@ public class Test4 {
         );
 
         // --- 6) QUERY ROUTER PERSONNALISÉ ---
-        QueryRouter customRouter = new QueryRouter() {
+        QueryRouter llmRouter = new QueryRouter() {
             @Override
             public List<ContentRetriever> route(Query query) {
 
@@ -90,14 +103,24 @@ public class Test4 {
             }
         };
 
+        // --- 6 bis) CLASSIFIEUR LOCAL DEVANT LE ROUTEUR LLM ---
+        // Sûr : RAG au-dessus de 0.5, pas de RAG sous 0.3 ; entre les deux on demande au LLM
+        EmbeddingQueryRouter customRouter = EmbeddingQueryRouter.builder()
+                .embeddingModel(queryEmbeddings)
+                .route(retrieverIA, "Requêtes portant sur l'intelligence artificielle, le RAG ou le Fine-Tuning.")
+                .acceptAbove(0.5)
+                .rejectBelow(0.3)
+                .fallback(llmRouter)
+                .build();
+
         // --- 7) RETRIEVAL AUGMENTOR ---
         RetrievalAugmentor augmentor = DefaultRetrievalAugmentor.builder()
                 .queryRouter(customRouter)
                 .build();
 
         // --- 8) ASSISTANT ---
-        Assistant assistant = dev.langchain4j.service.AiServices.builder(Assistant.class)
-                .chatModel(model)
+        StreamingAssistant assistant = dev.langchain4j.service.AiServices.builder(StreamingAssistant.class)
+                .streamingChatModel(streamingModel)
                 .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
                 .retrievalAugmentor(augmentor)
                 .build();
@@ -111,28 +134,13 @@ public class Test4 {
             String q = scanner.nextLine();
             if (q == null || q.equalsIgnoreCase("exit")) break;
 
-            System.out.println("\nAssistant > " + assistant.chat(q));
+            System.out.print("\nAssistant > ");
+            StreamingConsole.print(() -> assistant.chat(q));
         }
     }
 
     // --------------------------- OUTILS -----------------------------
 
-    private static void ingestPdf(String fileName,
-                                  EmbeddingStore<TextSegment> store,
-                                  EmbeddingModel embeddingModel) throws Exception {
-
-        Path path = getResourcePath(fileName);
-        ApacheTikaDocumentParser parser = new ApacheTikaDocumentParser();
-
-        Document doc = FileSystemDocumentLoader.loadDocument(path, parser);
-        var splitter = DocumentSplitters.recursive(300, 30);
-
-        List<TextSegment> segments = splitter.split(doc);
-        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
-
-        store.addAll(embeddings, segments);
-    }
-
     private static Path getResourcePath(String name) throws URISyntaxException {
         return Paths.get(Objects.requireNonNull(
                 Test4.class.getClassLoader().getResource(name)
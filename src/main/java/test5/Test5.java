@@ -1,16 +1,10 @@
 package test5;
 
-import assistant.Assistant;
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-
-import dev.langchain4j.model.chat.ChatModel;
-import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import assistant.StreamingAssistant;
+import assistant.StreamingConsole;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
@@ -22,64 +16,104 @@ import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.rag.content.retriever.WebSearchContentRetriever;
 import dev.langchain4j.rag.query.router.DefaultQueryRouter;
 
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
-
 import dev.langchain4j.web.search.WebSearchEngine;
 import dev.langchain4j.web.search.tavily.TavilyWebSearchEngine;
 
+import cache.CachingWebSearchEngine;
+import ingestion.DocumentSnapshots;
+import ingestion.IngestionPipeline;
+import store.MappedEmbeddingStore;
+import embedding.CachingEmbeddingModel;
+import retrieval.FanOutContentRetriever;
+import metrics.PrometheusFileExporter;
+import metrics.RagMetrics;
+import prompt.BudgetedChatMemory;
+import prompt.BudgetedContentInjector;
+
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
 
 public class Test5 {
 
     public static void main(String[] args) throws Exception {
 
+        // ---- 0) MÉTRIQUES ----
+        // Latences par étape exportées au format Prometheus dans -Dmetrics.file (toutes les 10 s)
+        RagMetrics metrics = new RagMetrics();
+        PrometheusFileExporter exporter = PrometheusFileExporter.start(metrics,
+                Paths.get(System.getProperty("metrics.file", "target/rag-metrics.prom")), Duration.ofSeconds(10));
+
         // ---- 1) MODEL ----
-        ChatModel model = GoogleAiGeminiChatModel.builder()
+        // Modèle en streaming : la réponse s'affiche au fil des tokens
+        StreamingChatModel streamingModel = GoogleAiGeminiStreamingChatModel.builder()
                 .apiKey(System.getenv("GEMINI_KEY"))
                 .modelName("gemini-2.5-flash")
                 .logRequestsAndResponses(true)
+                .listeners(List.of(metrics.chatModelListener()))
                 .build();
 
         // ---- 2) EMBEDDING MODEL ----
         EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        CachingEmbeddingModel queryEmbeddings = CachingEmbeddingModel.forQueries(embeddingModel);
 
         // ---- 3) LOAD PDF + INDEX ----
-        EmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
-        ingestPdf("rag.pdf", store, embeddingModel);
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(Paths.get("index", "ia"));
+        IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .snapshots(DocumentSnapshots.open(Paths.get("index", "snapshots")))
+                .build();
+        System.out.println(pipeline.ingest(store, getResourcePath("rag.pdf")));
 
         ContentRetriever pdfRetriever = EmbeddingStoreContentRetriever.builder()
-                .embeddingStore(store)
-                .embeddingModel(embeddingModel)
+                .embeddingStore(metrics.store(store))
+                .embeddingModel(metrics.queryEmbeddings(queryEmbeddings))
                 .maxResults(3)
                 .build();
 
         // ---- 4) TAVILY WEB SEARCH ----
         WebSearchEngine tavily = TavilyWebSearchEngine.builder()
                 .apiKey(System.getenv("TAVILY_API_KEY"))
+                // Même limite que la source web du fan-out : un appel abandonné libère sa connexion
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        // Recherches déjà faites servies par le cache (1 h), conservé entre deux lancements
+        CachingWebSearchEngine webCache = CachingWebSearchEngine.builder()
+                .delegate(tavily)
+                .ttl(Duration.ofHours(1))
+                .maxEntries(500)
+                .file(Paths.get("index", "web-cache.bin"))
                 .build();
 
         ContentRetriever webRetriever = WebSearchContentRetriever.builder()
-                .webSearchEngine(tavily)
+                .webSearchEngine(metrics.webSearch(webCache))
                 .build(); 
 
-        // ---- 5) ROUTAGE PDF + WEB ----
-        DefaultQueryRouter router = new DefaultQueryRouter(
-                List.of(pdfRetriever, webRetriever)
-        );
+        // ---- 5) PDF + WEB EN PARALLÈLE ----
+        // La recherche web ne retarde la réponse que de 300 ms au plus une fois le PDF interrogé
+        FanOutContentRetriever retriever = FanOutContentRetriever.builder()
+                .source("pdf", pdfRetriever, Duration.ofSeconds(2))
+                .optionalSource("web", webRetriever, Duration.ofSeconds(5))
+                .grace(Duration.ofMillis(300))
+                .build();
 
         // ---- 6) RAG AUGMENTOR ----
+        // Passages PDF + web dédoublonnés, segments voisins fusionnés, 1 000 tokens au plus
+        BudgetedContentInjector injector = BudgetedContentInjector.builder()
+                .maxTokens(1_000)
+                .build();
         RetrievalAugmentor augmentor = DefaultRetrievalAugmentor.builder()
-                .queryRouter(router)
+                .queryRouter(metrics.router(new DefaultQueryRouter(retriever)))
+                .contentInjector(metrics.contentInjector(injector))
                 .build();
 
         // ---- 7) ASSISTANT ----
-        Assistant assistant = dev.langchain4j.service.AiServices.builder(Assistant.class)
-                .chatModel(model)
-                .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
+        StreamingAssistant assistant = dev.langchain4j.service.AiServices.builder(StreamingAssistant.class)
+                .streamingChatModel(streamingModel)
+                .chatMemory(BudgetedChatMemory.builder().maxTokens(1_500).build())
                 .retrievalAugmentor(augmentor)
                 .build();
 
@@ -92,25 +126,18 @@ public class Test5 {
             String question = scanner.nextLine();
             if (question.equalsIgnoreCase("exit")) break;
 
-            System.out.println("\nAssistant > " + assistant.chat(question));
+            System.out.print("\nAssistant > ");
+            StreamingConsole.print(() -> assistant.chat(question));
+            retriever.stats().forEach((source, stats) -> System.out.println("  [" + source + "] " + stats));
+            System.out.println("  " + injector.stats());
         }
+        exporter.close();
+        webCache.close();
+        System.out.println(metrics);
+        System.out.println(webCache.stats());
     }
 
 
-    private static void ingestPdf(String fileName,
-                                  EmbeddingStore<TextSegment> store,
-                                  EmbeddingModel embeddingModel) throws Exception {
-
-        Path path = getResourcePath(fileName);
-        Document doc = FileSystemDocumentLoader.loadDocument(path, new ApacheTikaDocumentParser());
-
-        var splitter = DocumentSplitters.recursive(300, 30);
-        var segments = splitter.split(doc);
-
-        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
-        store.addAll(embeddings, segments);
-    }
-
     private static Path getResourcePath(String name) throws URISyntaxException {
         return Paths.get(Objects.requireNonNull(
                 Test5.class.getClassLoader().getResource(name)
@@ -0,0 +1,84 @@
+package assistant;
+
+import cache.SemanticCache;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.service.AiServices;
+import org.junit.jupiter.api.Test;
+import stub.StubChatModel;
+import stub.StubEmbeddingModel;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * CachingAssistant devant un AiServices sur {@link StubChatModel}, qui compte les appels au LLM.
+ */
+class CachingAssistantTest {
+
+    private final StubChatModel model = new StubChatModel("Réponse du modèle.", Duration.ZERO);
+    private final SemanticCache cache = SemanticCache.builder().embeddingModel(new StubEmbeddingModel()).build();
+
+    @Test
+    void cachedAnswerIsRecordedInMemory() {
+        ChatMemory memory = MessageWindowChatMemory.withMaxMessages(10);
+        Assistant assistant = caching(memory);
+
+        assertEquals("Réponse du modèle.", assistant.chat("Qu'est-ce que le RAG ?"));
+        assertEquals("Réponse du modèle.", assistant.chat("Qu'est-ce que le RAG ?"));
+
+        assertEquals(1, model.calls());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(4, memory.messages().size());
+        assertEquals("Qu'est-ce que le RAG ?", ((UserMessage) memory.messages().get(2)).singleText());
+        assertEquals("Réponse du modèle.", ((AiMessage) memory.messages().get(3)).text());
+    }
+
+    @Test
+    void answersInsideConversationAreNotCached() {
+        Assistant first = caching(MessageWindowChatMemory.withMaxMessages(10));
+        first.chat("Qu'est-ce que le RAG ?");
+        first.chat("Et ses limites ?");
+        assertEquals(1, cache.stats().size());
+
+        // « Et ses limites ? » n'a de sens qu'après la première question : pas de réponse réutilisée
+        Assistant second = caching(MessageWindowChatMemory.withMaxMessages(10));
+        second.chat("Et ses limites ?");
+        assertEquals(3, model.calls());
+    }
+
+    @Test
+    void streamingHitIsReplayedWithoutDelegate() throws Exception {
+        cache.put("Qu'est-ce que le RAG ?", "Réponse en cache.");
+        ChatMemory memory = MessageWindowChatMemory.withMaxMessages(10);
+        StreamingAssistant assistant = CachingAssistant.of((StreamingAssistant) question -> {
+            throw new AssertionError("LLM appelé malgré le cache");
+        }, cache, memory);
+
+        StringBuilder partials = new StringBuilder();
+        CompletableFuture<ChatResponse> done = new CompletableFuture<>();
+        assistant.chat("Qu'est-ce que le RAG ?")
+                .onPartialResponse(partials::append)
+                .onCompleteResponse(done::complete)
+                .onError(done::completeExceptionally)
+                .start();
+
+        assertEquals("Réponse en cache.", partials.toString());
+        assertEquals("Réponse en cache.", done.get().aiMessage().text());
+        assertInstanceOf(AiMessage.class, memory.messages().get(1));
+    }
+
+    private Assistant caching(ChatMemory memory) {
+        Assistant assistant = AiServices.builder(Assistant.class)
+                .chatModel(model)
+                .chatMemory(memory)
+                .build();
+        return CachingAssistant.of(assistant, cache, memory);
+    }
+}
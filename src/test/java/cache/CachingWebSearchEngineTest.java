@@ -0,0 +1,169 @@
+package cache;
+
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stub.MutableClock;
+import stub.StubWebSearchEngine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Cache web autour de {@link StubWebSearchEngine}, qui compte les appels sortants.
+ */
+class CachingWebSearchEngineTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void entriesExpireAfterTtl() {
+        StubWebSearchEngine delegate = new StubWebSearchEngine();
+        CachingWebSearchEngine cache = CachingWebSearchEngine.builder()
+                .delegate(delegate)
+                .ttl(Duration.ofMinutes(10))
+                .clock(clock)
+                .build();
+
+        WebSearchResults first = cache.search("qualité logicielle");
+        clock.advance(Duration.ofMinutes(9));
+        assertSame(first, cache.search("  Qualité   logicielle "));
+        assertEquals(1, delegate.calls());
+
+        clock.advance(Duration.ofMinutes(1));
+        cache.search("qualité logicielle");
+        assertEquals(2, delegate.calls());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        StubWebSearchEngine delegate = new StubWebSearchEngine();
+        CachingWebSearchEngine cache = CachingWebSearchEngine.builder()
+                .delegate(delegate)
+                .maxEntries(2)
+                .clock(clock)
+                .build();
+
+        cache.search("a");
+        cache.search("b");
+        cache.search("a");
+        cache.search("c");
+        assertEquals(3, delegate.calls());
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+
+        cache.search("a");
+        assertEquals(3, delegate.calls());
+        cache.search("b");
+        assertEquals(4, delegate.calls());
+    }
+
+    @Test
+    void cacheIsReloadedFromFile(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("web-cache.bin");
+        WebSearchRequest request = WebSearchRequest.builder().searchTerms("RAG").maxResults(2).build();
+        WebSearchResults original;
+        try (CachingWebSearchEngine cache = CachingWebSearchEngine.builder()
+                .delegate(new StubWebSearchEngine())
+                .ttl(Duration.ofMinutes(10))
+                .file(file)
+                .clock(clock)
+                .build()) {
+            original = cache.search(request);
+        }
+
+        StubWebSearchEngine delegate = new StubWebSearchEngine();
+        try (CachingWebSearchEngine reloaded = CachingWebSearchEngine.builder()
+                .delegate(delegate)
+                .ttl(Duration.ofMinutes(10))
+                .file(file)
+                .clock(clock)
+                .build()) {
+            WebSearchResults results = reloaded.search(request);
+            assertEquals(0, delegate.calls());
+            assertEquals(original.searchInformation().totalResults(), results.searchInformation().totalResults());
+            assertEquals(original.results().size(), results.results().size());
+            for (int i = 0; i < results.results().size(); i++) {
+                WebSearchOrganicResult expected = original.results().get(i);
+                WebSearchOrganicResult actual = results.results().get(i);
+                assertEquals(expected.title(), actual.title());
+                assertEquals(expected.url(), actual.url());
+                assertEquals(expected.snippet(), actual.snippet());
+            }
+        }
+
+        // Entrées expirées entre deux démarrages : non rechargées
+        clock.advance(Duration.ofMinutes(10));
+        try (CachingWebSearchEngine expired = CachingWebSearchEngine.builder()
+                .delegate(delegate)
+                .ttl(Duration.ofMinutes(10))
+                .file(file)
+                .clock(clock)
+                .build()) {
+            assertEquals(0, expired.stats().size());
+            expired.search(request);
+            assertEquals(1, delegate.calls());
+        }
+    }
+
+    @Test
+    void concurrentIdenticalSearchesMakeOneCall() throws Exception {
+        int threads = 8;
+        StubWebSearchEngine delegate = new StubWebSearchEngine(Duration.ofMillis(200), 3);
+        CachingWebSearchEngine cache = CachingWebSearchEngine.builder().delegate(delegate).clock(clock).build();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            assertEquals(threads, searchTogether(executor, cache, threads, "tests de non-régression").size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, delegate.calls());
+        assertEquals(threads - 1, cache.stats().coalesced() + cache.stats().hits());
+    }
+
+    @Test
+    void searchFinishingBeforeRegistrationIsNotRepeated() throws Exception {
+        // Sans latence, un appel peut se terminer entre la lecture du cache et le putIfAbsent d'un
+        // autre thread ; la fenêtre est étroite, mais aucun tour ne doit faire deux appels
+        int threads = 4;
+        int rounds = 5_000;
+        StubWebSearchEngine delegate = new StubWebSearchEngine(Duration.ZERO, 1);
+        CachingWebSearchEngine cache = CachingWebSearchEngine.builder().delegate(delegate).clock(clock).build();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < rounds; round++) searchTogether(executor, cache, threads, "question " + round);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(rounds, delegate.calls());
+    }
+
+    // Même recherche lancée au même instant depuis plusieurs threads
+    private static List<WebSearchResults> searchTogether(ExecutorService executor, CachingWebSearchEngine cache,
+                                                         int threads, String terms) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<WebSearchResults>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.search(terms);
+            }));
+        }
+        List<WebSearchResults> results = new ArrayList<>();
+        for (Future<WebSearchResults> future : futures) results.add(future.get());
+        return results;
+    }
+}
@@ -0,0 +1,82 @@
+package embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import org.junit.jupiter.api.Test;
+import stub.StubEmbeddingModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Micro-batching derrière le cache des questions, comme dans RagServer.
+ */
+class MicroBatchingEmbeddingModelTest {
+
+    @Test
+    void concurrentQuestionsThroughCacheAreBatched() throws Exception {
+        int threads = 8;
+        StubEmbeddingModel model = new StubEmbeddingModel();
+        try (MicroBatchingEmbeddingModel batcher = MicroBatchingEmbeddingModel.builder()
+                .delegate(model)
+                .maxWait(Duration.ofMillis(200))
+                .build()) {
+            CachingEmbeddingModel cache = new CachingEmbeddingModel(batcher, 100);
+
+            CyclicBarrier start = new CyclicBarrier(threads);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<Embedding>> futures = new ArrayList<>();
+            try {
+                for (int i = 0; i < threads; i++) {
+                    String question = "question " + i;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return cache.embed(question).content();
+                    }));
+                }
+                for (int i = 0; i < threads; i++) {
+                    assertArrayEquals(StubEmbeddingModel.vector("question " + i, model.dimension()),
+                            futures.get(i).get().vector());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            MicroBatchingEmbeddingModel.Stats stats = batcher.stats();
+            assertEquals(threads, stats.requests());
+            assertTrue(stats.maxBatchSize() > 1, stats::toString);
+            assertTrue(model.calls() < threads, () -> model.calls() + " appels au modèle");
+            assertEquals(threads, stats.queueWait().count());
+        }
+    }
+
+    @Test
+    void cachedQuestionDoesNotReachBatcher() {
+        StubEmbeddingModel model = new StubEmbeddingModel();
+        try (MicroBatchingEmbeddingModel batcher = MicroBatchingEmbeddingModel.builder().delegate(model).build()) {
+            CachingEmbeddingModel cache = new CachingEmbeddingModel(batcher, 100);
+            cache.embed("Qu'est-ce que le RAG ?");
+            cache.embed("  qu'est-ce que le   RAG ? ");
+            assertEquals(1, batcher.stats().requests());
+            assertEquals(1, cache.stats().hits());
+        }
+    }
+
+    @Test
+    void closedBatcherRejectsRequests() {
+        MicroBatchingEmbeddingModel batcher = MicroBatchingEmbeddingModel.builder()
+                .delegate(new StubEmbeddingModel())
+                .build();
+        batcher.close();
+        assertThrows(IllegalStateException.class, () -> batcher.embed("question"));
+    }
+}
@@ -0,0 +1,101 @@
+package embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import stub.StubEmbeddingModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ordre des vecteurs de {@code embedAll} malgré le tri par longueur, les lots parallèles et le
+ * modèle de repli. Le modèle de repli est un StubEmbeddingModel : ses vecteurs se reconnaissent.
+ */
+class PooledOnnxEmbeddingModelTest {
+
+    private static final int DIMENSION = 384;
+
+    private static PooledOnnxEmbeddingModel pooled;
+    private static AllMiniLmL6V2EmbeddingModel reference;
+
+    @BeforeAll
+    static void load() {
+        pooled = PooledOnnxEmbeddingModel.allMiniLmL6V2()
+                .sessions(2)
+                .tokenizerThreads(2)
+                .batchSize(4)
+                .maxTokens(64)
+                .fallback(() -> new StubEmbeddingModel(DIMENSION, Duration.ZERO))
+                .build();
+        reference = new AllMiniLmL6V2EmbeddingModel();
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        pooled.close();
+    }
+
+    @Test
+    void embedAllKeepsInputOrder() {
+        // Longueurs mélangées : le tri par longueur réordonne les segments dans les lots
+        Random random = new Random(13);
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            StringBuilder text = new StringBuilder("Segment ").append(i);
+            for (int w = random.nextInt(20); w > 0; w--) text.append(" mot").append(random.nextInt(50));
+            segments.add(TextSegment.from(text.toString()));
+        }
+
+        List<Embedding> embeddings = pooled.embedAll(segments).content();
+
+        assertEquals(segments.size(), embeddings.size());
+        for (int i = 0; i < segments.size(); i++) {
+            float[] expected = pooled.embedAll(List.of(segments.get(i))).content().get(0).vector();
+            assertArrayEquals(expected, embeddings.get(i).vector(), 1e-5f, "segment " + i);
+            assertTrue(cosine(reference.embed(segments.get(i)).content().vector(), embeddings.get(i).vector()) > 0.9999,
+                    "segment " + i);
+        }
+    }
+
+    @Test
+    void tooLongTextsGoToTheFallbackInPlace() {
+        String tooLong = "une phrase bien trop longue pour soixante-quatre tokens ".repeat(10);
+        List<TextSegment> segments = List.of(
+                TextSegment.from("court"),
+                TextSegment.from(tooLong + "A"),
+                TextSegment.from("encore un texte court"),
+                TextSegment.from(tooLong + "B"),
+                TextSegment.from("dernier"));
+
+        List<Embedding> embeddings = pooled.embedAll(segments).content();
+
+        assertEquals(segments.size(), embeddings.size());
+        for (int i : new int[]{1, 3}) {
+            assertArrayEquals(StubEmbeddingModel.vector(segments.get(i).text(), DIMENSION), embeddings.get(i).vector());
+        }
+        for (int i : new int[]{0, 2, 4}) {
+            assertTrue(cosine(reference.embed(segments.get(i)).content().vector(), embeddings.get(i).vector()) > 0.9999,
+                    "segment " + i);
+        }
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
@@ -0,0 +1,257 @@
+package eval;
+
+import assistant.Assistant;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.WebSearchContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.DefaultQueryRouter;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import embedding.PooledOnnxEmbeddingModel;
+import ingestion.ChunkingStrategy;
+import ingestion.DocumentSnapshots;
+import ingestion.IngestionPipeline;
+import metrics.LatencyHistogram;
+import metrics.RagMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import prompt.BudgetedChatMemory;
+import prompt.BudgetedContentInjector;
+import retrieval.Bm25Index;
+import retrieval.FanOutContentRetriever;
+import retrieval.HybridContentRetriever;
+import routing.FilterRouter;
+import store.MappedEmbeddingStore;
+import stub.StubChatModel;
+import stub.StubWebSearchEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Évaluation hors ligne de la récupération et de la latence, sur les questions étiquetées
+ * ({@link LabelledQuestion}) et les PDF embarqués, à travers la vraie chaîne : Tika, découpage,
+ * MiniLM, MappedEmbeddingStore, BM25, routeur de filtres, fan-out PDF + web, injecteur budgété,
+ * mémoire, AiServices. Seuls le LLM et la recherche web sont remplacés par des bouchons locaux
+ * déterministes ({@link StubChatModel}, {@link StubWebSearchEngine}) : aucune clé d'API.
+ * <p>
+ * Mesures : rappel@1/3/10 et MRR@10 du retriever hybride, part des questions dont le passage
+ * attendu atteint le prompt envoyé au LLM, et p50/p95/p99 de la durée d'un tour complet. Le code
+ * test échoue si un seuil de la ressource {@code eval/thresholds.properties} n'est pas tenu :
+ * {@code mvn verify} (ou {@code mvn test}) échoue en cas de régression.
+ * <p>
+ * Propriétés : {@code -Deval.docs=src/main/resources}, {@code -Deval.chunking=structure},
+ * {@code -Deval.rounds=3} (passes mesurées après une passe de chauffe),
+ * {@code -Deval.llm.latency=PT0S}, {@code -Deval.questions=<fichier>} et chaque seuil préfixé
+ * par {@code eval.}, par exemple {@code mvn verify -Deval.latency.p95.max.ms=400}.
+ */
+class RetrievalEvaluationTest {
+
+    private static final String TOPIC = "topic";
+    private static final String THRESHOLDS = "eval/thresholds.properties";
+
+    @Test
+    void retrievalAndLatencyMeetThresholds(@TempDir Path work) throws Exception {
+        Path docs = Paths.get(System.getProperty("eval.docs", "src/main/resources"));
+        String chunking = System.getProperty("eval.chunking", "structure");
+        int rounds = Integer.parseInt(System.getProperty("eval.rounds", "3"));
+        Duration llmLatency = Duration.parse(System.getProperty("eval.llm.latency", "PT0S"));
+        String questionsFile = System.getProperty("eval.questions");
+        List<LabelledQuestion> questions = questionsFile == null
+                ? LabelledQuestion.load() : LabelledQuestion.load(Paths.get(questionsFile));
+        Properties thresholds = thresholds();
+
+        List<String> regressions;
+        try (PooledOnnxEmbeddingModel embeddingModel = PooledOnnxEmbeddingModel.allMiniLmL6V2().build()) {
+            // ---- Ingestion ----
+            MappedEmbeddingStore store = MappedEmbeddingStore.open(work.resolve("index"), Set.of(Document.FILE_NAME, TOPIC));
+            Bm25Index lexicalIndex = new Bm25Index();
+            Map<Path, String> topics = new LinkedHashMap<>();
+            topics.put(docs.resolve("rag.pdf"), "ia");
+            topics.put(docs.resolve("Support.pdf"), "gl");
+            IngestionPipeline pipeline = IngestionPipeline.builder()
+                    .embeddingModel(embeddingModel)
+                    .chunking(ChunkingStrategy.named(chunking, embeddingModel))
+                    // Instantanés temporaires eux aussi : jamais de segments d'une autre version du code
+                    .snapshots(DocumentSnapshots.open(work.resolve("snapshots")))
+                    .documentMetadata(path -> Map.of(TOPIC, topics.get(path)))
+                    .lexicalIndex(store, lexicalIndex)
+                    .build();
+            System.out.print(pipeline.ingest(store, topics.keySet().toArray(Path[]::new)));
+
+            // ---- Chaîne de récupération (celle de TestRoutage + Test5) ----
+            RagMetrics metrics = new RagMetrics();
+            FilterRouter router = FilterRouter.builder()
+                    .embeddingModel(embeddingModel)
+                    .route(new IsEqualTo(TOPIC, "ia"), """
+                            Documents sur l'intelligence artificielle : RAG, embeddings, LLM, ingestion, retrieval.
+                            Contenu : phases du RAG, vecteurs, modèles d'embeddings, pipeline IA.
+                            """)
+                    .route(new IsEqualTo(TOPIC, "gl"), """
+                            Documents sur le Génie Logiciel et la Qualité Logicielle.
+                            Contenu : qualité logicielle, ISO/IEC 25010, AQL, tests, maintenance, SOLID, désastres logiciels.
+                            """)
+                    .acceptAbove(0.3)
+                    .margin(0.1)
+                    .build();
+            // Même classement que le retriever de production (20 candidats), jusqu'au rang 10 pour le MRR
+            HybridContentRetriever ranking = hybrid(embeddingModel, metrics, store, lexicalIndex, router, 10);
+            HybridContentRetriever pdfRetriever = hybrid(embeddingModel, metrics, store, lexicalIndex, router, 3);
+            ContentRetriever webRetriever = WebSearchContentRetriever.builder()
+                    .webSearchEngine(metrics.webSearch(new StubWebSearchEngine(Duration.ZERO, 2)))
+                    .build();
+            FanOutContentRetriever retriever = FanOutContentRetriever.builder()
+                    .source("pdf", pdfRetriever, Duration.ofSeconds(2))
+                    .optionalSource("web", webRetriever, Duration.ofSeconds(5))
+                    .grace(Duration.ofMillis(300))
+                    .build();
+
+            AtomicReference<String> lastPrompt = new AtomicReference<>("");
+            ChatModelListener promptRecorder = new ChatModelListener() {
+                @Override
+                public void onRequest(ChatModelRequestContext context) {
+                    List<ChatMessage> messages = context.chatRequest().messages();
+                    if (messages.getLast() instanceof UserMessage user) lastPrompt.set(user.singleText());
+                }
+            };
+            Assistant assistant = AiServices.builder(Assistant.class)
+                    .chatModel(new StubChatModel("Réponse simulée.", llmLatency,
+                            List.of(metrics.chatModelListener(), promptRecorder)))
+                    .chatMemory(BudgetedChatMemory.builder().maxTokens(1_500).build())
+                    .retrievalAugmentor(DefaultRetrievalAugmentor.builder()
+                            .queryRouter(metrics.router(new DefaultQueryRouter(retriever)))
+                            .contentInjector(metrics.contentInjector(BudgetedContentInjector.builder().maxTokens(1_000).build()))
+                            .build())
+                    .build();
+
+            // ---- Qualité de récupération ----
+            int[] foundAt = {0, 0, 0};
+            int[] cutoffs = {1, 3, 10};
+            double reciprocalRanks = 0;
+            List<String> missed = new ArrayList<>();
+            for (LabelledQuestion question : questions) {
+                int rank = firstRelevant(question, ranking.retrieve(Query.from(question.question())));
+                for (int i = 0; i < cutoffs.length; i++) {
+                    if (rank > 0 && rank <= cutoffs[i]) foundAt[i]++;
+                }
+                if (rank > 0) reciprocalRanks += 1.0 / rank;
+                if (rank <= 0 || rank > 3) missed.add(question.fileName() + " : " + question.question() + (rank > 0 ? " (rang " + rank + ")" : ""));
+            }
+
+            // ---- Latence des tours complets, et passage attendu dans le prompt ----
+            for (LabelledQuestion question : questions) assistant.chat(question.question());
+            LatencyHistogram turns = new LatencyHistogram();
+            int inPrompt = 0;
+            for (int round = 0; round < rounds; round++) {
+                for (LabelledQuestion question : questions) {
+                    long start = System.nanoTime();
+                    assistant.chat(question.question());
+                    turns.recordNanos(System.nanoTime() - start);
+                    metrics.turns().recordNanos(System.nanoTime() - start);
+                    if (round == 0 && question.answeredBy(lastPrompt.get())) inPrompt++;
+                }
+            }
+
+            // ---- Rapport ----
+            int n = questions.size();
+            Map<String, Double> results = new LinkedHashMap<>();
+            results.put("recall.at.3", (double) foundAt[1] / n);
+            results.put("mrr.at.10", reciprocalRanks / n);
+            results.put("prompt.recall", (double) inPrompt / n);
+            results.put("latency.p50", turns.percentileMillis(50));
+            results.put("latency.p95", turns.percentileMillis(95));
+            results.put("latency.p99", turns.percentileMillis(99));
+
+            System.out.printf(Locale.ROOT, "%d questions, découpage %s, %d tours mesurés%n", n, chunking, turns.count());
+            System.out.printf(Locale.ROOT, "rappel@1 %.3f  rappel@3 %.3f  rappel@10 %.3f  MRR@10 %.3f  dans le prompt %.3f%n",
+                    (double) foundAt[0] / n, (double) foundAt[1] / n, (double) foundAt[2] / n, reciprocalRanks / n,
+                    (double) inPrompt / n);
+            System.out.println("tour complet     " + turns);
+            System.out.println(metrics);
+            if (!missed.isEmpty()) {
+                System.out.println("Hors des 3 premiers :");
+                missed.forEach(question -> System.out.println("  " + question));
+            }
+
+            regressions = check(results, thresholds);
+        }
+        assertTrue(regressions.isEmpty(), () -> "Seuils non tenus :\n  " + String.join("\n  ", regressions));
+    }
+
+    private static HybridContentRetriever hybrid(PooledOnnxEmbeddingModel embeddingModel, RagMetrics metrics,
+                                                 MappedEmbeddingStore store, Bm25Index lexicalIndex,
+                                                 FilterRouter router, int maxResults) {
+        return HybridContentRetriever.builder()
+                .embeddingModel(metrics.queryEmbeddings(embeddingModel))
+                .embeddingStore(metrics.store(store))
+                .lexicalIndex(lexicalIndex)
+                .dynamicFilter(router)
+                .maxResults(maxResults)
+                .minScore(0.35)
+                .build();
+    }
+
+    // Rang (à partir de 1) du premier contenu qui répond à la question, 0 s'il n'y en a pas
+    private static int firstRelevant(LabelledQuestion question, List<Content> contents) {
+        for (int i = 0; i < contents.size(); i++) {
+            TextSegment segment = contents.get(i).textSegment();
+            if (question.fileName().equals(segment.metadata().getString(Document.FILE_NAME))
+                    && question.answeredBy(segment.text())) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Seuils « .min » : valeur plancher ; « .max.ms » : plafond de latence
+    private static List<String> check(Map<String, Double> results, Properties thresholds) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : thresholds.stringPropertyNames().stream().sorted().toList()) {
+            double limit = Double.parseDouble(System.getProperty("eval." + key, thresholds.getProperty(key)));
+            if (key.endsWith(".min")) {
+                Double value = results.get(key.substring(0, key.length() - ".min".length()));
+                if (value != null && value < limit) {
+                    regressions.add(String.format(Locale.ROOT, "%s : %.3f < %.3f", key, value, limit));
+                }
+            } else if (key.endsWith(".max.ms")) {
+                Double value = results.get(key.substring(0, key.length() - ".max.ms".length()));
+                if (value != null && value > limit) {
+                    regressions.add(String.format(Locale.ROOT, "%s : %.1f ms > %.1f ms", key, value, limit));
+                }
+            } else {
+                throw new IllegalArgumentException("Seuil inconnu dans " + THRESHOLDS + " : " + key);
+            }
+        }
+        return regressions;
+    }
+
+    private static Properties thresholds() throws IOException {
+        Properties thresholds = new Properties();
+        try (InputStream in = RetrievalEvaluationTest.class.getClassLoader().getResourceAsStream(THRESHOLDS)) {
+            if (in == null) throw new IOException("Ressource introuvable : " + THRESHOLDS);
+            thresholds.load(in);
+        }
+        return thresholds;
+    }
+}
@@ -0,0 +1,98 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SemanticSplitter avec un modèle d'embedding par sujet : les phrases qui parlent de chats et
+ * celles qui parlent de voitures ont des vecteurs orthogonaux, les autres sont à mi-chemin.
+ */
+class SemanticSplitterTest {
+
+    private static final EmbeddingModel TOPICS = new EmbeddingModel() {
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            return Response.from(textSegments.stream().map(segment -> {
+                String text = segment.text().toLowerCase(Locale.ROOT);
+                if (text.contains("chat")) return Embedding.from(new float[]{1, 0});
+                if (text.contains("voiture")) return Embedding.from(new float[]{0, 1});
+                return Embedding.from(new float[]{0.70710677f, 0.70710677f});
+            }).toList());
+        }
+    };
+
+    @Test
+    void cutsWhereTheTopicChanges() {
+        String text = sentences("chat", 6) + " " + sentences("voiture", 6);
+
+        List<TextSegment> segments = splitter(100, 2_000).split(Document.from(text));
+
+        assertEquals(2, segments.size());
+        assertEquals(sentences("chat", 6), segments.get(0).text());
+        assertEquals(sentences("voiture", 6), segments.get(1).text());
+    }
+
+    @Test
+    void topicChangeDoesNotCutBelowMinSize() {
+        String text = sentences("chat", 1) + " " + sentences("voiture", 6);
+
+        List<TextSegment> segments = splitter(100, 2_000).split(Document.from(text));
+
+        assertEquals(List.of(text), segments.stream().map(TextSegment::text).toList());
+    }
+
+    @Test
+    void segmentsStayWithinMaxSizeAndTopic() {
+        String text = sentences("chat", 7) + " " + sentences("voiture", 7);
+
+        List<TextSegment> segments = splitter(0, 150).split(Document.from(text));
+
+        assertTrue(segments.size() >= 7, segments.size() + " segments");
+        for (TextSegment segment : segments) {
+            assertTrue(segment.text().length() <= 150, segment.text());
+            assertFalse(segment.text().contains("chat") && segment.text().contains("voiture"), segment.text());
+        }
+        assertEquals(text, String.join(" ", segments.stream().map(TextSegment::text).toList()));
+    }
+
+    @Test
+    void headingsAreBreakpoints() {
+        String text = sentences("chat", 4) + "\n\n# Suite sur le chat\n\n" + sentences("chat", 4);
+
+        List<TextSegment> segments = splitter(100, 2_000).split(Document.from(text));
+
+        assertEquals(2, segments.size());
+        assertEquals(sentences("chat", 4), segments.get(0).text());
+        assertEquals("Suite sur le chat\n" + sentences("chat", 4), segments.get(1).text());
+    }
+
+    private static SemanticSplitter splitter(int minSegmentSize, int maxSegmentSize) {
+        return SemanticSplitter.builder()
+                .embeddingModel(TOPICS)
+                .minSegmentSize(minSegmentSize)
+                .maxSegmentSize(maxSegmentSize)
+                .batchSize(3)
+                .build();
+    }
+
+    // Phrases d'une soixantaine de caractères, au-dessus de la longueur minimale d'une phrase
+    private static String sentences(String topic, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) text.append(' ');
+            text.append("La phrase numéro ").append(i).append(" parle toujours du sujet ").append(topic).append(" sans en changer.");
+        }
+        return text.toString();
+    }
+}
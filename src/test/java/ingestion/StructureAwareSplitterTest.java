@@ -0,0 +1,104 @@
+package ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * StructureAwareSplitter sur des textes au format de {@link StructuredTikaParser} : paragraphes
+ * séparés par une ligne vide, titres en {@code #}, pages séparées par un saut de page.
+ */
+class StructureAwareSplitterTest {
+
+    @Test
+    void segmentsStayWithinMaxSizeWithoutLosingText() {
+        Random random = new Random(5);
+        StringBuilder text = new StringBuilder();
+        List<String> words = new ArrayList<>();
+        for (int section = 0; section < 6; section++) {
+            text.append("# Section ").append(section).append("\n\n");
+            for (int paragraph = random.nextInt(4); paragraph >= 0; paragraph--) {
+                // De quelques mots à plus de trois fois la taille maximale
+                for (int sentence = 1 + random.nextInt(30); sentence > 0; sentence--) {
+                    for (int word = 3 + random.nextInt(10); word > 0; word--) {
+                        String w = "w" + words.size();
+                        words.add(w);
+                        text.append(w).append(word == 1 ? ". " : " ");
+                    }
+                }
+                text.append("\n\n");
+            }
+        }
+
+        List<TextSegment> segments = new StructureAwareSplitter(100, 400).split(Document.from(text.toString()));
+
+        segments.forEach(segment -> assertTrue(segment.text().length() <= 400, segment.text()));
+        List<String> found = new ArrayList<>();
+        for (TextSegment segment : segments) {
+            Arrays.stream(segment.text().split("[\\s.]+")).filter(w -> w.matches("w\\d+")).forEach(found::add);
+        }
+        assertEquals(words, found);
+    }
+
+    @Test
+    void smallSectionsAreMergedWithTheirNeighbour() {
+        String text = "# Introduction\n\nCourt.\n\nEncore court.\n\n# Méthode\n\n" + sentences("Méthode", 5)
+                + "\n\n# Conclusion\n\nFin.";
+
+        List<TextSegment> merged = new StructureAwareSplitter(100, 800).split(Document.from(text));
+        assertEquals(1, merged.size());
+        assertTrue(merged.get(0).text().startsWith("Introduction\nCourt.\nEncore court.\nMéthode\n"), merged.get(0).text());
+        assertTrue(merged.get(0).text().endsWith("\nConclusion\nFin."), merged.get(0).text());
+        assertEquals("Introduction", merged.get(0).metadata().getString(StructureAwareSplitter.SECTION));
+
+        // Sans taille minimale, une section par segment
+        List<TextSegment> sections = new StructureAwareSplitter(0, 800).split(Document.from(text));
+        assertEquals(List.of("Introduction", "Méthode", "Conclusion"),
+                sections.stream().map(segment -> segment.metadata().getString(StructureAwareSplitter.SECTION)).toList());
+    }
+
+    @Test
+    void headingsStartSectionsAndAreRepeatedInTheirSegments() {
+        String text = "# Introduction\n\n" + sentences("Introduction", 3)
+                + "\f# Méthode\n\n" + sentences("Méthode", 20);
+        Document document = Document.from(text, Metadata.from("file_name", "cours.pdf"));
+
+        List<TextSegment> segments = new StructureAwareSplitter(50, 300).split(document);
+
+        assertTrue(segments.size() > 3, segments.size() + " segments");
+        TextSegment first = segments.get(0);
+        assertEquals("Introduction", first.metadata().getString(StructureAwareSplitter.SECTION));
+        assertEquals(1, first.metadata().getInteger(StreamingSplitter.PAGE));
+        assertTrue(first.text().startsWith("Introduction\n"));
+        assertFalse(first.text().contains("Méthode"), first.text());
+
+        for (TextSegment segment : segments.subList(1, segments.size())) {
+            assertEquals("Méthode", segment.metadata().getString(StructureAwareSplitter.SECTION));
+            assertEquals(2, segment.metadata().getInteger(StreamingSplitter.PAGE));
+            assertTrue(segment.text().startsWith("Méthode\n"), segment.text());
+            assertEquals("cours.pdf", segment.metadata().getString("file_name"));
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            assertEquals(String.valueOf(i), segments.get(i).metadata().getString("index"));
+        }
+    }
+
+    private static String sentences(String topic, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) text.append(' ');
+            text.append("La phrase ").append(i).append(" de la partie ").append(topic).append(" reste assez longue.");
+        }
+        return text.toString();
+    }
+}
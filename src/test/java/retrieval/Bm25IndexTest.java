@@ -0,0 +1,107 @@
+package retrieval;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    private final Bm25Index index = new Bm25Index();
+
+    @Test
+    void scoresFollowBm25() {
+        index.replaceDocument("a", List.of(segment("chat chat souris", "a")));
+        index.replaceDocument("b", List.of(segment("chien souris", "b")));
+        index.replaceDocument("c", List.of(segment("oiseau", "c")));
+
+        // n = 3, longueur moyenne 2 ; « chat » : df = 1, tf = 2 dans un segment de longueur 3
+        double idf = Math.log(1 + (3 - 1 + 0.5) / (1 + 0.5));
+        double norm = 1.2 * (1 - 0.75 + 0.75 * 3 / 2.0);
+        List<Bm25Index.Match> chat = index.search("chat", 10);
+        assertEquals(1, chat.size());
+        assertEquals(idf * 2 * 2.2 / (2 + norm), chat.get(0).score(), 1e-5);
+
+        // « souris » est dans deux segments : le plus court l'emporte à fréquence égale
+        List<Bm25Index.Match> souris = index.search("souris", 10);
+        assertEquals(List.of("chien souris", "chat chat souris"), texts(souris));
+        assertTrue(souris.get(0).score() > souris.get(1).score());
+
+        // Un segment qui contient les deux termes passe devant
+        assertEquals("chat chat souris", index.search("souris chat", 1).get(0).segment().text());
+        assertTrue(index.search("girafe", 10).isEmpty());
+    }
+
+    @Test
+    void termsIgnoreCaseAndAccents() {
+        index.replaceDocument("a", List.of(segment("Le Modèle de qualité ISO/IEC 25010", "a")));
+
+        assertEquals(1, index.search("modele QUALITE", 10).size());
+        assertEquals(1, index.search("25010", 10).size());
+        // Termes d'une lettre ignorés
+        assertTrue(index.search("l d", 10).isEmpty());
+    }
+
+    @Test
+    void filterAppliesBeforeMaxResults() {
+        for (int i = 0; i < 10; i++) {
+            index.replaceDocument("doc" + i, List.of(segment("tests unitaires " + "tests ".repeat(i), "doc" + i)));
+        }
+
+        List<Bm25Index.Match> all = index.search("tests", 3);
+        assertEquals(List.of("doc9", "doc8", "doc7"), files(all));
+
+        List<Bm25Index.Match> filtered = index.search("tests", 3, metadataKey("file_name").isIn("doc1", "doc2", "doc5", "doc6"));
+        assertEquals(List.of("doc6", "doc5", "doc2"), files(filtered));
+        assertTrue(index.search("tests", 3, metadataKey("file_name").isEqualTo("absent")).isEmpty());
+    }
+
+    @Test
+    void replaceAndRemoveDocuments() {
+        index.replaceDocument("a", List.of(segment("ancien texte", "a"), segment("autre segment", "a")));
+        index.replaceDocument("a", List.of(segment("nouveau texte", "a")));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("ancien", 10).isEmpty());
+        assertEquals(List.of("nouveau texte"), texts(index.search("texte", 10)));
+
+        index.removeDocument("a");
+        assertEquals(0, index.size());
+        assertTrue(index.search("texte", 10).isEmpty());
+    }
+
+    @Test
+    void batchIsVisibleOnlyOncePublished() {
+        index.replaceDocument("a", List.of(segment("premier document", "a")));
+
+        Bm25Index.Batch batch = index.batch();
+        for (int i = 0; i < 5; i++) batch.replaceDocument("doc" + i, List.of(segment("document " + i, "doc" + i)));
+        batch.removeDocument("a");
+        batch.replaceDocument("doc4", List.of(segment("document remplacé", "doc4")));
+        assertEquals(1, index.size());
+        assertEquals(List.of("a"), files(index.search("document", 10)));
+
+        batch.publish();
+        assertEquals(5, index.size());
+        assertTrue(index.contains("doc4") && !index.contains("a"));
+        assertEquals(List.of("doc4"), files(index.search("remplacé", 10)));
+        assertTrue(index.search("premier", 10).isEmpty());
+    }
+
+    private static TextSegment segment(String text, String fileName) {
+        return TextSegment.from(text, Metadata.from("file_name", fileName));
+    }
+
+    private static List<String> texts(List<Bm25Index.Match> matches) {
+        return matches.stream().map(match -> match.segment().text()).toList();
+    }
+
+    private static List<String> files(List<Bm25Index.Match> matches) {
+        return matches.stream().map(match -> match.segment().metadata().getString("file_name")).toList();
+    }
+}
@@ -0,0 +1,149 @@
+package server;
+
+import assistant.SessionAssistant;
+import dev.langchain4j.data.segment.TextSegment;
+import embedding.CachingEmbeddingModel;
+import embedding.MicroBatchingEmbeddingModel;
+import metrics.RagMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import store.MappedEmbeddingStore;
+import stub.StubChatModel;
+import stub.StubEmbeddingModel;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serveur sur un port éphémère avec le câblage de RagServer : seuls le LLM et le modèle
+ * d'embedding sont des stubs (voir {@link ServerLoadReport} pour la mesure de débit).
+ */
+class AssistantServerTest {
+
+    private static final List<String> QUESTIONS = List.of(
+            "Qu'est-ce que le RAG ?",
+            "Quelles sont les phases d'un système RAG ?",
+            "À quoi sert un modèle d'embeddings ?");
+
+    @TempDir
+    Path directory;
+
+    private final RagMetrics metrics = new RagMetrics();
+    private final StubChatModel model = new StubChatModel("Réponse simulée.", Duration.ofMillis(2),
+            List.of(metrics.chatModelListener()));
+    private final SessionChatMemories memories = SessionChatMemories.builder().maxMessages(100).build();
+    private MicroBatchingEmbeddingModel batchedEmbeddings;
+    private AssistantServer server;
+    private HttpClient http;
+
+    @BeforeEach
+    void start() throws IOException {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(directory);
+        // Les questions elles-mêmes comme passages : la recherche trouve toujours un résultat
+        List<TextSegment> segments = QUESTIONS.stream().map(TextSegment::from).toList();
+        store.addAll(embeddingModel.embedAll(segments).content(), segments);
+
+        batchedEmbeddings = MicroBatchingEmbeddingModel.builder().delegate(embeddingModel).build();
+        SessionAssistant assistant = RagServer.assistant(model,
+                RagServer.retriever(new CachingEmbeddingModel(batchedEmbeddings, 100), store, metrics),
+                memories, metrics);
+        server = new AssistantServer(assistant, memories, metrics, 0).start();
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        batchedEmbeddings.close();
+    }
+
+    @Test
+    void concurrentSessionsAreAnsweredWithTheirOwnMemory() throws Exception {
+        int sessions = 8;
+        int requestsPerSession = 5;
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                String sessionId = "session-" + s;
+                futures.add(clients.submit(() -> {
+                    // Requêtes simultanées d'une même session : le serveur doit les sérialiser
+                    List<Future<Integer>> statuses = new ArrayList<>();
+                    for (int i = 0; i < requestsPerSession; i++) {
+                        String question = QUESTIONS.get(i % QUESTIONS.size());
+                        statuses.add(clients.submit(() -> post(sessionId, question).statusCode()));
+                    }
+                    List<Integer> codes = new ArrayList<>();
+                    for (Future<Integer> status : statuses) codes.add(status.get());
+                    return codes;
+                }));
+            }
+            for (Future<List<Integer>> future : futures) {
+                future.get().forEach(status -> assertEquals(200, status));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        assertEquals(sessions * requestsPerSession, model.calls());
+        assertEquals(sessions, memories.size());
+        for (int s = 0; s < sessions; s++) {
+            // Question et réponse de chaque tour, aucune perdue par une écriture concurrente
+            assertEquals(2 * requestsPerSession, memories.get("session-" + s).messages().size());
+        }
+        assertEquals(sessions * requestsPerSession, metrics.turns().count());
+    }
+
+    @Test
+    void rejectsMalformedRequests() throws Exception {
+        assertEquals(400, http.send(HttpRequest.newBuilder(uri("/chat"))
+                .POST(HttpRequest.BodyPublishers.ofString("Bonjour"))
+                .build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(405, get("/chat").statusCode());
+        assertEquals(0, model.calls());
+    }
+
+    @Test
+    void exposesMetrics() throws Exception {
+        assertEquals(200, post("alice", QUESTIONS.get(0)).statusCode());
+
+        HttpResponse<String> metricsResponse = get("/metrics");
+        assertEquals(200, metricsResponse.statusCode());
+        assertTrue(metricsResponse.body().contains("# TYPE"), metricsResponse.body());
+
+        HttpResponse<String> stats = get("/stats");
+        assertEquals(200, stats.statusCode());
+        assertTrue(stats.body().startsWith("sessions=1 "), stats.body());
+    }
+
+    private HttpResponse<String> post(String sessionId, String question) throws Exception {
+        return http.send(HttpRequest.newBuilder(uri("/chat"))
+                .header(AssistantServer.SESSION_HEADER, sessionId)
+                .POST(HttpRequest.BodyPublishers.ofString(question))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return http.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.port() + path);
+    }
+}
@@ -0,0 +1,143 @@
+package server;
+
+import assistant.SessionAssistant;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import embedding.MicroBatchingEmbeddingModel;
+import ingestion.DocumentSnapshots;
+import ingestion.IngestionPipeline;
+import metrics.LatencyHistogram;
+import metrics.RagMetrics;
+import store.MappedEmbeddingStore;
+import stub.StubChatModel;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesure de charge hors ligne du serveur, à lancer à la main : le LLM est un StubChatModel, tout
+ * le reste (HTTP, embedding de la question, recherche, mémoire par session) est réel. Le
+ * comportement du serveur sous requêtes concurrentes est vérifié par {@link AssistantServerTest}.
+ * <p>
+ * Le nombre de clients concurrents double à chaque palier jusqu'à 4 × le nombre de cœurs ; le
+ * débit doit croître jusqu'au nombre de cœurs puis plafonner. Pour comparer plusieurs machines
+ * sur une même machine : {@code -XX:ActiveProcessorCount=N}.
+ * <p>
+ * {@code -Drequests=20} requêtes par client, {@code -Dstub.latency=PT0S} latence simulée du LLM,
+ * {@code -Dbatching=true} regroupement des embeddings de questions concurrentes.
+ */
+public class ServerLoadReport {
+
+    private static final String[] QUESTIONS = {
+            "Qu'est-ce que le RAG ?",
+            "Quelles sont les phases d'un système RAG ?",
+            "À quoi sert un modèle d'embeddings ?",
+            "Quelle différence entre RAG et fine-tuning ?",
+            "Comment fonctionne la recherche par similarité ?"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int requestsPerClient = Integer.getInteger("requests", 20);
+        Duration stubLatency = Duration.parse(System.getProperty("stub.latency", "PT0S"));
+
+        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(Paths.get("index", "ia"));
+        IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .snapshots(DocumentSnapshots.open(Paths.get("index", "snapshots")))
+                .build()
+                .ingest(store, RagServer.getResourcePath("rag.pdf"));
+
+        RagMetrics metrics = new RagMetrics();
+        StubChatModel model = new StubChatModel("Réponse simulée.", stubLatency, List.of(metrics.chatModelListener()));
+        SessionChatMemories memories = SessionChatMemories.builder()
+                .idleTimeout(Duration.ofSeconds(2))
+                .build();
+        // Sans cache d'embeddings de requêtes : on mesure le vrai coût CPU de chaque question
+        MicroBatchingEmbeddingModel batchedEmbeddings = Boolean.parseBoolean(System.getProperty("batching", "true"))
+                ? MicroBatchingEmbeddingModel.builder().delegate(embeddingModel).build()
+                : null;
+        EmbeddingModel queryEmbeddings = batchedEmbeddings != null ? batchedEmbeddings : embeddingModel;
+        SessionAssistant assistant = RagServer.assistant(model, RagServer.retriever(queryEmbeddings, store, metrics),
+                memories, metrics);
+
+        try (AssistantServer server = new AssistantServer(assistant, memories, metrics, 0).start();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clients)
+                    .build();
+            URI chat = URI.create("http://localhost:" + server.port() + "/chat");
+
+            // Échauffement (JIT, session ONNX)
+            runLevel(http, chat, clients, "warmup", Math.min(cores, 4), 5);
+
+            System.out.printf(Locale.ROOT, "%d cœurs, %d requêtes par client, latence LLM simulée %d ms%n",
+                    cores, requestsPerClient, stubLatency.toMillis());
+            System.out.printf(Locale.ROOT, "%8s %10s %10s %10s %10s %8s%n", "clients", "req/s", "p50 ms", "p95 ms", "p99 ms", "erreurs");
+            for (int level = 1; level <= 4 * cores; level *= 2) {
+                Result result = runLevel(http, chat, clients, "c" + level, level, requestsPerClient);
+                System.out.printf(Locale.ROOT, "%8d %10.1f %10.1f %10.1f %10.1f %8d%n",
+                        level, result.throughput(),
+                        result.latency().percentileMillis(50), result.latency().percentileMillis(95),
+                        result.latency().percentileMillis(99), result.errors());
+            }
+
+            Thread.sleep(memories.idleTimeout().multipliedBy(2).toMillis());
+            memories.evictIdle();
+            System.out.println("sessions restantes=" + memories.size() + " évictions=" + memories.evictions()
+                    + " appels LLM=" + model.calls());
+            if (batchedEmbeddings != null) System.out.println(batchedEmbeddings.stats());
+            System.out.println("Latences par étape, tous paliers confondus :\n" + metrics);
+        }
+    }
+
+    private record Result(double throughput, LatencyHistogram latency, long errors) {
+    }
+
+    private static Result runLevel(HttpClient http, URI chat, ExecutorService clients,
+                                   String prefix, int concurrency, int requestsPerClient) throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            String sessionId = prefix + "-" + c;
+            futures.add(clients.submit(() -> {
+                for (int i = 0; i < requestsPerClient; i++) {
+                    HttpRequest request = HttpRequest.newBuilder(chat)
+                            .header(AssistantServer.SESSION_HEADER, sessionId)
+                            .POST(HttpRequest.BodyPublishers.ofString(QUESTIONS[i % QUESTIONS.length]))
+                            .build();
+                    long t = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) errors.increment();
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                    latency.recordNanos(System.nanoTime() - t);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        return new Result(concurrency * requestsPerClient / seconds, latency, errors.sum());
+    }
+}
@@ -0,0 +1,118 @@
+package server;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import org.junit.jupiter.api.Test;
+import stub.MutableClock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionChatMemoriesTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final SessionChatMemories memories = SessionChatMemories.builder()
+            .idleTimeout(Duration.ofMinutes(30))
+            .clock(clock)
+            .build();
+
+    @Test
+    void idleSessionsAreEvictedAndCleared() {
+        ChatMemory first = memories.get("a");
+        first.add(UserMessage.from("Bonjour"));
+        clock.advance(Duration.ofMinutes(10));
+        memories.get("b");
+        assertSame(first, memories.get("a"));
+
+        clock.advance(Duration.ofMinutes(31));
+        memories.get("b");
+        assertEquals(1, memories.evictIdle());
+        assertEquals(1, memories.size());
+        assertEquals(1, memories.evictions());
+        assertTrue(first.messages().isEmpty());
+
+        ChatMemory second = memories.get("a");
+        assertNotSame(first, second);
+        assertTrue(second.messages().isEmpty());
+    }
+
+    @Test
+    void sessionInTurnIsNotEvicted() {
+        memories.turn("a", () -> {
+            clock.advance(Duration.ofHours(1));
+            assertEquals(0, memories.evictIdle());
+            return null;
+        });
+        // Fin du tour = dernière activité
+        assertEquals(0, memories.evictIdle());
+        clock.advance(Duration.ofMinutes(31));
+        assertEquals(1, memories.evictIdle());
+    }
+
+    @Test
+    void turnsOfOneSessionRunOneAtATime() throws Exception {
+        int threads = 8;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> memories.turn("a", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(5);
+                    memories.get("a").add(UserMessage.from("question"));
+                    running.decrementAndGet();
+                    return null;
+                })));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, maxRunning.get());
+        assertEquals(threads, memories.get("a").messages().size());
+    }
+
+    @Test
+    void differentSessionsRunConcurrently() throws Exception {
+        // Les deux tours ne passent la barrière qu'ensemble : une sérialisation globale la ferait expirer
+        CyclicBarrier together = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (String session : List.of("a", "b")) {
+                futures.add(executor.submit(() -> memories.turn(session, () -> {
+                    try {
+                        return together.await(5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })));
+            }
+            for (Future<Integer> future : futures) future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
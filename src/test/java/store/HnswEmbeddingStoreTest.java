@@ -0,0 +1,122 @@
+package store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HnswEmbeddingStore sur un corpus synthétique en clusters ({@link HnswRecallReport#clusteredVectors}).
+ */
+class HnswEmbeddingStoreTest {
+
+    private static final int SIZE = 2_000;
+    private static final int DIMENSION = 32;
+
+    private final Random random = new Random(3);
+    private final List<Embedding> corpus = HnswRecallReport.clusteredVectors(SIZE, DIMENSION, 40, random);
+    private final HnswEmbeddingStore store = HnswEmbeddingStore.builder().m(8).efConstruction(64).efSearch(16).build();
+    private final List<String> ids = new ArrayList<>();
+
+    HnswEmbeddingStoreTest() {
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            ids.add("id-" + i);
+            segments.add(TextSegment.from("segment " + i, new Metadata().put("part", i % 100)));
+        }
+        store.addAll(ids, corpus, segments);
+    }
+
+    @Test
+    void storedVectorIsItsOwnNearestNeighbour() {
+        for (int i = 0; i < SIZE; i += 97) {
+            EmbeddingMatch<TextSegment> best = search(corpus.get(i), 1, 0, null).get(0);
+            assertEquals(ids.get(i), best.embeddingId());
+            assertEquals(1.0, best.score(), 1e-5);
+            assertEquals("segment " + i, best.embedded().text());
+        }
+    }
+
+    @Test
+    void maxResultsAndMinScoreAreHonoured() {
+        Embedding query = HnswRecallReport.perturb(corpus.get(5), 0.05f, random);
+        List<EmbeddingMatch<TextSegment>> matches = search(query, 10, 0, null);
+        assertEquals(10, matches.size());
+        for (int i = 1; i < matches.size(); i++) assertTrue(matches.get(i - 1).score() >= matches.get(i).score());
+
+        double minScore = matches.get(4).score();
+        List<EmbeddingMatch<TextSegment>> above = search(query, 10, minScore, null);
+        assertTrue(above.size() >= 5 && above.size() < 10, () -> above.size() + " résultats");
+        above.forEach(match -> assertTrue(match.score() >= minScore));
+    }
+
+    @Test
+    void removedEntriesAreNeverReturned() {
+        store.removeAll(List.of(ids.get(7)));
+        assertEquals(SIZE - 1, store.size());
+        assertTrue(search(corpus.get(7), 5, 0, null).stream().noneMatch(match -> match.embeddingId().equals(ids.get(7))));
+
+        store.removeAll(metadataKey("part").isEqualTo(8));
+        assertTrue(search(corpus.get(8), 20, 0, null).stream()
+                .noneMatch(match -> match.embedded().metadata().getInteger("part") == 8));
+    }
+
+    @Test
+    void selectiveFilterStillReturnsMaxResults() {
+        // Filtres de 1 % à 50 % du corpus : toujours maxResults correspondances, toutes dans le filtre
+        for (int percent : new int[]{1, 5, 20, 50}) {
+            Filter filter = metadataKey("part").isLessThan(percent);
+            for (int q = 0; q < 20; q++) {
+                Embedding query = HnswRecallReport.perturb(corpus.get(random.nextInt(SIZE)), 0.03f, random);
+                List<EmbeddingMatch<TextSegment>> matches = search(query, 10, 0, filter);
+                assertEquals(10, matches.size(), percent + " %");
+                matches.forEach(match -> assertTrue(match.embedded().metadata().getInteger("part") < percent));
+            }
+        }
+    }
+
+    @Test
+    void filteredResultsMatchExactSearch() {
+        Filter filter = metadataKey("part").isLessThan(10);
+        Embedding query = HnswRecallReport.perturb(corpus.get(3), 0.03f, random);
+
+        List<String> expected = new ArrayList<>();
+        List<Integer> eligible = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) if (i % 100 < 10) eligible.add(i);
+        float[] q = query.vector();
+        eligible.sort((a, b) -> Double.compare(cosine(q, corpus.get(b).vector()), cosine(q, corpus.get(a).vector())));
+        for (int i = 0; i < 3; i++) expected.add(ids.get(eligible.get(i)));
+
+        assertEquals(expected, search(query, 3, 0, filter).stream().map(EmbeddingMatch::embeddingId).toList());
+    }
+
+    private List<EmbeddingMatch<TextSegment>> search(Embedding query, int maxResults, double minScore, Filter filter) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(maxResults)
+                .minScore(minScore)
+                .filter(filter)
+                .build()).matches();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
@@ -0,0 +1,100 @@
+package store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stub.StubEmbeddingModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Réouverture de l'index après des arrêts simulés pendant une écriture.
+ */
+class MappedEmbeddingStoreTest {
+
+    private static final int DIMENSION = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void entriesSurviveReopen() throws IOException {
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(directory);
+        List<String> ids = add(store, "a", "b", "c");
+        store.removeAll(List.of(ids.get(1)));
+        add(store, "d");
+
+        MappedEmbeddingStore reopened = MappedEmbeddingStore.open(directory);
+        assertEquals(List.of("a", "c", "d"), texts(reopened));
+        assertEquals(ids.get(2), best(reopened, "c").embeddingId());
+    }
+
+    @Test
+    void committedEntriesSurviveInterruptedAppend() throws IOException {
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(directory);
+        add(store, "a", "b", "c");
+
+        // Arrêt au milieu d'un ajout : vecteur et enregistrement partiels, manifeste non réécrit
+        append(directory.resolve("vectors.f32"), DIMENSION * Float.BYTES + 6);
+        append(directory.resolve("segments.bin"), 11);
+
+        MappedEmbeddingStore reopened = MappedEmbeddingStore.open(directory);
+        assertEquals(List.of("a", "b", "c"), texts(reopened));
+        assertEquals("b", best(reopened, "b").embedded().text());
+
+        // Les ajouts suivants repartent de la fin validée
+        add(reopened, "d");
+        assertEquals(List.of("a", "b", "c", "d"), texts(MappedEmbeddingStore.open(directory)));
+    }
+
+    @Test
+    void unpublishedGenerationIsDiscarded() throws IOException {
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(directory);
+        add(store, "a", "b");
+
+        // Arrêt après l'écriture d'une nouvelle génération, avant le manifeste qui la désigne
+        append(directory.resolve("vectors-1.f32"), 3 * DIMENSION * Float.BYTES);
+        append(directory.resolve("segments-1.bin"), 40);
+
+        assertEquals(List.of("a", "b"), texts(MappedEmbeddingStore.open(directory)));
+        assertFalse(Files.exists(directory.resolve("vectors-1.f32")));
+        assertFalse(Files.exists(directory.resolve("segments-1.bin")));
+    }
+
+    private static List<String> add(MappedEmbeddingStore store, String... texts) {
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (String text : texts) {
+            embeddings.add(Embedding.from(StubEmbeddingModel.vector(text, DIMENSION)));
+            segments.add(TextSegment.from(text, Metadata.from("file_name", "doc.txt")));
+        }
+        return store.addAll(embeddings, segments);
+    }
+
+    private static List<String> texts(MappedEmbeddingStore store) {
+        return store.segments().stream().map(TextSegment::text).toList();
+    }
+
+    private static EmbeddingMatch<TextSegment> best(MappedEmbeddingStore store, String text) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(StubEmbeddingModel.vector(text, DIMENSION)))
+                .maxResults(1)
+                .build()).matches().get(0);
+    }
+
+    private static void append(Path file, int bytes) throws IOException {
+        Files.write(file, new byte[bytes], StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,197 @@
+package store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * QuantizedEmbeddingStore en int8 et en PQ sur un corpus synthétique en clusters
+ * ({@link HnswRecallReport#clusteredVectors}).
+ */
+class QuantizedEmbeddingStoreTest {
+
+    private static final int SIZE = 600;
+    private static final int DIMENSION = 32;
+
+    private final Random random = new Random(11);
+    private final List<Embedding> corpus = HnswRecallReport.clusteredVectors(SIZE, DIMENSION, 20, random);
+
+    @Test
+    void int8RoundTrip() {
+        QuantizedEmbeddingStore store = QuantizedEmbeddingStore.builder().int8().build();
+        List<String> ids = addAll(store, 0, SIZE);
+        assertEquals(SIZE, store.size());
+        assertEquals(DIMENSION + 4, store.heapBytesPerVector());
+
+        for (int i = 0; i < SIZE; i += 37) {
+            EmbeddingMatch<TextSegment> best = search(store, corpus.get(i), 1, 0).get(0);
+            assertEquals(ids.get(i), best.embeddingId());
+            assertEquals(1.0, best.score(), 1e-2);
+            assertEquals("segment " + i, best.embedded().text());
+        }
+
+        store.removeAll(List.of(ids.get(3)));
+        store.removeAll(metadataKey("part").isEqualTo(4));
+        assertEquals(SIZE - 1 - SIZE / 10, store.size());
+        assertTrue(search(store, corpus.get(3), 5, 0).stream().noneMatch(match -> match.embeddingId().equals(ids.get(3))));
+        assertTrue(search(store, corpus.get(4), 20, 0).stream()
+                .noneMatch(match -> match.embedded().metadata().getInteger("part") == 4));
+    }
+
+    @Test
+    void maxResultsAndMinScoreAreHonoured() {
+        QuantizedEmbeddingStore store = QuantizedEmbeddingStore.builder().int8().build();
+        addAll(store, 0, SIZE);
+        Embedding query = HnswRecallReport.perturb(corpus.get(8), 0.05f, random);
+
+        List<EmbeddingMatch<TextSegment>> matches = search(store, query, 10, 0);
+        assertEquals(10, matches.size());
+        for (int i = 1; i < matches.size(); i++) assertTrue(matches.get(i - 1).score() >= matches.get(i).score());
+
+        // minScore est un score de pertinence ((cos + 1) / 2), comme les scores renvoyés
+        double minScore = matches.get(4).score();
+        List<EmbeddingMatch<TextSegment>> above = search(store, query, 10, minScore);
+        assertEquals(matches.subList(0, above.size()), above);
+        assertTrue(above.size() >= 5 && above.size() < 10, () -> above.size() + " résultats");
+    }
+
+    @Test
+    void rerankReturnsExactScores() {
+        QuantizedEmbeddingStore store = QuantizedEmbeddingStore.builder()
+                .productQuantization(8).trainingSize(256).rerank(4).build();
+        addAll(store, 0, SIZE);
+        assertTrue(store.isTrained());
+        assertEquals(DIMENSION * Float.BYTES, store.offHeapBytesPerVector());
+
+        Embedding query = HnswRecallReport.perturb(corpus.get(21), 0.05f, random);
+        for (EmbeddingMatch<TextSegment> match : search(store, query, 5, 0)) {
+            int i = Integer.parseInt(match.embedded().text().substring("segment ".length()));
+            assertEquals(RelevanceScore.fromCosineSimilarity(cosine(query.vector(), corpus.get(i).vector())),
+                    match.score(), 1e-5);
+        }
+        assertEquals(ids(search(store, query, 5, 0)), exactTop(query, 5));
+    }
+
+    @Test
+    void productQuantizationTrainsOnceEnoughVectorsArrive() {
+        QuantizedEmbeddingStore store = QuantizedEmbeddingStore.builder()
+                .productQuantization(8).trainingSize(256).build();
+        List<String> ids = addAll(store, 0, 200);
+        assertFalse(store.isTrained());
+        // Avant l'apprentissage, recherche exacte sur les vecteurs en attente
+        Embedding query = HnswRecallReport.perturb(corpus.get(5), 0.05f, random);
+        assertEquals(exactTop(query, 5, 200), ids(search(store, query, 5, 0)));
+
+        ids.addAll(addAll(store, 200, SIZE));
+        assertTrue(store.isTrained());
+        assertEquals(8, store.heapBytesPerVector());
+        assertEquals(SIZE, store.size());
+        assertTrue(recallAt10(store) >= 0.8, () -> "rappel@10 " + recallAt10(store));
+    }
+
+    @Test
+    void removalAfterTrainingKeepsCodesAligned() {
+        QuantizedEmbeddingStore store = QuantizedEmbeddingStore.builder()
+                .productQuantization(8).trainingSize(256).rerank(4).build();
+        List<String> ids = addAll(store, 0, SIZE);
+        assertTrue(store.isTrained());
+
+        Set<String> removed = new HashSet<>();
+        for (int i = 0; i < SIZE; i += 3) removed.add(ids.get(i));
+        store.removeAll(removed);
+        assertTrue(store.isTrained());
+        assertEquals(SIZE - removed.size(), store.size());
+
+        // Chaque vecteur restant est toujours retrouvé avec son identifiant et son segment
+        for (int i = 1; i < SIZE; i += 3) {
+            EmbeddingMatch<TextSegment> best = search(store, corpus.get(i), 1, 0).get(0);
+            assertEquals(ids.get(i), best.embeddingId());
+            assertEquals("segment " + i, best.embedded().text());
+            assertEquals(1.0, best.score(), 1e-5);
+        }
+        for (int i = 0; i < SIZE; i += 3) {
+            assertTrue(search(store, corpus.get(i), 10, 0).stream().noneMatch(match -> removed.contains(match.embeddingId())));
+        }
+
+        // Les ajouts suivants sont encodés avec les dictionnaires existants
+        Embedding extra = HnswRecallReport.perturb(corpus.get(0), 0.01f, random);
+        String extraId = store.add(extra, TextSegment.from("ajout"));
+        assertEquals(extraId, search(store, extra, 1, 0).get(0).embeddingId());
+    }
+
+    private List<String> addAll(QuantizedEmbeddingStore store, int from, int to) {
+        List<String> ids = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add("id-" + i);
+            segments.add(TextSegment.from("segment " + i, new Metadata().put("part", i % 10)));
+        }
+        store.addAll(ids, corpus.subList(from, to), segments);
+        return ids;
+    }
+
+    private double recallAt10(QuantizedEmbeddingStore store) {
+        int found = 0;
+        int expected = 0;
+        Random queries = new Random(7);
+        for (int q = 0; q < 30; q++) {
+            Embedding query = HnswRecallReport.perturb(corpus.get(queries.nextInt(SIZE)), 0.05f, queries);
+            Set<String> result = new HashSet<>(ids(search(store, query, 10, 0)));
+            for (String id : exactTop(query, 10)) {
+                expected++;
+                if (result.contains(id)) found++;
+            }
+        }
+        return (double) found / expected;
+    }
+
+    private List<String> exactTop(Embedding query, int k) {
+        return exactTop(query, k, SIZE);
+    }
+
+    private List<String> exactTop(Embedding query, int k, int size) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < size; i++) order.add(i);
+        float[] q = query.vector();
+        order.sort((a, b) -> Double.compare(cosine(q, corpus.get(b).vector()), cosine(q, corpus.get(a).vector())));
+        return order.subList(0, k).stream().map(i -> "id-" + i).toList();
+    }
+
+    private static List<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(EmbeddingMatch::embeddingId).toList();
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> search(QuantizedEmbeddingStore store, Embedding query,
+                                                            int maxResults, double minScore) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(maxResults)
+                .minScore(minScore)
+                .build()).matches();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
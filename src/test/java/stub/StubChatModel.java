@@ -0,0 +1,98 @@
+package stub;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ChatModel local, sans réseau, pour les benchmarks et les tests de charge : renvoie une réponse
+ * fixe après une latence simulée.
+ * <p>
+ * Les tokens sont comptés grossièrement (un token par mot du texte des messages) pour alimenter
+ * TokenUsage.
+ */
+public class StubChatModel implements ChatModel {
+
+    private final String answer;
+    private final Duration latency;
+    private final List<ChatModelListener> listeners;
+    private final LongAdder calls = new LongAdder();
+
+    public StubChatModel() {
+        this("Réponse simulée.", Duration.ZERO);
+    }
+
+    public StubChatModel(String answer, Duration latency) {
+        this(answer, latency, List.of());
+    }
+
+    public StubChatModel(String answer, Duration latency, List<ChatModelListener> listeners) {
+        this.answer = answer;
+        this.latency = latency;
+        this.listeners = List.copyOf(listeners);
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return listeners;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        calls.increment();
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Appel interrompu", e);
+            }
+        }
+
+        int inputTokens = 0;
+        for (ChatMessage message : chatRequest.messages()) inputTokens += words(text(message));
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(answer))
+                .tokenUsage(new TokenUsage(inputTokens, words(answer)))
+                .finishReason(FinishReason.STOP)
+                .build();
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    // Texte porté par le message, sans le rôle ni la représentation de l'objet
+    private static String text(ChatMessage message) {
+        return switch (message) {
+            case SystemMessage system -> system.text();
+            case UserMessage user -> user.hasSingleText() ? user.singleText() : user.contents().toString();
+            case AiMessage ai -> ai.text() == null ? "" : ai.text();
+            case ToolExecutionResultMessage tool -> tool.text();
+            default -> "";
+        };
+    }
+
+    private static int words(String text) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean space = Character.isWhitespace(text.charAt(i));
+            if (!space && !inWord) count++;
+            inWord = !space;
+        }
+        return count;
+    }
+}
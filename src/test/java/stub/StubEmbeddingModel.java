@@ -0,0 +1,80 @@
+package stub;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EmbeddingModel local, sans modèle ONNX : un vecteur unitaire pseudo-aléatoire déterminé par le
+ * texte (même texte, même vecteur), après une latence simulée par appel. Compte les appels et
+ * les textes embeddés.
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimension;
+    private final Duration latency;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder texts = new LongAdder();
+
+    public StubEmbeddingModel() {
+        this(32, Duration.ZERO);
+    }
+
+    public StubEmbeddingModel(int dimension, Duration latency) {
+        this.dimension = dimension;
+        this.latency = latency;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        calls.increment();
+        texts.add(textSegments.size());
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Embedding interrompu", e);
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        for (TextSegment segment : textSegments) embeddings.add(Embedding.from(vector(segment.text(), dimension)));
+        return Response.from(embeddings);
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long texts() {
+        return texts.sum();
+    }
+
+    /**
+     * Vecteur unitaire reproductible pour ce texte.
+     */
+    public static float[] vector(String text, int dimension) {
+        Random random = new Random(text.hashCode());
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) vector[i] *= inverse;
+        return vector;
+    }
+}
@@ -0,0 +1,62 @@
+package stub;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchInformationResult;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSearchEngine local, sans réseau : renvoie des résultats fabriqués à partir des termes de
+ * recherche après une latence simulée, et compte les appels.
+ */
+public class StubWebSearchEngine implements WebSearchEngine {
+
+    private final Duration latency;
+    private final int results;
+    private final LongAdder calls = new LongAdder();
+
+    public StubWebSearchEngine() {
+        this(Duration.ZERO, 3);
+    }
+
+    public StubWebSearchEngine(Duration latency, int results) {
+        this.latency = latency;
+        this.results = results;
+    }
+
+    @Override
+    public WebSearchResults search(WebSearchRequest request) {
+        calls.increment();
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Recherche interrompue", e);
+            }
+        }
+
+        String terms = request.searchTerms();
+        int count = request.maxResults() == null ? results : Math.min(results, request.maxResults());
+        List<WebSearchOrganicResult> organic = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            URI url = URI.create("https://example.org/" + URLEncoder.encode(terms, StandardCharsets.UTF_8) + "/" + i);
+            organic.add(WebSearchOrganicResult.from("Résultat " + i + " : " + terms, url,
+                    "Extrait simulé n°" + i + " sur « " + terms + " ».", null));
+        }
+        return WebSearchResults.from(WebSearchInformationResult.from((long) count), organic);
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+}